@@ -1,5 +1,6 @@
 package com.wallet.code.config;
 
+import com.wallet.code.money.MoneyJson;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,7 +9,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.JacksonUtils;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -19,17 +22,38 @@ public class KafkaProducerConfig {
     @Value("${kafka.bootstrap-server}")
     private String bootstrapServer;
 
+    // set (e.g. "wallet-tx-") to turn on transactional producers; leave empty for plain producers
+    @Value("${kafka.producer.transaction-id-prefix:}")
+    private String transactionIdPrefix;
+
     @Bean
-    public ProducerFactory producerFactory() {
+    public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(config);
+        if (isTransactional()) {
+            config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+            config.put(ProducerConfig.ACKS_CONFIG, "all");
+        }
+        // the JsonSerializer's default mapper plus MoneyJson, so paise amounts are written without boxing
+        JsonSerializer<Object> valueSerializer =
+                new JsonSerializer<>(JacksonUtils.enhancedObjectMapper().registerModule(MoneyJson.module()));
+        DefaultKafkaProducerFactory<String, Object> factory =
+                new DefaultKafkaProducerFactory<>(config, new StringSerializer(), valueSerializer);
+        if (isTransactional()) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        return factory;
     }
 
     @Bean
     public KafkaTemplate<String, Object> getKafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(producerFactory());
+        // sends made outside a listener transaction (REST paths, other listeners) stay plain sends
+        template.setAllowNonTransactional(isTransactional());
+        return template;
+    }
+
+    public boolean isTransactional() {
+        return StringUtils.hasText(transactionIdPrefix);
     }
 }
@@ -0,0 +1,19 @@
+package com.wallet.code.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.wallet.code.money.MoneyJson;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers {@link MoneyJson#module()} with Spring Boot's {@code ObjectMapper}, which picks up
+ * every {@link Module} bean. Mappers built by hand register the module themselves.
+ */
+@Configuration
+public class MoneyJsonConfig {
+
+    @Bean
+    public Module moneyJsonModule() {
+        return MoneyJson.module();
+    }
+}
@@ -0,0 +1,56 @@
+package com.wallet.code.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Applies the threading defaults shared by every service that depends on Common-CodeBase
+ * ({@code wallet-threads.properties}). They are added last, so a service's own
+ * application.properties, env vars and command-line flags still win.
+ * <p>
+ * Switch a service to virtual threads with {@code spring.threads.virtual.enabled=true}: Spring Boot
+ * then runs Tomcat requests, {@code @KafkaListener} containers and {@code @Scheduled} tasks on virtual
+ * threads, and {@link VirtualThreadConfig} does the same for outbound HTTP clients. In that mode
+ * {@code jdk.tracePinnedThreads} is set here, before any virtual thread exists, so a carrier
+ * pinned by a {@code synchronized} block (e.g. inside a JDBC driver) logs its stack trace.
+ * <p>
+ * An app that only borrows Common's classes (payment-gateway, on its own Boot version) opts out with
+ * {@code wallet.threads.shared-defaults=false} and keeps its own threading configuration untouched.
+ */
+public class ThreadingEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    static final String SHARED_PROPERTIES = "wallet-threads.properties";
+    static final String ENABLED = "wallet.threads.shared-defaults";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty(ENABLED, Boolean.class, true)) {
+            return;
+        }
+        try {
+            environment.getPropertySources().addLast(
+                    new ResourcePropertySource("walletThreads", new ClassPathResource(SHARED_PROPERTIES)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load " + SHARED_PROPERTIES, e);
+        }
+        boolean virtual = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        String tracePinned = environment.getProperty("wallet.threads.trace-pinned", "");
+        if (virtual && !tracePinned.isBlank() && !"off".equals(tracePinned)
+                && System.getProperty("jdk.tracePinnedThreads") == null) {
+            System.setProperty("jdk.tracePinnedThreads", tracePinned);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // after the config-data processor, so application.properties is already visible
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
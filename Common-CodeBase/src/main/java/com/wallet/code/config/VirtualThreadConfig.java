@@ -0,0 +1,42 @@
+package com.wallet.code.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared JDK {@link HttpClient} for outbound calls (RestTemplates and async fetches). With
+ * {@code spring.threads.virtual.enabled=true} its work runs on virtual threads; otherwise on a
+ * cached pool of daemon platform threads, the JDK default. Feign and {@code HttpURLConnection}
+ * calls need nothing extra: they block the calling thread, which is already virtual in that mode.
+ * <p>
+ * Exposed as an {@code HttpClient} rather than an executor bean so Spring Boot's own
+ * {@code applicationTaskExecutor} auto-configuration does not back off.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${wallet.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Bean
+    public HttpClient outboundHttpClient() {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(virtualThreads
+                        ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-out-", 0).factory())
+                        : Executors.newCachedThreadPool(Thread.ofPlatform().name("http-out-", 0).daemon().factory()))
+                .build();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+}
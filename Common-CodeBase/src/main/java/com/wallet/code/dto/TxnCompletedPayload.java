@@ -1,5 +1,8 @@
 package com.wallet.code.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.wallet.code.money.MoneyJson;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -14,7 +17,9 @@ public class TxnCompletedPayload {
     private String requestId; // correlation id = txnId (UUID)
 
     // 👇 Add these so wallet-service can update balances
-    private Double amount;    // amount involved in the txn
+    @JsonSerialize(using = MoneyJson.RupeesSerializer.class)
+    @JsonDeserialize(using = MoneyJson.RupeesDeserializer.class)
+    private long amount;      // amount involved in the txn, in paise
     private Long fromUserId;  // payer
     private Long toUserId;    // payee
 }
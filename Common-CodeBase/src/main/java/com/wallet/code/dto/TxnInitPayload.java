@@ -1,5 +1,8 @@
 package com.wallet.code.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.wallet.code.money.MoneyJson;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -12,6 +15,14 @@ public class TxnInitPayload {
     private Long id;
     private Long fromUserId;
     private Long toUserId;
-    private Double amount;
+    @JsonSerialize(using = MoneyJson.RupeesSerializer.class)
+    @JsonDeserialize(using = MoneyJson.RupeesDeserializer.class)
+    private long amount;      // paise
     private String requestId;
+    private Long expiresAt;   // epoch millis; wallet-service refuses the transfer after it (null: no deadline)
+
+    /** True once the transfer must no longer be applied: Transaction-service may time it out from then on. */
+    public boolean expiredAt(long epochMillis) {
+        return expiresAt != null && epochMillis > expiresAt;
+    }
 }
@@ -1,5 +1,8 @@
 package com.wallet.code.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.wallet.code.money.MoneyJson;
 import lombok.*;
 
 @Getter
@@ -10,6 +13,8 @@ import lombok.*;
 public class WalletUpdatedPayload {
 
     private String userEmail;
-    private Double balance;
+    @JsonSerialize(using = MoneyJson.RupeesSerializer.class)
+    @JsonDeserialize(using = MoneyJson.RupeesDeserializer.class)
+    private long balance;     // paise
     private String requestId;
 }
@@ -0,0 +1,25 @@
+package com.wallet.code.id;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.UUID;
+
+/**
+ * Stores a {@link UUID} attribute in a {@code BINARY(16)} column (declare it with
+ * {@code columnDefinition = "BINARY(16)"}): less than half the index footprint of the 36-character
+ * string, and with {@link UuidV7} ids the bytes sort in creation order.
+ */
+@Converter
+public class UuidBinaryConverter implements AttributeConverter<UUID, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(UUID id) {
+        return id == null ? null : UuidV7.toBytes(id);
+    }
+
+    @Override
+    public UUID convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : UuidV7.fromBytes(bytes);
+    }
+}
@@ -0,0 +1,100 @@
+package com.wallet.code.id;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered identifiers in the RFC 9562 UUIDv7 layout: 48 bits of Unix milliseconds, a 12-bit
+ * per-millisecond counter, then 62 random bits. IDs from one JVM are strictly increasing (the
+ * counter borrows the next millisecond when it overflows, and a clock step backwards keeps counting
+ * from the last ID), so rows keyed by them append to the right-hand edge of a B-tree index instead of
+ * landing on random pages. The canonical string form sorts the same way, so existing {@code txnId}
+ * VARCHAR columns keep working; {@link #toBytes} / {@link UuidBinaryConverter} give the 16-byte form.
+ * <p>
+ * The sequence is a single CAS on an {@link AtomicLong}. The random bits stay unguessable (txnIds
+ * appear in payment-page URLs) but come from a small stripe of DRBG instances picked by thread id,
+ * rather than one shared SecureRandom that every request thread queues on.
+ */
+public final class UuidV7 {
+
+    private static final int COUNTER_BITS = 12;
+
+    // (unixMillis << COUNTER_BITS) | counter of the last ID handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private static final SecureRandom[] RANDOMS = newRandoms();
+    private static final int RANDOM_MASK = RANDOMS.length - 1;
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long stamp = nextStamp();
+        long millis = stamp >>> COUNTER_BITS;
+        long counter = stamp & ((1L << COUNTER_BITS) - 1);
+        long msb = (millis << 16) | 0x7000L | counter;                                // ver 7
+        long lsb = (randomLong() & 0x3FFF_FFFF_FFFF_FFFFL) | 0x8000_0000_0000_0000L;  // variant 10
+        return new UUID(msb, lsb);
+    }
+
+    /** {@link #next()} in the canonical 36-character form, e.g. for {@code txnId} columns. */
+    public static String nextString() {
+        return next().toString();
+    }
+
+    /** Creation time (Unix milliseconds) encoded in a UUIDv7. */
+    public static long timestampOf(UUID id) {
+        if (id.version() != 7) {
+            throw new IllegalArgumentException("Not a UUIDv7: " + id);
+        }
+        return id.getMostSignificantBits() >>> 16;
+    }
+
+    /** Big-endian 16-byte form; byte order matches time order, so BINARY(16) indexes stay append-only. */
+    public static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Expected 16 bytes, got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    static long nextStamp() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        while (true) {
+            long last = LAST.get();
+            long next = now > last ? now : last + 1;
+            if (LAST.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static long randomLong() {
+        return RANDOMS[(int) Thread.currentThread().threadId() & RANDOM_MASK].nextLong();
+    }
+
+    private static SecureRandom[] newRandoms() {
+        // a power of two at least as large as the core count
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 2;
+        SecureRandom[] randoms = new SecureRandom[stripes];
+        for (int i = 0; i < stripes; i++) {
+            try {
+                randoms[i] = SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                randoms[i] = new SecureRandom();
+            }
+        }
+        return randoms;
+    }
+}
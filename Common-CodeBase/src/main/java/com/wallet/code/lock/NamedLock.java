@@ -0,0 +1,35 @@
+package com.wallet.code.lock;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * MySQL named lock ({@code GET_LOCK}) for background jobs that must run on one instance at a time.
+ * The lock belongs to the session that took it, so it is held on one connection for the whole run
+ * while the job itself keeps using the pool; if the instance dies, MySQL drops it with the session.
+ * Must not be called inside a transaction (the callback would get the transaction's connection).
+ */
+public final class NamedLock {
+
+    private NamedLock() {
+    }
+
+    /** Runs {@code job} unless another session holds {@code name}; returns whether it ran. */
+    public static boolean runExclusively(JdbcTemplate jdbcTemplate, String name, Runnable job) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+            Integer locked = session.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, name);
+            if (locked == null || locked != 1) {
+                return false;
+            }
+            try {
+                job.run();
+            } finally {
+                session.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, name);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+}
@@ -0,0 +1,137 @@
+package com.wallet.code.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money is carried as a primitive {@code long} count of paise (1/100 INR). This class only holds
+ * static helpers: arithmetic is plain {@code long} maths with overflow checks, and the
+ * parse/format methods work on caller-supplied buffers so the hot paths allocate nothing.
+ */
+public final class Money {
+
+    public static final long PAISE_PER_RUPEE = 100L;
+
+    // "-92233720368547758.08" is the longest value a long can format to
+    public static final int MAX_FORMATTED_LENGTH = 21;
+
+    private Money() {
+    }
+
+    /** Whole rupees to paise, e.g. {@code rupees(100)} for the initial wallet balance. */
+    public static long rupees(long wholeRupees) {
+        return Math.multiplyExact(wholeRupees, PAISE_PER_RUPEE);
+    }
+
+    /** Converts a legacy floating-point rupee amount, rounding half-up to the nearest paisa. */
+    public static long ofRupees(double rupees) {
+        if (Double.isNaN(rupees) || Double.isInfinite(rupees)) {
+            throw new IllegalArgumentException("Not a money amount: " + rupees);
+        }
+        double paise = rupees * PAISE_PER_RUPEE;
+        if (Math.abs(paise) >= 0x1p63) {
+            throw new ArithmeticException("Money overflow: " + rupees);
+        }
+        return Math.round(paise);
+    }
+
+    public static long ofDecimal(BigDecimal rupees) {
+        return rupees.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /** For display and for APIs that still speak floating-point rupees. */
+    public static double toRupees(long paise) {
+        return paise / (double) PAISE_PER_RUPEE;
+    }
+
+    public static BigDecimal toDecimal(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Parses a rupee amount such as {@code 12}, {@code -0.5} or {@code 1500.25}. More than two
+     * fraction digits are rejected rather than silently rounded.
+     */
+    public static long parseRupees(char[] buf, int offset, int length) {
+        if (length <= 0) {
+            throw new NumberFormatException("Empty money amount");
+        }
+        int i = offset;
+        int end = offset + length;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') {
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        for (; i < end && buf[i] != '.'; i++, digits++) {
+            units = Math.addExact(Math.multiplyExact(units, 10L), digit(buf, i, offset, length));
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < end) {
+            for (i++; i < end; i++, fractionDigits++) {
+                int d = digit(buf, i, offset, length);
+                if (fractionDigits >= 2) {
+                    if (d != 0) {
+                        throw new NumberFormatException("More than 2 decimals: " + new String(buf, offset, length));
+                    }
+                    continue;
+                }
+                fraction = fraction * 10 + d;
+            }
+        }
+        if (digits == 0 && fractionDigits == 0) {
+            throw new NumberFormatException("Not a money amount: " + new String(buf, offset, length));
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long paise = Math.addExact(Math.multiplyExact(units, PAISE_PER_RUPEE), fraction);
+        return negative ? -paise : paise;
+    }
+
+    /** Writes {@code paise} as rupees with exactly two decimals into {@code buf}; returns the length. */
+    public static int formatRupees(long paise, char[] buf) {
+        int pos = MAX_FORMATTED_LENGTH;
+        boolean negative = paise < 0;
+        // work on the negative range so Long.MIN_VALUE needs no special case
+        long rest = negative ? paise : -paise;
+        for (int i = 0; i < 2; i++) {
+            buf[--pos] = (char) ('0' - (rest % 10));
+            rest /= 10;
+        }
+        buf[--pos] = '.';
+        do {
+            buf[--pos] = (char) ('0' - (rest % 10));
+            rest /= 10;
+        } while (rest != 0);
+        if (negative) {
+            buf[--pos] = '-';
+        }
+        int length = MAX_FORMATTED_LENGTH - pos;
+        System.arraycopy(buf, pos, buf, 0, length);
+        return length;
+    }
+
+    public static String toString(long paise) {
+        char[] buf = new char[MAX_FORMATTED_LENGTH];
+        return new String(buf, 0, formatRupees(paise, buf));
+    }
+
+    private static int digit(char[] buf, int i, int offset, int length) {
+        char c = buf[i];
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Not a money amount: " + new String(buf, offset, length));
+        }
+        return c - '0';
+    }
+}
@@ -0,0 +1,168 @@
+package com.wallet.code.money;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Jackson codecs for {@code long} paise fields. On the wire amounts stay decimal rupee numbers
+ * (e.g. {@code 150.25}), exactly as the {@code Double} fields used to produce, so services and
+ * in-flight Kafka messages on either side of the change keep interoperating.
+ * <p>
+ * Jackson hands a property serializer the value as an {@code Object}, so {@link RupeesSerializer}
+ * on its own boxes every amount. Mappers that register {@link #module()} replace those properties
+ * with a writer that reads the primitive through the getter's method handle; the annotation stays
+ * as the (boxing) fallback for mappers without the module, and both write the same JSON.
+ */
+public final class MoneyJson {
+
+    private static final ThreadLocal<char[]> BUFFER =
+            ThreadLocal.withInitial(() -> new char[Money.MAX_FORMATTED_LENGTH]);
+
+    private MoneyJson() {
+    }
+
+    /** Serializes {@code long} paise properties annotated with {@link RupeesSerializer} without boxing. */
+    public static Module module() {
+        SimpleModule module = new SimpleModule("MoneyJson");
+        module.setSerializerModifier(new PaiseWriters());
+        return module;
+    }
+
+    public static void writeRupees(long paise, JsonGenerator gen) throws IOException {
+        char[] buf = BUFFER.get();
+        gen.writeNumber(buf, 0, Money.formatRupees(paise, buf));
+    }
+
+    public static class RupeesSerializer extends StdSerializer<Long> {
+
+        public RupeesSerializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long paise, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            writeRupees(paise, gen);
+        }
+    }
+
+    private static final class PaiseWriters extends BeanSerializerModifier {
+
+        private static final MethodType GETTER = MethodType.methodType(long.class, Object.class);
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                         List<BeanPropertyWriter> properties) {
+            for (int i = 0; i < properties.size(); i++) {
+                BeanPropertyWriter property = properties.get(i);
+                JsonSerializer<?> serializer = property.getSerializer();
+                if (serializer instanceof RupeesSerializer
+                        && property.getType().getRawClass() == long.class) {
+                    MethodHandle getter = getter(property.getMember());
+                    if (getter != null) {
+                        properties.set(i, new PaiseWriter(property, getter));
+                    }
+                }
+            }
+            return properties;
+        }
+
+        // null (keep the boxing writer) for field access or a getter this class cannot reach
+        private static MethodHandle getter(AnnotatedMember member) {
+            if (!(member instanceof AnnotatedMethod method)) {
+                return null;
+            }
+            try {
+                return MethodHandles.publicLookup().unreflect(method.getAnnotated()).asType(GETTER);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class PaiseWriter extends BeanPropertyWriter {
+
+        private final MethodHandle getter;   // (Object) -> long
+
+        PaiseWriter(BeanPropertyWriter base, MethodHandle getter) {
+            super(base);
+            this.getter = getter;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            long paise = paise(bean);
+            gen.writeFieldName(_name);
+            writeRupees(paise, gen);
+        }
+
+        @Override
+        public void serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            writeRupees(paise(bean), gen);
+        }
+
+        private long paise(Object bean) throws Exception {
+            try {
+                return (long) getter.invokeExact(bean);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    public static class RupeesDeserializer extends StdDeserializer<Long> {
+
+        public RupeesDeserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return Money.rupees(p.getLongValue());
+            }
+            if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_STRING) {
+                try {
+                    return Money.parseRupees(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+                } catch (NumberFormatException | ArithmeticException e) {
+                    // exponent notation or sub-paisa digits from legacy Double producers: slow path
+                    try {
+                        return Money.ofDecimal(new BigDecimal(p.getText().trim()));
+                    } catch (NumberFormatException | ArithmeticException ex) {
+                        return (Long) ctxt.handleWeirdStringValue(Long.class, p.getText(), ex.getMessage());
+                    }
+                }
+            }
+            return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+        }
+
+        // older producers sent "amount": null on failure events; the fields are primitive now
+        @Override
+        public Long getNullValue(DeserializationContext ctxt) {
+            return 0L;
+        }
+    }
+}
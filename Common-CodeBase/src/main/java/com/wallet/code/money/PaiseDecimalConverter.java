@@ -0,0 +1,25 @@
+package com.wallet.code.money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps a {@code long} paise attribute to an exact {@code DECIMAL(19,2)} rupee column, so the
+ * tables stay human-readable in rupees and SQL arithmetic on them is exact.
+ */
+@Converter
+public class PaiseDecimalConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long paise) {
+        return paise == null ? null : Money.toDecimal(paise);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal rupees) {
+        // rounding also absorbs the noise of values written while the column was still DOUBLE
+        return rupees == null ? null : Money.ofDecimal(rupees);
+    }
+}
@@ -0,0 +1,199 @@
+package com.wallet.code.partition;
+
+import com.wallet.code.id.UuidV7;
+import com.wallet.code.lock.NamedLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maintenance of a table that is RANGE COLUMNS-partitioned by month on a UTC DATETIME creation
+ * column: partitions {@code pYYYYMM} (rows created in that month) followed by a catch-all
+ * {@code pmax}. {@link #maintain} keeps {@code monthsAhead} empty future months split off
+ * {@code pmax}, and moves every partition older than {@code retentionMonths} into
+ * {@code archiveTable} (same columns, not partitioned), so the live table only holds recent months.
+ * <p>
+ * A partition is detached with {@code EXCHANGE PARTITION} against an empty staging table, which
+ * empties it in one metadata swap, so no row can change between being archived and being dropped.
+ * The staged rows are then copied into the archive with {@code INSERT IGNORE} and the staging table
+ * is emptied; a run that dies half way is finished by the next one. A table that has not been
+ * partitioned yet (the one-time migration is a DBA job) is left alone.
+ * <p>
+ * Every run holds a {@link NamedLock}, so only one instance does DDL at a time.
+ */
+public class MonthlyPartitions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonthlyPartitions.class);
+
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String PMAX = "pmax";
+
+    // rows are stamped after their UUIDv7 txnId is generated; the margin covers clock skew between nodes
+    private static final Duration ID_CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String stagingTable;
+    private final String archiveTable;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public MonthlyPartitions(JdbcTemplate jdbcTemplate, String table, String archiveTable,
+                             int monthsAhead, int retentionMonths) {
+        if (retentionMonths < 1) {
+            throw new IllegalArgumentException("retentionMonths must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.stagingTable = table + "_detach";
+        this.archiveTable = archiveTable;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Earliest creation time a row keyed by {@code txnId} can have: its UUIDv7 timestamp less a
+     * margin. Lookups add it as a lower bound so MySQL prunes every older partition. Null when
+     * {@code txnId} is not a UUIDv7 (rows from before the switch), i.e. no bound.
+     */
+    public static Instant createdNotBefore(String txnId) {
+        try {
+            UUID id = UUID.fromString(txnId);
+            return id.version() == 7 ? Instant.ofEpochMilli(UuidV7.timestampOf(id)).minus(ID_CLOCK_SKEW) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Adds missing future months and archives expired ones; skipped if another instance is at it. */
+    public void maintain() {
+        NamedLock.runExclusively(jdbcTemplate, "partitions:" + table, () -> run(jdbcTemplate));
+    }
+
+    private void run(JdbcTemplate jdbc) {
+        List<Partition> partitions = partitionsOf(jdbc, table);
+        if (partitions.isEmpty()) {
+            LOGGER.warn("`{}` is not partitioned; run its partitioning migration to enable monthly partitions", table);
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        addFutureMonths(jdbc, partitions, current.plusMonths(monthsAhead));
+        detachBefore(jdbc, partitions, current.minusMonths(retentionMonths - 1L));
+    }
+
+    private void addFutureMonths(JdbcTemplate jdbc, List<Partition> partitions, YearMonth through) {
+        if (partitions.stream().noneMatch(p -> PMAX.equals(p.name()))) {
+            LOGGER.warn("`{}` has no {} partition; cannot add future months", table, PMAX);
+            return;
+        }
+        // months can only be split off the top: start after the highest bounded partition
+        YearMonth next = partitions.stream()
+                .filter(p -> p.upperBound() != null)
+                .map(p -> YearMonth.from(p.upperBound()))
+                .max(YearMonth::compareTo)
+                .orElse(YearMonth.now(ZoneOffset.UTC));
+        List<String> added = new ArrayList<>();
+        StringBuilder ddl = new StringBuilder();
+        for (YearMonth month = next; !month.isAfter(through); month = month.plusMonths(1)) {
+            ddl.append("PARTITION ").append(NAME.format(month.atDay(1)))
+                    .append(" VALUES LESS THAN ('").append(BOUND.format(month.plusMonths(1).atDay(1).atStartOfDay())).append("'), ");
+            added.add(NAME.format(month.atDay(1)));
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        jdbc.execute("ALTER TABLE `" + table + "` REORGANIZE PARTITION " + PMAX + " INTO ("
+                + ddl + "PARTITION " + PMAX + " VALUES LESS THAN (MAXVALUE))");
+        LOGGER.info("Added partitions {} to `{}`", added, table);
+    }
+
+    private void detachBefore(JdbcTemplate jdbc, List<Partition> partitions, YearMonth oldestKept) {
+        LocalDateTime keepFrom = oldestKept.atDay(1).atStartOfDay();
+        List<Partition> expired = partitions.stream()
+                .filter(p -> p.upperBound() != null && !p.upperBound().isAfter(keepFrom))
+                .toList();
+        if (expired.isEmpty() && !tableExists(jdbc, stagingTable)) {
+            return;
+        }
+
+        if (tableExists(jdbc, stagingTable)) {
+            drainStaging(jdbc);          // left over from an interrupted run
+        }
+        for (Partition partition : expired) {
+            recreateStaging(jdbc);
+            jdbc.execute("ALTER TABLE `" + table + "` EXCHANGE PARTITION " + partition.name()
+                    + " WITH TABLE `" + stagingTable + "`");
+            int archived = drainStaging(jdbc);
+            jdbc.execute("ALTER TABLE `" + table + "` DROP PARTITION " + partition.name());
+            LOGGER.info("Detached partition {} of `{}`: {} row(s) moved to `{}`", partition.name(), table, archived, archiveTable);
+        }
+        jdbc.execute("DROP TABLE IF EXISTS `" + stagingTable + "`");
+    }
+
+    // rebuilt every time so it always matches the live table's current columns and indexes
+    private void recreateStaging(JdbcTemplate jdbc) {
+        jdbc.execute("DROP TABLE IF EXISTS `" + stagingTable + "`");
+        jdbc.execute("CREATE TABLE `" + stagingTable + "` LIKE `" + table + "`");
+        jdbc.execute("ALTER TABLE `" + stagingTable + "` REMOVE PARTITIONING");
+        if (!tableExists(jdbc, archiveTable)) {
+            jdbc.execute("CREATE TABLE `" + archiveTable + "` LIKE `" + stagingTable + "`");
+        }
+    }
+
+    private int drainStaging(JdbcTemplate jdbc) {
+        // columns added to the live table after the archive was created are not archived
+        List<String> columns = jdbc.queryForList(
+                "SELECT a.COLUMN_NAME FROM information_schema.COLUMNS a JOIN information_schema.COLUMNS s "
+                        + "ON s.TABLE_SCHEMA = a.TABLE_SCHEMA AND s.COLUMN_NAME = a.COLUMN_NAME AND s.TABLE_NAME = ? "
+                        + "WHERE a.TABLE_SCHEMA = DATABASE() AND a.TABLE_NAME = ? ORDER BY a.ORDINAL_POSITION",
+                String.class, stagingTable, archiveTable);
+        if (columns.isEmpty()) {
+            return 0;
+        }
+        String list = "`" + String.join("`, `", columns) + "`";
+        int copied = jdbc.update("INSERT IGNORE INTO `" + archiveTable + "` (" + list + ") SELECT " + list
+                + " FROM `" + stagingTable + "`");
+        jdbc.execute("TRUNCATE TABLE `" + stagingTable + "`");
+        return copied;
+    }
+
+    private static List<Partition> partitionsOf(JdbcTemplate jdbc, String table) {
+        return jdbc.query(
+                "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION",
+                (rs, i) -> new Partition(rs.getString(1), parseBound(rs.getString(2))), table);
+    }
+
+    private static boolean tableExists(JdbcTemplate jdbc, String table) {
+        Integer count = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    // RANGE COLUMNS descriptions look like '2026-11-01 00:00:00' (quoted) or MAXVALUE
+    private static LocalDateTime parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        String value = description.replace("'", "").trim();
+        return value.length() == 10
+                ? LocalDateTime.parse(value + " 00:00:00", BOUND)
+                : LocalDateTime.parse(value.substring(0, 19), BOUND);
+    }
+
+    private record Partition(String name, LocalDateTime upperBound) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.wallet.code.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.wallet.code.dto.WalletUpdatedPayload;
+import com.wallet.code.money.Money;
+import com.wallet.code.money.MoneyJson;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a wallet-updated event, per amount representation:
+ * <ul>
+ *   <li>{@code legacyDouble}: the {@code Double balance} field the payloads used to carry.</li>
+ *   <li>{@code boxedPaise}: {@code long} paise through {@link MoneyJson.RupeesSerializer} alone,
+ *       which Jackson calls with a boxed {@code Long}.</li>
+ *   <li>{@code primitivePaise}: the same payload on a mapper with {@link MoneyJson#module()}.</li>
+ * </ul>
+ * Compare allocation with the GC profiler:
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main MoneyJsonBenchmark -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyJsonBenchmark {
+
+    /** The payload as it was before amounts became paise. */
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class LegacyWalletUpdated {
+        private String userEmail;
+        private Double balance;
+        private String requestId;
+    }
+
+    // ObjectWriter closes its target, which OutputStream.nullOutputStream() would then refuse
+    private final OutputStream sink = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    private ObjectWriter plain;
+    private ObjectWriter withModule;
+    private WalletUpdatedPayload payload;
+    private LegacyWalletUpdated legacy;
+    private long balance;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plain = new ObjectMapper().writer();
+        withModule = new ObjectMapper().registerModule(MoneyJson.module()).writer();
+        payload = new WalletUpdatedPayload("user@example.com", 0L, "0190f7c2-5b1e-7c3a-9d4e-2f6a8b0c1d2e");
+        legacy = new LegacyWalletUpdated(payload.getUserEmail(), 0.0, payload.getRequestId());
+    }
+
+    // a new balance per event, outside the Long cache, as a live wallet would have
+    private long nextBalance() {
+        balance = Money.add(balance, 12_345L);
+        return balance;
+    }
+
+    @Benchmark
+    public void legacyDouble() throws IOException {
+        legacy.setBalance(Money.toRupees(nextBalance()));
+        plain.writeValue(sink, legacy);
+    }
+
+    @Benchmark
+    public void boxedPaise() throws IOException {
+        payload.setBalance(nextBalance());
+        plain.writeValue(sink, payload);
+    }
+
+    @Benchmark
+    public void primitivePaise() throws IOException {
+        payload.setBalance(nextBalance());
+        withModule.writeValue(sink, payload);
+    }
+}
@@ -0,0 +1,44 @@
+package com.wallet.code.bench;
+
+import com.wallet.code.id.UuidV7;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * txnId generation under contention: {@link UuidV7} (one CAS plus a striped DRBG) against
+ * {@code UUID.randomUUID()} (one shared SecureRandom). Insert throughput and index size are
+ * measured by {@code TxnIdInsertBenchmark} in Transaction-service.
+ * Run from the test classpath: {@code java -cp <test classpath> org.openjdk.jmh.Main TxnIdGenerateBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TxnIdGenerateBenchmark {
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String uuidV7() {
+        return UuidV7.nextString();
+    }
+
+    @Benchmark
+    public byte[] uuidV7Binary() {
+        return UuidV7.toBytes(UuidV7.next());
+    }
+}
@@ -0,0 +1,43 @@
+package com.wallet.code.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThreadingEnvironmentPostProcessorTest {
+
+    private final ThreadingEnvironmentPostProcessor postProcessor = new ThreadingEnvironmentPostProcessor();
+
+    @Test
+    void sharedDefaultsComeLastSoTheServiceWins() {
+        StandardEnvironment environment = environment(Map.of("spring.threads.virtual.enabled", "true"));
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getPropertySources().contains("walletThreads")).isTrue();
+        assertThat(environment.getProperty("spring.threads.virtual.enabled")).isEqualTo("true");
+        assertThat(environment.getProperty("wallet.threads.trace-pinned")).isEqualTo("short");
+        assertThat(environment.getProperty("spring.main.keep-alive")).isNull();
+    }
+
+    @Test
+    void appsCanOptOutOfTheSharedDefaults() {
+        StandardEnvironment environment = environment(Map.of(ThreadingEnvironmentPostProcessor.ENABLED, "false"));
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getPropertySources().contains("walletThreads")).isFalse();
+        assertThat(environment.getProperty("wallet.threads.trace-pinned")).isNull();
+    }
+
+    private static StandardEnvironment environment(Map<String, Object> applicationProperties) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("application", applicationProperties));
+        return environment;
+    }
+}
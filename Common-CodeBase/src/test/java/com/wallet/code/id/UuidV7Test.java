@@ -0,0 +1,95 @@
+package com.wallet.code.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UuidV7Test {
+
+    @Test
+    void carriesVersionVariantAndCreationTime() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        // the counter may borrow a few milliseconds ahead after a burst
+        assertThat(UuidV7.timestampOf(id)).isBetween(before, after + 1_000);
+    }
+
+    @Test
+    void idsFromManyThreadsAreUniqueAndIncreasingPerThread() throws Exception {
+        int threads = 8;
+        int perThread = 100_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    List<UUID> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(UuidV7.next());
+                    }
+                    return ids;
+                }));
+            }
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                List<UUID> ids = future.get();
+                for (int i = 1; i < ids.size(); i++) {
+                    // string order is what the txnId VARCHAR index sees
+                    assertThat(ids.get(i).toString()).isGreaterThan(ids.get(i - 1).toString());
+                    assertThat(Arrays.compareUnsigned(UuidV7.toBytes(ids.get(i)), UuidV7.toBytes(ids.get(i - 1)))).isPositive();
+                }
+                all.addAll(ids);
+            }
+            assertThat(all).hasSize(threads * perThread);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void counterOverflowBorrowsTheNextMillisecond() {
+        long first = UuidV7.nextStamp();
+        long last = first;
+        // more than one millisecond's worth of counter values
+        for (int i = 0; i < 10_000; i++) {
+            long next = UuidV7.nextStamp();
+            assertThat(next).isGreaterThan(last);
+            last = next;
+        }
+        assertThat(last >>> 12).isGreaterThan(first >>> 12);
+    }
+
+    @Test
+    void bytesRoundTripAndSortInCreationOrder() {
+        UUID earlier = UuidV7.next();
+        UUID later = UuidV7.next();
+        byte[] earlierBytes = UuidV7.toBytes(earlier);
+        byte[] laterBytes = UuidV7.toBytes(later);
+
+        assertThat(UuidV7.fromBytes(earlierBytes)).isEqualTo(earlier);
+        assertThat(new UuidBinaryConverter().convertToEntityAttribute(
+                new UuidBinaryConverter().convertToDatabaseColumn(later))).isEqualTo(later);
+        assertThat(Arrays.compareUnsigned(earlierBytes, laterBytes)).isNegative();
+    }
+
+    @Test
+    void rejectsForeignIds() {
+        assertThatThrownBy(() -> UuidV7.timestampOf(UUID.randomUUID())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UuidV7.fromBytes(new byte[8])).isInstanceOf(IllegalArgumentException.class);
+    }
+}
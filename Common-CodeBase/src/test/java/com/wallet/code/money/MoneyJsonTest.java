@@ -0,0 +1,47 @@
+package com.wallet.code.money;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.code.dto.TxnCompletedPayload;
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.dto.WalletUpdatedPayload;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyJsonTest {
+
+    private final ObjectMapper plain = new ObjectMapper();
+    private final ObjectMapper withModule = new ObjectMapper().registerModule(MoneyJson.module());
+
+    @Test
+    void moduleWritesTheSameJsonAsTheAnnotatedSerializer() throws Exception {
+        for (long paise : List.of(0L, 5L, -5L, 150_025L, -150_025L, Long.MAX_VALUE, Long.MIN_VALUE)) {
+            WalletUpdatedPayload payload = new WalletUpdatedPayload("a@example.com", paise, "req-1");
+            assertThat(withModule.writeValueAsString(payload)).isEqualTo(plain.writeValueAsString(payload));
+        }
+    }
+
+    @Test
+    void amountsGoOutAsDecimalRupeesAndComeBackAsPaise() throws Exception {
+        TxnInitPayload txn = new TxnInitPayload();
+        txn.setId(7L);
+        txn.setAmount(150_025L);
+        txn.setRequestId("req-2");
+
+        String json = withModule.writeValueAsString(txn);
+
+        assertThat(json).contains("\"amount\":1500.25");
+        assertThat(withModule.readValue(json, TxnInitPayload.class).getAmount()).isEqualTo(150_025L);
+    }
+
+    @Test
+    void readsLegacyDoubleAndNullAmounts() throws Exception {
+        TxnCompletedPayload legacy = withModule.readValue("{\"amount\":12.5,\"success\":true}", TxnCompletedPayload.class);
+        TxnCompletedPayload failed = withModule.readValue("{\"amount\":null,\"success\":false}", TxnCompletedPayload.class);
+
+        assertThat(legacy.getAmount()).isEqualTo(1_250L);
+        assertThat(failed.getAmount()).isZero();
+    }
+}
@@ -3,9 +3,11 @@ package com.wallet.transaction;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan({"com.wallet.transaction","com.wallet.code"})
+@EnableScheduling
 public class TransactionApp {
     public static void main(String[] args) {
         SpringApplication.run(TransactionApp.class, args);
@@ -6,6 +6,8 @@ import com.wallet.code.dto.TxnCompletedPayload;
 import com.wallet.transaction.model.Transaction;
 import com.wallet.transaction.model.TxnStatusEnum;
 import com.wallet.transaction.repository.TransactionRepo;
+import com.wallet.transaction.service.TransactionService;
+import com.wallet.transaction.service.TxnStatusCache;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +16,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.KafkaListener;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Configuration
@@ -21,13 +25,21 @@ public class TransactionConfigKafkaConsumer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionConfigKafkaConsumer.class);
 
-
-    private ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @Autowired
     private TransactionRepo transactionRepo;
 
-    @KafkaListener(topics = "${txt.completed.topic}", groupId = "txn")
+    @Autowired
+    private TxnStatusCache txnStatusCache;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    // replaced by consumeTransactionCompletedBatch when txn.completed.batch.enabled=true
+    @KafkaListener(topics = "${txt.completed.topic}", groupId = "txn",
+            autoStartup = "#{!${txn.completed.batch.enabled:false}}")
     public void consumeTransactionCompleted(ConsumerRecord<String, String> payload) throws JsonProcessingException {
         // guard nulls
         if (payload == null || payload.value() == null) {
@@ -49,6 +61,11 @@ public class TransactionConfigKafkaConsumer {
             }
 
             Transaction transaction = maybeTxn.get();
+            if (transaction.getStatus().isTerminal()) {
+                // wallet-service re-sends completions on redelivery; the first one wins
+                LOGGER.info("txnId={} already {}, ignoring completion", transaction.getTxnId(), transaction.getStatus());
+                return;
+            }
 
             // avoid Boolean unboxing NPE
             if (Boolean.TRUE.equals(txnCompletedPayload.getSuccess())) {
@@ -59,8 +76,40 @@ public class TransactionConfigKafkaConsumer {
             }
 
             transactionRepo.save(transaction);
+            txnStatusCache.put(transaction.getTxnId(), transaction.getStatus(), transaction.getReason());
         } finally {
             MDC.clear();
         }
     }
+
+    @KafkaListener(topics = "${txt.completed.topic}", groupId = "txn", batch = "true",
+            autoStartup = "#{${txn.completed.batch.enabled:false}}",
+            properties = {
+                    "max.poll.records=${txn.completed.batch.max-size:500}",
+                    "fetch.max.wait.ms=${txn.completed.batch.max-linger-ms:20}"
+            })
+    public void consumeTransactionCompletedBatch(List<ConsumerRecord<String, String>> records) {
+        List<TxnCompletedPayload> completions = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            if (record.value() == null) {
+                continue;
+            }
+            try {
+                TxnCompletedPayload completion = objectMapper.readValue(record.value(), TxnCompletedPayload.class);
+                if (completion.getId() != null) {
+                    completions.add(completion);
+                } else {
+                    LOGGER.error("Completed event without transaction id, skipping. requestId={}", completion.getRequestId());
+                }
+            } catch (JsonProcessingException e) {
+                LOGGER.error("Failed to parse completed message, skipping. raw='{}'", record.value(), e);
+            }
+        }
+        if (completions.isEmpty()) {
+            return;
+        }
+        // a DB failure propagates so the container redelivers the whole poll; re-applying is a no-op
+        int updated = transactionService.applyCompletions(completions);
+        LOGGER.info("Completed {} transactions from {} events", updated, completions.size());
+    }
 }
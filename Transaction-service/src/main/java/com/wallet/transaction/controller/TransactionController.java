@@ -1,16 +1,24 @@
 package com.wallet.transaction.controller;
 
 import com.wallet.transaction.dto.TxnRequestDto;
+import com.wallet.transaction.service.BulkTransferService;
+import com.wallet.transaction.service.IdempotencyService;
+import com.wallet.transaction.service.TransactionHistoryService;
+import com.wallet.transaction.dto.TxnHistoryPageDto;
 import com.wallet.transaction.dto.TxnStatusDto;
 import com.wallet.transaction.service.TransactionService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.concurrent.ExecutionException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/transaction-service")
@@ -20,15 +28,65 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private BulkTransferService bulkTransferService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionHistoryService transactionHistoryService;
+
     @PostMapping("/transaction")
-    public ResponseEntity<String> initTransaction(@RequestBody @Valid TxnRequestDto txnRequestDto) throws ExecutionException, InterruptedException {
+    public ResponseEntity<String> initTransaction(@RequestBody @Valid TxnRequestDto txnRequestDto,
+                                                  @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         LOGGER.info("Starting Transaction :{}", txnRequestDto);
+        if (idempotencyKey != null) {
+            // a retry with the same key gets the original txnId back; nothing is re-published
+            IdempotencyService.Outcome outcome = idempotencyService.initTransaction(idempotencyKey, txnRequestDto);
+            return ResponseEntity.accepted()
+                    .header("Idempotent-Replayed", String.valueOf(outcome.replayed()))
+                    .body(outcome.txnId());
+        }
         String txnid=transactionService.initTransaction(txnRequestDto);
         return ResponseEntity.accepted().body(txnid);
     }
 
+    // NDJSON in (one transfer per line), NDJSON out: {"line":n,"txnId":..} or {"line":n,"error":..} per line, streamed per chunk
+    @PostMapping("/transactions/batch")
+    public void submitBatch(InputStream body, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        bulkTransferService.submit(body, response.getOutputStream());
+    }
+
     @GetMapping("/status/{txnId}")
     public ResponseEntity<TxnStatusDto> getTxnStatus(@PathVariable String txnId) {
         return ResponseEntity.ok(transactionService.getStatus(txnId));
     }
+
+    // long-poll: answers as soon as the transaction is SUCCESS/FAILED (completions on other nodes are
+    // seen within txn.status.await-recheck-ms), or with the current status after waitMs
+    @GetMapping(value = "/status/{txnId}", params = "waitMs")
+    public DeferredResult<ResponseEntity<TxnStatusDto>> awaitTxnStatus(@PathVariable String txnId,
+                                                                       @RequestParam long waitMs) {
+        CompletableFuture<TxnStatusDto> terminal = transactionService.awaitStatus(txnId);
+        long timeout = Math.max(1L, Math.min(waitMs, transactionService.maxWaitMs()));
+        DeferredResult<ResponseEntity<TxnStatusDto>> result = new DeferredResult<>(timeout);
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(transactionService.getStatus(txnId))));
+        // answered, timed out or the client went away: the waiter must not stay parked
+        result.onError(e -> transactionService.cancelAwait(txnId, terminal));
+        result.onCompletion(() -> transactionService.cancelAwait(txnId, terminal));
+        terminal.thenAccept(status -> result.setResult(ResponseEntity.ok(status)));
+        return result;
+    }
+
+    // sent and received transfers, newest first; follow nextCursor for older pages
+    @GetMapping("/history/{userId}")
+    public ResponseEntity<TxnHistoryPageDto> getHistory(@PathVariable Long userId,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(transactionHistoryService.getHistory(userId, limit, cursor));
+    }
 }
@@ -0,0 +1,19 @@
+package com.wallet.transaction.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** One line of the bulk transfer response: the submitted line number and either its txnId or why it was rejected. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchTransferResultDto {
+    private long line;
+    private String txnId;
+    private String error;
+}
@@ -0,0 +1,29 @@
+package com.wallet.transaction.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.wallet.transaction.model.TxnStatusEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * One sent or received transfer in a user's history. Built directly by the history queries
+ * ({@code select new ...}), so the listing never hydrates Transaction entities.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TxnHistoryItemDto {
+    @JsonIgnore
+    private Long id;                    // keyset tie-breaker, not part of the API
+    private String txnId;
+    private Long fromUserId;
+    private Long toUserId;
+    private Double amount;
+    private TxnStatusEnum status;
+    private OffsetDateTime dateCreated;
+}
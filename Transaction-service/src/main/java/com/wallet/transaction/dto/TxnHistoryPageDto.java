@@ -0,0 +1,18 @@
+package com.wallet.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/** A page of history, newest first; pass {@code nextCursor} back as {@code ?cursor=} for the next one (null on the last page). */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TxnHistoryPageDto {
+    private List<TxnHistoryItemDto> items;
+    private String nextCursor;
+}
@@ -0,0 +1,52 @@
+package com.wallet.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * An Idempotency-Key used for POST /transaction, with what it was used for. Kept out of the
+ * month-partitioned {@code transaction} table: MySQL only enforces a unique key on a partitioned
+ * table if it includes the partitioning column, which would make the key unique per instant rather
+ * than per payer. Rows are purged with the partitions they refer to.
+ */
+@Entity
+@Table(name = "txn_idempotency_key", indexes = @Index(name = "idx_idempotency_created", columnList = "createdAt"))
+@IdClass(IdempotencyKey.Key.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    private Long fromUserId;
+
+    @Id
+    @Column(length = 64)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String txnId;
+
+    // fingerprint of the original request; a retry must repeat it
+    @Column(nullable = false)
+    private Long toUserId;
+
+    @Column(nullable = false)
+    private Long amountPaise;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Long fromUserId;
+        private String idempotencyKey;
+    }
+}
@@ -0,0 +1,39 @@
+package com.wallet.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A Kafka record waiting to be published, written in the same DB transaction as the change it
+ * announces. {@link com.wallet.transaction.service.OutboxRelay} publishes pending rows in id order
+ * and stamps {@code sentAt}; sent rows are deleted after the retention period.
+ */
+@Entity
+@Table(name = "txn_outbox", indexes = @Index(name = "idx_outbox_pending", columnList = "sentAt, id"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String topic;
+
+    @Column(nullable = false, length = 64)
+    private String messageKey;      // Kafka key; records with the same key keep their order
+
+    @Column(nullable = false, length = 4000)
+    private String payload;         // JSON
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant sentAt;         // null until the broker acknowledged it
+}
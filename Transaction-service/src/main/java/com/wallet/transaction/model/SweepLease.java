@@ -0,0 +1,30 @@
+package com.wallet.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Ownership of one partition (id mod partitions) of the stuck-PENDING sweep. A node sweeps a
+ * partition only while it holds an unexpired lease on it; see
+ * {@link com.wallet.transaction.service.PendingSweeper}.
+ */
+@Entity
+@Table(name = "txn_sweep_lease")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SweepLease {
+
+    @Id
+    private Integer partitionNo;
+
+    @Column(length = 64)
+    private String owner;           // null when released
+
+    @Column(nullable = false)
+    private Instant leaseUntil;
+}
@@ -0,0 +1,24 @@
+package com.wallet.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/** Heartbeat of a running sweeper; the live nodes split the {@link SweepLease} partitions between them. */
+@Entity
+@Table(name = "txn_sweeper_node")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SweeperNode {
+
+    @Id
+    @Column(length = 64)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Instant aliveUntil;
+}
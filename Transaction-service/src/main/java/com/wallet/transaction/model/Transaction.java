@@ -10,6 +10,15 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.OffsetDateTime;
 
 @Entity
+@Table(indexes = {
+        // unique keys of a month-partitioned table must include the partitioning column (dateCreated)
+        @Index(name = "uk_txn_txn_id", columnList = "txnId, dateCreated", unique = true),
+        // keyset scans for GET /history: one user's rows, already in (dateCreated, id) order
+        @Index(name = "idx_txn_from_created", columnList = "fromUserId, dateCreated, id"),
+        @Index(name = "idx_txn_to_created", columnList = "toUserId, dateCreated, id"),
+        // PendingSweeper: expired PENDING rows, oldest first
+        @Index(name = "idx_txn_status_created", columnList = "status, dateCreated, id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,7 +28,7 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String txnId;
 
     @Column(nullable = false)
@@ -39,6 +48,15 @@ public class Transaction {
 
     private String comment;
 
+    // null on rows from before the column: those are all transfers
+    @Column(length = 16)
+    @Enumerated(EnumType.STRING)
+    private TxnOriginEnum origin;
+
+    // client-supplied Idempotency-Key, null for requests sent without one; uniqueness is enforced in txn_idempotency_key
+    @Column(length = 64)
+    private String idempotencyKey;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private OffsetDateTime dateCreated;
@@ -0,0 +1,28 @@
+package com.wallet.transaction.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One row per txnId ever used, written in the same DB transaction as its {@link Transaction}. Once
+ * {@code transaction} is month-partitioned its unique key has to include dateCreated, so it no
+ * longer stops a second row with the same txnId; this table's primary key does, before and after
+ * the migration. Never purged, so an archived txnId cannot come back either.
+ */
+@Entity
+@Table(name = "txn_id_claim")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TxnIdClaim {
+
+    @Id
+    private String txnId;
+
+    @Column(nullable = false)
+    private Instant claimedAt;
+}
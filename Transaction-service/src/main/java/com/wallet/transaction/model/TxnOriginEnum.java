@@ -0,0 +1,6 @@
+package com.wallet.transaction.model;
+
+/** Who drives a transaction to its end: wallet-service (TXN-INIT) or the payment gateway (webhooks). */
+public enum TxnOriginEnum {
+    TRANSFER, PG
+}
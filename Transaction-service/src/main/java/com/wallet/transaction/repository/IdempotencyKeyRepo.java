@@ -0,0 +1,9 @@
+package com.wallet.transaction.repository;
+
+import com.wallet.transaction.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdempotencyKeyRepo extends JpaRepository<IdempotencyKey, IdempotencyKey.Key> {
+}
@@ -1,11 +1,79 @@
 package com.wallet.transaction.repository;
 
 import com.wallet.transaction.model.Transaction;
+import com.wallet.transaction.model.TxnStatusEnum;
+import jakarta.persistence.LockModeType;
+import com.wallet.transaction.dto.TxnHistoryItemDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface TransactionRepo  extends JpaRepository<Transaction,Long> {
 
     Transaction findByTxnId(String txnId);
+
+    /** Locks the rows (SELECT ... FOR UPDATE) so a batch's status decisions hold until it commits. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Transaction> findForUpdateByTxnIdIn(Collection<String> txnIds);
+
+    /** {@link #findByTxnId} with a lower bound on dateCreated, so MySQL skips the older month partitions. */
+    Transaction findByTxnIdAndDateCreatedGreaterThanEqual(String txnId, OffsetDateTime notBefore);
+
+    /**
+     * Moves still-PENDING rows to a terminal status in one statement; rows that are already terminal
+     * are left alone. Bulk updates bypass @UpdateTimestamp, so lastUpdated is set here.
+     */
+    @Modifying
+    @Query("update Transaction t set t.status = :status, t.reason = :reason, t.lastUpdated = :now "
+            + "where t.id in :ids and t.status = com.wallet.transaction.model.TxnStatusEnum.PENDING")
+    int completePending(@Param("ids") Collection<Long> ids, @Param("status") TxnStatusEnum status,
+                        @Param("reason") String reason, @Param("now") OffsetDateTime now);
+
+    /** Bumps lastUpdated of still-PENDING rows, so the sweeper does not re-drive them again too soon. */
+    @Modifying
+    @Query("update Transaction t set t.lastUpdated = :now "
+            + "where t.id in :ids and t.status = com.wallet.transaction.model.TxnStatusEnum.PENDING")
+    int touchPending(@Param("ids") Collection<Long> ids, @Param("now") OffsetDateTime now);
+
+    /** [txnId, status, reason] per row, for refreshing the status cache after a bulk update. */
+    @Query("select t.txnId, t.status, t.reason from Transaction t where t.id in :ids")
+    List<Object[]> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** [txnId, status, reason] per row, for re-checking long-polls parked on these txnIds. */
+    @Query("select t.txnId, t.status, t.reason from Transaction t where t.txnId in :txnIds")
+    List<Object[]> findStatusesByTxnIdIn(@Param("txnIds") Collection<String> txnIds);
+
+    /** {@link #findStatusesByTxnIdIn} with a lower bound on dateCreated, so MySQL skips the older month partitions. */
+    @Query("select t.txnId, t.status, t.reason from Transaction t where t.txnId in :txnIds and t.dateCreated >= :notBefore")
+    List<Object[]> findStatusesByTxnIdInCreatedSince(@Param("txnIds") Collection<String> txnIds,
+                                                      @Param("notBefore") OffsetDateTime notBefore);
+
+    /**
+     * Transfers sent by {@code userId} older than the (before, beforeId) cursor, newest first. The
+     * cursor predicate is spelled out with OR rather than a row comparison so MySQL can range-scan
+     * idx_txn_from_created and stop after {@code limit} rows.
+     */
+    @Query("select new com.wallet.transaction.dto.TxnHistoryItemDto(t.id, t.txnId, t.fromUserId, t.toUserId, t.amount, t.status, t.dateCreated) "
+            + "from Transaction t where t.fromUserId = :userId "
+            + "and (t.dateCreated < :before or (t.dateCreated = :before and t.id < :beforeId)) "
+            + "order by t.dateCreated desc, t.id desc")
+    List<TxnHistoryItemDto> findSentBefore(@Param("userId") Long userId, @Param("before") OffsetDateTime before,
+                                           @Param("beforeId") Long beforeId, Limit limit);
+
+    /** {@link #findSentBefore} for transfers received by {@code userId}, on idx_txn_to_created. */
+    @Query("select new com.wallet.transaction.dto.TxnHistoryItemDto(t.id, t.txnId, t.fromUserId, t.toUserId, t.amount, t.status, t.dateCreated) "
+            + "from Transaction t where t.toUserId = :userId "
+            + "and (t.dateCreated < :before or (t.dateCreated = :before and t.id < :beforeId)) "
+            + "order by t.dateCreated desc, t.id desc")
+    List<TxnHistoryItemDto> findReceivedBefore(@Param("userId") Long userId, @Param("before") OffsetDateTime before,
+                                               @Param("beforeId") Long beforeId, Limit limit);
 }
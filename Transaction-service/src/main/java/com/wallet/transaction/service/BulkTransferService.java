@@ -0,0 +1,280 @@
+package com.wallet.transaction.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.id.UuidV7;
+import com.wallet.code.money.Money;
+import com.wallet.transaction.dto.BatchTransferResultDto;
+import com.wallet.transaction.dto.TxnRequestDto;
+import com.wallet.transaction.model.TxnOriginEnum;
+import com.wallet.transaction.model.TxnStatusEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Bulk transfer submission: reads NDJSON transfers (one {@link TxnRequestDto} per line) as they
+ * arrive, and every {@code chunk-size} lines inserts the valid ones with one JDBC batch into
+ * {@code transaction} plus one into the outbox, in a single DB transaction. The outbox relay then
+ * publishes them to TXN-INIT in pipelined producer batches. After each chunk commits, its per-line
+ * results are written and flushed, so memory stays bounded by one chunk however long the stream is.
+ */
+@Service
+public class BulkTransferService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkTransferService.class);
+
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO `transaction` (txn_id, from_user_id, to_user_id, amount, status, comment, date_created, last_updated, origin)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // readLine outcomes
+    private static final int EOF = -1;
+    private static final int OK = 0;
+    private static final int TOO_LONG = 1;
+
+    private static final int MAX_COMMENT_CHARS = 255;     // transaction.comment is a VARCHAR(255)
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private TxnStatusCache txnStatusCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TxnIdClaims txnIdClaims;
+
+    @Value("${txt.init.topic}")
+    private String txninittopic;
+
+    @Value("${txn.transfer.expire-after-ms:3000000}")
+    private long expireAfterMs;
+
+    @Value("${txn.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${txn.bulk.max-line-chars:4096}")
+    private int maxLineChars;
+
+    /** Consumes the whole request stream and writes one NDJSON result per non-blank input line. */
+    public void submit(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        StringBuilder line = new StringBuilder(256);
+        List<Item> chunk = new ArrayList<>(chunkSize);
+        long lineNo = 0;
+        long accepted = 0;
+        long rejected = 0;
+        int status;
+        while ((status = readLine(reader, line)) != EOF) {
+            lineNo++;
+            if (status == TOO_LONG) {
+                chunk.add(Item.rejected(lineNo, "line longer than " + maxLineChars + " characters"));
+            } else {
+                String json = line.toString();
+                if (json.isBlank()) {
+                    continue;
+                }
+                chunk.add(parse(lineNo, json));
+            }
+            if (chunk.size() == chunkSize) {
+                accepted += persist(chunk);
+                rejected += write(chunk, writer);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            accepted += persist(chunk);
+            rejected += write(chunk, writer);
+        }
+        writer.flush();
+        LOGGER.info("Bulk transfer submission: {} accepted, {} rejected", accepted, rejected);
+    }
+
+    private Item parse(long lineNo, String json) {
+        TxnRequestDto request;
+        try {
+            request = objectMapper.readValue(json, TxnRequestDto.class);
+        } catch (IOException e) {
+            return Item.rejected(lineNo, "malformed JSON");
+        }
+        if (request.getFromUserId() == null || request.getToUserId() == null || request.getAmount() == null) {
+            return Item.rejected(lineNo, "fromUserId, toUserId and amount are required");
+        }
+        if (request.getComment() != null && request.getComment().length() > MAX_COMMENT_CHARS) {
+            return Item.rejected(lineNo, "comment longer than " + MAX_COMMENT_CHARS + " characters");
+        }
+        if (request.getFromUserId().equals(request.getToUserId())) {
+            return Item.rejected(lineNo, "fromUserId and toUserId must differ");
+        }
+        long paise;
+        try {
+            paise = Money.ofRupees(request.getAmount());
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            return Item.rejected(lineNo, "invalid amount");
+        }
+        if (paise <= 0) {
+            return Item.rejected(lineNo, "amount must be > 0");
+        }
+        return new Item(lineNo, request, paise);
+    }
+
+    /** Inserts the chunk's valid items with their TXN-INIT outbox rows in one DB transaction. */
+    private int persist(List<Item> chunk) {
+        List<Item> valid = new ArrayList<>(chunk.size());
+        for (Item item : chunk) {
+            if (item.error == null) {
+                item.txnId = UuidV7.nextString();
+                valid.add(item);
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Timestamp now = Timestamp.from(Instant.now());
+                Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                txnIdClaims.claimAll(valid.stream().map(item -> item.txnId).toList());
+                KeyHolder keys = new GeneratedKeyHolder();
+                jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_TRANSACTION, new String[]{"id"}),
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                Item item = valid.get(i);
+                                ps.setString(1, item.txnId);
+                                ps.setLong(2, item.request.getFromUserId());
+                                ps.setLong(3, item.request.getToUserId());
+                                ps.setDouble(4, item.request.getAmount());
+                                ps.setString(5, TxnStatusEnum.PENDING.name());
+                                ps.setString(6, item.request.getComment());
+                                ps.setTimestamp(7, now, utc);
+                                ps.setTimestamp(8, now, utc);
+                                ps.setString(9, TxnOriginEnum.TRANSFER.name());
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return valid.size();
+                            }
+                        }, keys);
+
+                List<Map<String, Object>> ids = keys.getKeyList();
+                List<String> messageKeys = new ArrayList<>(valid.size());
+                List<TxnInitPayload> payloads = new ArrayList<>(valid.size());
+                for (int i = 0; i < valid.size(); i++) {
+                    Item item = valid.get(i);
+                    TxnInitPayload payload = new TxnInitPayload();
+                    payload.setId(((Number) ids.get(i).values().iterator().next()).longValue());
+                    payload.setFromUserId(item.request.getFromUserId());
+                    payload.setToUserId(item.request.getToUserId());
+                    payload.setAmount(item.paise);
+                    payload.setRequestId(item.txnId);
+                    payload.setExpiresAt(now.getTime() + expireAfterMs);
+                    messageKeys.add(item.request.getFromUserId().toString());
+                    payloads.add(payload);
+                    txnStatusCache.putAfterCommit(item.txnId, TxnStatusEnum.PENDING, null);
+                }
+                outboxRelay.enqueueAll(txninittopic, messageKeys, payloads);
+            });
+        } catch (RuntimeException e) {
+            LOGGER.error("Bulk transfer chunk of {} items failed to persist", valid.size(), e);
+            for (Item item : valid) {
+                item.txnId = null;
+                item.error = "not persisted, resubmit this line";
+            }
+            return 0;
+        }
+        return valid.size();
+    }
+
+    /** Writes the chunk's results in line order and flushes them to the client; returns the rejections. */
+    private int write(List<Item> chunk, Writer writer) throws IOException {
+        int rejected = 0;
+        for (Item item : chunk) {
+            if (item.error != null) {
+                rejected++;
+            }
+            writer.write(objectMapper.writeValueAsString(new BatchTransferResultDto(item.line, item.txnId, item.error)));
+            writer.write('\n');
+        }
+        writer.flush();
+        return rejected;
+    }
+
+    /** Reads one line into {@code line} without ever buffering more than max-line-chars of it. */
+    private int readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        boolean tooLong = false;
+        int c = reader.read();
+        if (c == -1) {
+            return EOF;
+        }
+        while (c != -1 && c != '\n') {
+            if (c != '\r') {
+                if (line.length() < maxLineChars) {
+                    line.append((char) c);
+                } else {
+                    tooLong = true;
+                }
+            }
+            c = reader.read();
+        }
+        return tooLong ? TOO_LONG : OK;
+    }
+
+    private static final class Item {
+        final long line;
+        final TxnRequestDto request;
+        final long paise;
+        String txnId;
+        String error;
+
+        Item(long line, TxnRequestDto request, long paise) {
+            this.line = line;
+            this.request = request;
+            this.paise = paise;
+        }
+
+        static Item rejected(long line, String error) {
+            Item item = new Item(line, null, 0L);
+            item.error = error;
+            return item;
+        }
+    }
+}
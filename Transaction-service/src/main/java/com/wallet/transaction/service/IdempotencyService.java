@@ -0,0 +1,159 @@
+package com.wallet.transaction.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallet.code.money.Money;
+import com.wallet.transaction.dto.TxnRequestDto;
+import com.wallet.transaction.model.IdempotencyKey;
+import com.wallet.transaction.repository.IdempotencyKeyRepo;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@code Idempotency-Key} handling for POST /transaction. The first request with a key (per payer)
+ * creates the transaction; retries with the same key get the original txnId back without a new row
+ * or TXN-INIT record.
+ * <p>
+ * A bounded, TTL-evicted cache holds one in-flight/settled entry per key, so concurrent duplicates
+ * on this node wait for the first request instead of racing it. Behind the cache, the key is claimed
+ * in txn_idempotency_key (primary key (fromUserId, idempotencyKey)) in the transaction that creates
+ * the row: after eviction, or when the duplicate lands on another node, the stored key answers, and
+ * a lost insert race fails on the key and rolls back before anything reaches the outbox.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 64;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private IdempotencyKeyRepo idempotencyKeyRepo;
+
+    @Value("${txn.idempotency.cache-size:100000}")
+    private long cacheSize;
+
+    @Value("${txn.idempotency.cache-ttl-ms:600000}")
+    private long cacheTtlMs;
+
+    // how long a duplicate waits for the first request before answering 409
+    @Value("${txn.idempotency.max-wait-ms:10000}")
+    private long maxWaitMs;
+
+    private Cache<String, Flight> flights;
+
+    @PostConstruct
+    void init() {
+        flights = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .build();
+    }
+
+    /** txnId of the transaction this key created, and whether this call was a replay. */
+    public record Outcome(String txnId, boolean replayed) {
+    }
+
+    public Outcome initTransaction(String idempotencyKey, TxnRequestDto request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+        if (request == null || request.getFromUserId() == null || request.getToUserId() == null
+                || request.getAmount() == null) {
+            throw new IllegalArgumentException("Invalid transaction request");
+        }
+        String cacheKey = request.getFromUserId() + ":" + idempotencyKey;
+        Flight mine = new Flight(Fingerprint.of(request), new CompletableFuture<>());
+        Flight first = flights.asMap().putIfAbsent(cacheKey, mine);
+        if (first != null) {
+            first.fingerprint().check(request);
+            return new Outcome(await(first), true);
+        }
+
+        try {
+            Outcome outcome = create(idempotencyKey, request);
+            mine.txnId().complete(outcome.txnId());
+            return outcome;
+        } catch (RuntimeException e) {
+            // let the next retry try again instead of replaying the failure
+            flights.asMap().remove(cacheKey, mine);
+            mine.txnId().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Outcome create(String idempotencyKey, TxnRequestDto request) {
+        IdempotencyKey.Key id = new IdempotencyKey.Key(request.getFromUserId(), idempotencyKey);
+        IdempotencyKey stored = idempotencyKeyRepo.findById(id).orElse(null);
+        if (stored == null) {
+            try {
+                return new Outcome(transactionService.initTransaction(request, idempotencyKey), false);
+            } catch (DataIntegrityViolationException e) {
+                // another node committed the same key between our read and insert; ours rolled back
+                stored = idempotencyKeyRepo.findById(id).orElse(null);
+                if (stored == null) {
+                    throw e;
+                }
+            }
+        }
+        Fingerprint.of(stored).check(request);
+        LOGGER.info("Idempotency-Key replay for fromUserId={} resolved to txnId={}", request.getFromUserId(), stored.getTxnId());
+        return new Outcome(stored.getTxnId(), true);
+    }
+
+    private String await(Flight first) {
+        try {
+            return first.txnId().get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+        } catch (ExecutionException e) {
+            // the first request failed; report the same failure to its duplicates
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted");
+        }
+    }
+
+    private record Flight(Fingerprint fingerprint, CompletableFuture<String> txnId) {
+    }
+
+    /** What a retry must repeat: reusing a key for a different transfer is a client bug, not a replay. */
+    private record Fingerprint(Long toUserId, long paise) {
+
+        static Fingerprint of(TxnRequestDto request) {
+            return new Fingerprint(request.getToUserId(), Money.ofRupees(request.getAmount()));
+        }
+
+        static Fingerprint of(IdempotencyKey stored) {
+            return new Fingerprint(stored.getToUserId(), stored.getAmountPaise());
+        }
+
+        void check(TxnRequestDto request) {
+            if (!equals(of(request))) {
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used for a different transfer");
+            }
+        }
+    }
+}
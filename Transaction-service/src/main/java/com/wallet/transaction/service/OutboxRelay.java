@@ -0,0 +1,295 @@
+package com.wallet.transaction.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.code.money.MoneyJson;
+import com.wallet.transaction.model.OutboxEvent;
+import com.wallet.transaction.repository.OutboxRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Transactional outbox for the records this service publishes. {@link #enqueue} stores the record
+ * in {@code txn_outbox} inside the caller's DB transaction, so the record exists if and only if the
+ * change it announces committed, and the caller never waits on the broker.
+ * <p>
+ * A single relay thread publishes pending rows in id order, {@code batch-size} at a time: it locks
+ * the batch ({@code FOR UPDATE}, so only one node relays a given row), sends the whole batch
+ * asynchronously, waits for the acks and marks the acknowledged prefix sent with one UPDATE. Rows
+ * after a failed send are retried on the next pass, after the failed one, so records sharing a key
+ * (fromUserId) reach the broker in order; consumers already dedupe by txnId, so a re-send after a
+ * partial failure is harmless. Commits wake the relay up; {@code poll-interval-ms} is the fallback.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelay.class);
+
+    // served by idx_outbox_pending (sent_at, id)
+    private static final String SELECT_PENDING =
+            "SELECT id, topic, message_key, payload, created_at FROM txn_outbox "
+                    + "WHERE sent_at IS NULL ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String INSERT =
+            "INSERT INTO txn_outbox (topic, message_key, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final String PURGE_SENT =
+            "DELETE FROM txn_outbox WHERE sent_at IS NOT NULL AND sent_at < ? ORDER BY id LIMIT ?";
+
+    private static final int PURGE_CHUNK = 5000;
+
+    @Autowired
+    private OutboxRepo outboxRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(MoneyJson.module());
+
+    @Value("${txn.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${txn.outbox.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @Value("${txn.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${txn.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running = true;
+    private Thread relay;
+    private Instant lastPurge = Instant.EPOCH;
+
+    private Timer lag;
+    private DistributionSummary batchSizes;
+    private Counter sendFailures;
+
+    @PostConstruct
+    void start() {
+        lag = Timer.builder("txn.outbox.relay.lag")
+                .description("Time from outbox insert to broker ack")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("txn.outbox.relay.batch.size")
+                .description("Records acknowledged per relay batch")
+                .register(meterRegistry);
+        sendFailures = Counter.builder("txn.outbox.relay.failures").register(meterRegistry);
+
+        relay = new Thread(this::relayLoop, "txn-outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        relay.interrupt();
+        relay.join(sendTimeoutMs);
+    }
+
+    /** Stores a record for {@code topic} in the current transaction; it is published after commit. */
+    public void enqueue(String topic, String key, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setMessageKey(key);
+        event.setPayload(toJson(topic, payload));
+        event.setCreatedAt(Instant.now());
+        outboxRepo.save(event);
+        wakeUpAfterCommit();
+    }
+
+    /** {@link #enqueue} for many records with one JDBC batch; {@code keys} and {@code payloads} pair up by index. */
+    public void enqueueAll(String topic, List<String> keys, List<?> payloads) {
+        Timestamp now = Timestamp.from(Instant.now());
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, topic);
+                ps.setString(2, keys.get(i));
+                ps.setString(3, toJson(topic, payloads.get(i)));
+                ps.setTimestamp(4, now, utc);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payloads.size();
+            }
+        });
+        wakeUpAfterCommit();
+    }
+
+    private String toJson(String topic, Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox payload for " + topic, e);
+        }
+    }
+
+    private void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp.release();
+                }
+            });
+        } else {
+            wakeUp.release();
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+                // keep going while batches come back full; a short batch means we caught up
+                while (running && relayBatch() == batchSize) {
+                    wakeUp.drainPermits();
+                }
+                purgeSent();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // the batch's transaction rolled back; its rows stay pending
+                LOGGER.error("Outbox relay pass failed; retrying in {} ms", pollIntervalMs, e);
+            }
+        }
+    }
+
+    /** Publishes one batch; returns how many rows were marked sent, or -1 if a send failed. */
+    int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            List<Pending> batch = jdbcTemplate.query(SELECT_PENDING, (rs, i) -> new Pending(
+                    rs.getLong("id"),
+                    rs.getString("topic"),
+                    rs.getString("message_key"),
+                    rs.getString("payload"),
+                    rs.getTimestamp("created_at", utc).toInstant()), batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            List<CompletableFuture<SendResult<String, Object>>> acks = new ArrayList<>(batch.size());
+            for (Pending row : batch) {
+                acks.add(kafkaTemplate.send(row.topic(), row.key(), readTree(row.payload())));
+            }
+            kafkaTemplate.flush();
+
+            // only an unbroken prefix is marked sent, so a key's later records never overtake an earlier one
+            List<Long> sentIds = new ArrayList<>(batch.size());
+            boolean failed = false;
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    acks.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    sendFailures.increment();
+                    LOGGER.warn("Outbox record {} not acknowledged; {} record(s) stay pending",
+                            batch.get(i).id(), batch.size() - i, e);
+                    failed = true;
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed = true;
+                    break;
+                }
+                sentIds.add(batch.get(i).id());
+            }
+
+            Instant now = Instant.now();
+            if (!sentIds.isEmpty()) {
+                // ids are not contiguous (a lower id may commit later), so the update lists them explicitly
+                String placeholders = String.join(",", Collections.nCopies(sentIds.size(), "?"));
+                jdbcTemplate.update("UPDATE txn_outbox SET sent_at = ? WHERE id IN (" + placeholders + ")", ps -> {
+                    ps.setTimestamp(1, Timestamp.from(now), utc);
+                    for (int i = 0; i < sentIds.size(); i++) {
+                        ps.setLong(i + 2, sentIds.get(i));
+                    }
+                });
+                for (int i = 0; i < sentIds.size(); i++) {
+                    lag.record(Duration.between(batch.get(i).createdAt(), now));
+                }
+            }
+            batchSizes.record(sentIds.size());
+            return failed ? -1 : sentIds.size();
+        });
+        return relayed != null ? relayed : 0;
+    }
+
+    private void purgeSent() {
+        Instant now = Instant.now();
+        if (Duration.between(lastPurge, now).toMinutes() < 10) {
+            return;
+        }
+        lastPurge = now;
+        Timestamp cutoff = Timestamp.from(now.minus(Duration.ofHours(retentionHours)));
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SENT, ps -> {
+                ps.setTimestamp(1, cutoff, utc);
+                ps.setInt(2, PURGE_CHUNK);
+            });
+        } while (deleted == PURGE_CHUNK && running);
+    }
+
+    private Object readTree(String json) {
+        try {
+            // sent as a tree so the JSON serializer writes the stored document verbatim
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt outbox payload", e);
+        }
+    }
+
+    private record Pending(long id, String topic, String key, String payload, Instant createdAt) {
+    }
+}
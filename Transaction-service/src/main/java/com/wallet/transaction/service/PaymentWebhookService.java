@@ -1,70 +1,244 @@
 package com.wallet.transaction.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wallet.code.dto.TxnCompletedPayload;
+import com.wallet.code.money.Money;
 import com.wallet.transaction.model.Transaction;
+import com.wallet.transaction.model.TxnOriginEnum;
 import com.wallet.transaction.model.TxnStatusEnum;
 import com.wallet.transaction.repository.TransactionRepo;
 import com.wallet.transaction.web.pg.PGWebhookPayload;
 import com.wallet.transaction.web.pg.SignatureVerifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger; import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PG webhook ingestion. The request thread only verifies and parses the body, then hands the event
+ * to a bounded queue. One applier thread drains the queue in batches of up to {@code batch-size}.
+ * Each batch is applied in one DB transaction: one locking read of the rows, one bulk UPDATE per
+ * outcome, and the TXN-COMPLETED/TXN-FAILED records written to the outbox. A webhook is
+ * acknowledged once its batch commits, so a 200 always means the update is durable. A full queue is
+ * answered at once (the controller turns that into 503 + Retry-After), so a PG retry storm cannot
+ * tie up request threads; the gateway simply retries later.
+ */
 @Service
 @RequiredArgsConstructor
 public class PaymentWebhookService {
     private static final Logger log = LoggerFactory.getLogger(PaymentWebhookService.class);
 
     private final SignatureVerifier verifier;
-    private final ObjectMapper objectMapper;
     private final TransactionRepo transactionRepo;
-    private final KafkaTemplate<String, Object> kafka;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxRelay outboxRelay;
+    private final TxnStatusCache txnStatusCache;
+    private final TxnIdClaims txnIdClaims;
+    private final MeterRegistry meterRegistry;
 
     @Value("${txt.completed.topic}") private String TXN_COMPLETED;
     @Value("${txt.failed.topic}")    private String TXN_FAILED;
 
-    @Transactional
-    public void handle(String rawBody, String signature) {
-        // 1) Verify + parse PG payload
+    @Value("${pg.webhook.queue-capacity:10000}") private int queueCapacity;
+    @Value("${pg.webhook.batch-size:200}")       private int batchSize;
+    @Value("${pg.webhook.ack-timeout-ms:5000}")  private long ackTimeoutMs;
+
+    private BlockingQueue<Pending> queue;
+    private volatile boolean running = true;
+    private Thread applier;
+    private Counter rejected;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("txn.webhook.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        rejected = Counter.builder("txn.webhook.rejected")
+                .description("Webhooks answered 503 because the ingestion queue was full")
+                .register(meterRegistry);
+        applier = new Thread(this::applyLoop, "pg-webhook-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        applier.interrupt();
+        applier.join(ackTimeoutMs);
+        // whatever is still queued was never acknowledged; the gateway will redeliver it
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(p -> p.applied().completeExceptionally(new IllegalStateException("Shutting down")));
+    }
+
+    /**
+     * Verifies and queues one webhook. The future completes once the update has committed, or
+     * exceptionally after {@code ack-timeout-ms}; null means the queue is full and nothing was taken.
+     */
+    public CompletableFuture<Void> submit(byte[] rawBody, String signature) {
         PGWebhookPayload p = verifier.parseAndVerify(rawBody, signature);
+        if (p.getTxnId() == null || p.getStatus() == null) {
+            throw new IllegalArgumentException("Webhook without txnId/status");
+        }
+        Pending pending = new Pending(p, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            rejected.increment();
+            return null;
+        }
+        return pending.applied().orTimeout(ackTimeoutMs, TimeUnit.MILLISECONDS);
+    }
 
-        // 2) Upsert by txnId (shared correlation id)
-        Transaction tx = transactionRepo.findByTxnId(p.getTxnId());
-        if (tx == null) {
-            tx = new Transaction();
-            tx.setTxnId(p.getTxnId());
-            tx.setFromUserId(p.getFromUserId());
-            tx.setToUserId(p.getToUserId());
-            tx.setAmount(p.getAmount());
+    private void applyLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
         }
+    }
 
-        if (tx.getStatus() != null && tx.getStatus().isTerminal()) {
-            log.info("txnId={} already terminal: {}", tx.getTxnId(), tx.getStatus());
-            return;
+    private void applyBatch(List<Pending> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+            batch.forEach(p -> p.applied().complete(null));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.warn("Webhook for txnId={} could not be applied", batch.get(0).payload().getTxnId(), e);
+                batch.get(0).applied().completeExceptionally(e);
+                return;
+            }
+            // one bad event must not fail the rest of the batch: retry each on its own
+            log.warn("Webhook batch of {} failed; applying one by one", batch.size(), e);
+            for (Pending p : batch) {
+                applyBatch(List.of(p));
+            }
         }
+    }
 
-        switch (p.getStatus().toUpperCase()) {
-            case "SUCCESS", "PAID", "CAPTURED" -> tx.setStatus(TxnStatusEnum.SUCCESS);
-            case "FAILED" -> { tx.setStatus(TxnStatusEnum.FAILED); tx.setReason(p.getReason()); }
-            default -> tx.setStatus(TxnStatusEnum.PENDING);
+    private void apply(List<Pending> batch) {
+        Set<String> txnIds = new LinkedHashSet<>();
+        batch.forEach(p -> txnIds.add(p.payload().getTxnId()));
+        Map<String, Transaction> existing = new HashMap<>();
+        for (Transaction tx : transactionRepo.findForUpdateByTxnIdIn(txnIds)) {
+            existing.put(tx.getTxnId(), tx);
         }
-        transactionRepo.save(tx);
 
-        // 3) Publish completion/failure to Kafka for wallet-service
+        // events are taken in arrival order; the first terminal status for a txnId wins
+        Map<String, Outcome> decided = new LinkedHashMap<>();
+        Map<String, Transaction> created = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            PGWebhookPayload p = pending.payload();
+            Outcome outcome = outcomeOf(p);
+            Transaction tx = existing.get(p.getTxnId());
+            if (tx != null) {
+                if (tx.getStatus().isTerminal() || decided.containsKey(tx.getTxnId())) {
+                    log.info("txnId={} already terminal, ignoring webhook status {}", tx.getTxnId(), p.getStatus());
+                } else if (outcome.status().isTerminal()) {
+                    decided.put(tx.getTxnId(), outcome);
+                }
+                continue;
+            }
+            tx = created.get(p.getTxnId());
+            if (tx == null) {
+                tx = new Transaction();
+                tx.setTxnId(p.getTxnId());
+                tx.setFromUserId(p.getFromUserId());
+                tx.setToUserId(p.getToUserId());
+                tx.setAmount(p.getAmount());
+                tx.setOrigin(TxnOriginEnum.PG);
+                created.put(tx.getTxnId(), tx);
+            } else if (tx.getStatus().isTerminal()) {
+                continue;
+            }
+            tx.setStatus(outcome.status());
+            tx.setReason(outcome.reason());
+        }
+
+        // rows are locked, so every decided row is still PENDING and the bulk update moves all of them
+        Map<Outcome, List<Long>> idsByOutcome = new LinkedHashMap<>();
+        decided.forEach((txnId, outcome) ->
+                idsByOutcome.computeIfAbsent(outcome, k -> new ArrayList<>()).add(existing.get(txnId).getId()));
+        OffsetDateTime now = OffsetDateTime.now();
+        idsByOutcome.forEach((outcome, ids) -> transactionRepo.completePending(ids, outcome.status(), outcome.reason(), now));
+        // a txnId another node created since the locking read fails the claim; the per-event retry then finds its row
+        txnIdClaims.claimAll(created.keySet());
+        transactionRepo.saveAll(created.values());
+
+        // publish completion/failure for wallet-service through the outbox, one JDBC batch per topic
+        List<String> completedKeys = new ArrayList<>();
+        List<TxnCompletedPayload> completed = new ArrayList<>();
+        List<String> failedKeys = new ArrayList<>();
+        List<TxnCompletedPayload> failed = new ArrayList<>();
+        decided.forEach((txnId, outcome) -> {
+            TxnCompletedPayload evt = event(existing.get(txnId), outcome);
+            (evt.getSuccess() ? completedKeys : failedKeys).add(txnId);
+            (evt.getSuccess() ? completed : failed).add(evt);
+        });
+        for (Transaction tx : created.values()) {
+            txnStatusCache.putAfterCommit(tx.getTxnId(), tx.getStatus(), tx.getReason());
+            if (tx.getStatus().isTerminal()) {
+                TxnCompletedPayload evt = event(tx, new Outcome(tx.getStatus(), tx.getReason()));
+                (evt.getSuccess() ? completedKeys : failedKeys).add(tx.getTxnId());
+                (evt.getSuccess() ? completed : failed).add(evt);
+            }
+        }
+        decided.forEach((txnId, outcome) -> txnStatusCache.putAfterCommit(txnId, outcome.status(), outcome.reason()));
+        if (!completed.isEmpty()) outboxRelay.enqueueAll(TXN_COMPLETED, completedKeys, completed);
+        if (!failed.isEmpty()) outboxRelay.enqueueAll(TXN_FAILED, failedKeys, failed);
+    }
+
+    private static Outcome outcomeOf(PGWebhookPayload p) {
+        return switch (p.getStatus().toUpperCase()) {
+            case "SUCCESS", "PAID", "CAPTURED" -> new Outcome(TxnStatusEnum.SUCCESS, null);
+            case "FAILED" -> new Outcome(TxnStatusEnum.FAILED, p.getReason());
+            default -> new Outcome(TxnStatusEnum.PENDING, null);
+        };
+    }
+
+    private static TxnCompletedPayload event(Transaction tx, Outcome outcome) {
         var evt = new TxnCompletedPayload();
         evt.setId(tx.getId());
         evt.setRequestId(tx.getTxnId());   // 👈 SAME across DBs/services
         evt.setFromUserId(tx.getFromUserId());
         evt.setToUserId(tx.getToUserId());
-        evt.setAmount(tx.getAmount());
-        evt.setSuccess(tx.getStatus() == TxnStatusEnum.SUCCESS);
-        if (!evt.getSuccess()) evt.setReason(tx.getReason());
+        if (tx.getAmount() != null) evt.setAmount(Money.ofRupees(tx.getAmount()));
+        evt.setSuccess(outcome.status() == TxnStatusEnum.SUCCESS);
+        if (!evt.getSuccess()) evt.setReason(outcome.reason());
+        return evt;
+    }
+
+    private record Outcome(TxnStatusEnum status, String reason) {
+    }
 
-        String topic = evt.getSuccess() ? TXN_COMPLETED : TXN_FAILED;
-        kafka.send(topic, evt.getRequestId(), evt);
+    private record Pending(PGWebhookPayload payload, CompletableFuture<Void> applied) {
     }
 }
@@ -0,0 +1,365 @@
+package com.wallet.transaction.service;
+
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.id.UuidV7;
+import com.wallet.code.money.Money;
+import com.wallet.transaction.model.TxnStatusEnum;
+import com.wallet.transaction.repository.TransactionRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.IntStream;
+
+/**
+ * Finds transactions stuck in PENDING (e.g. wallet-service dropped their TXN-INIT) and drives them
+ * to an end. A PENDING row older than {@code redrive-after-ms} gets its TXN-INIT re-published through
+ * the outbox, at most once per {@code redrive-interval-ms}; wallet-service skips transfers it has
+ * already applied and re-sends its completion, so a re-drive is harmless and also recovers a lost
+ * TXN-COMPLETED. A row still PENDING after {@code fail-after-ms} is marked FAILED: every TXN-INIT
+ * carries {@code expiresAt} (created + {@code txn.transfer.expire-after-ms}), after which
+ * wallet-service refuses a transfer it has not applied, so once fail-after-ms (which must exceed it
+ * by {@link #CLOCK_SKEW}) has passed no late TXN-INIT can still move the money.
+ * <p>
+ * Only transfers are swept. Rows the payment-gateway webhook created ({@code origin = PG}) are
+ * driven by the gateway's own retries and never go to wallet-service as TXN-INIT.
+ * <p>
+ * Rows are read oldest first on idx_txn_status_created in chunks of {@code chunk-size}, each acted on
+ * in its own short transaction with guarded bulk UPDATEs (no row is locked between chunks). The
+ * table is split into {@code partitions} by id; live nodes heartbeat into {@code txn_sweeper_node},
+ * every partition is assigned to one live node by rendezvous hashing, and a node sweeps a partition
+ * only while it holds its lease in {@code txn_sweep_lease}. A node that dies simply stops renewing,
+ * and its partitions move on once the lease expires.
+ */
+@Service
+public class PendingSweeper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PendingSweeper.class);
+
+    private static final String SEED_LEASE =
+            "INSERT IGNORE INTO txn_sweep_lease (partition_no, owner, lease_until) VALUES (?, NULL, ?)";
+
+    private static final String HEARTBEAT =
+            "INSERT INTO txn_sweeper_node (node_id, alive_until) VALUES (?, ?) "
+                    + "ON DUPLICATE KEY UPDATE alive_until = VALUES(alive_until)";
+
+    private static final String CLAIM =
+            "UPDATE txn_sweep_lease SET owner = ?, lease_until = ? "
+                    + "WHERE partition_no = ? AND (owner = ? OR owner IS NULL OR lease_until < ?)";
+
+    // served by idx_txn_status_created; MOD(id) is checked on the index entry (it carries the primary key)
+    private static final String SELECT_EXPIRED =
+            "SELECT id, txn_id, from_user_id, to_user_id, amount, date_created, last_updated FROM `transaction` "
+                    + "WHERE status = 'PENDING' AND date_created < ? AND (origin IS NULL OR origin = 'TRANSFER') "
+                    + "AND (date_created > ? OR (date_created = ? AND id > ?)) AND MOD(id, ?) = ? "
+                    + "ORDER BY date_created, id LIMIT ?";
+
+    private static final String TIMED_OUT = "Timed out waiting for wallet-service";
+
+    // between this node's clock (dateCreated, fail-after-ms) and wallet-service's (expiresAt check)
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TransactionRepo transactionRepo;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private TxnStatusCache txnStatusCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${txt.init.topic}")
+    private String txninittopic;
+
+    @Value("${txn.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${txn.sweeper.partitions:16}")
+    private int partitions;
+
+    // must comfortably exceed interval-ms, or leases lapse between passes
+    @Value("${txn.sweeper.lease-ms:90000}")
+    private long leaseMs;
+
+    @Value("${txn.sweeper.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${txn.sweeper.redrive-after-ms:120000}")
+    private long redriveAfterMs;
+
+    @Value("${txn.sweeper.redrive-interval-ms:300000}")
+    private long redriveIntervalMs;
+
+    @Value("${txn.sweeper.fail-after-ms:3600000}")
+    private long failAfterMs;
+
+    @Value("${txn.transfer.expire-after-ms:3000000}")
+    private long expireAfterMs;
+
+    private final String nodeId = hostName() + "-" + UuidV7.nextString().substring(24);
+
+    private Counter redriven;
+    private Counter failed;
+
+    @PostConstruct
+    void init() {
+        if (failAfterMs < expireAfterMs + CLOCK_SKEW.toMillis()) {
+            throw new IllegalStateException("txn.sweeper.fail-after-ms (" + failAfterMs + ") must be at least "
+                    + "txn.transfer.expire-after-ms + " + CLOCK_SKEW.toMillis() + " ms, or a transfer could be "
+                    + "failed while wallet-service may still apply it");
+        }
+        redriven = Counter.builder("txn.sweeper.redriven").register(meterRegistry);
+        failed = Counter.builder("txn.sweeper.failed").register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Timestamp epoch = Timestamp.from(Instant.EPOCH);
+        jdbcTemplate.batchUpdate(SEED_LEASE, IntStream.range(0, partitions).boxed().toList(), partitions, (ps, p) -> {
+            ps.setInt(1, p);
+            ps.setTimestamp(2, epoch, utc);
+        });
+    }
+
+    @PreDestroy
+    void release() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // hand partitions over now instead of after lease-ms
+            jdbcTemplate.update("UPDATE txn_sweep_lease SET owner = NULL WHERE owner = ?", nodeId);
+            jdbcTemplate.update("DELETE FROM txn_sweeper_node WHERE node_id = ?", nodeId);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not release sweeper leases of {}", nodeId, e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${txn.sweeper.interval-ms:30000}",
+            fixedDelayString = "${txn.sweeper.interval-ms:30000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Instant leaseUntil = Instant.now().plusMillis(leaseMs);
+            int redrove = 0;
+            int timedOut = 0;
+            for (int partition : claimPartitions(leaseUntil)) {
+                int[] counts = sweepPartition(partition, leaseUntil);
+                redrove += counts[0];
+                timedOut += counts[1];
+            }
+            if (redrove > 0 || timedOut > 0) {
+                LOGGER.info("Sweeper {} re-drove {} and failed {} stuck PENDING transaction(s)", nodeId, redrove, timedOut);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Stuck-PENDING sweep failed; retrying next interval", e);
+        }
+    }
+
+    /** Heartbeats, then takes (or renews) the leases of the partitions assigned to this node; returns the ones held. */
+    private List<Integer> claimPartitions(Instant leaseUntil) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp until = Timestamp.from(leaseUntil);
+        jdbcTemplate.update(HEARTBEAT, ps -> {
+            ps.setString(1, nodeId);
+            ps.setTimestamp(2, until, utc);
+        });
+        Timestamp forgetBefore = Timestamp.from(Instant.now().minusMillis(leaseMs));
+        jdbcTemplate.update("DELETE FROM txn_sweeper_node WHERE alive_until < ?",
+                ps -> ps.setTimestamp(1, forgetBefore, utc));
+        List<String> live = jdbcTemplate.query("SELECT node_id FROM txn_sweeper_node WHERE alive_until >= ?",
+                ps -> ps.setTimestamp(1, now, utc), (rs, i) -> rs.getString(1));
+        if (!live.contains(nodeId)) {
+            live.add(nodeId);
+        }
+
+        List<Integer> mine = new ArrayList<>();
+        List<Integer> notMine = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            (nodeId.equals(assignee(p, live)) ? mine : notMine).add(p);
+        }
+        if (!notMine.isEmpty()) {
+            // another node is now assigned these; let it have them without waiting for expiry
+            String in = String.join(",", Collections.nCopies(notMine.size(), "?"));
+            List<Object> args = new ArrayList<>(notMine.size() + 1);
+            args.add(nodeId);
+            args.addAll(notMine);
+            jdbcTemplate.update("UPDATE txn_sweep_lease SET owner = NULL WHERE owner = ? AND partition_no IN (" + in + ")",
+                    args.toArray());
+        }
+
+        List<Integer> held = new ArrayList<>(mine.size());
+        for (int p : mine) {
+            int partition = p;
+            int claimed = jdbcTemplate.update(CLAIM, ps -> {
+                ps.setString(1, nodeId);
+                ps.setTimestamp(2, until, utc);
+                ps.setInt(3, partition);
+                ps.setString(4, nodeId);
+                ps.setTimestamp(5, now, utc);
+            });
+            if (claimed == 1) {
+                held.add(partition);
+            }
+        }
+        return held;
+    }
+
+    /** Sweeps one partition chunk by chunk while the lease lasts; returns {re-driven, failed}. */
+    private int[] sweepPartition(int partition, Instant leaseUntil) {
+        Instant now = Instant.now();
+        Timestamp expiredBefore = Timestamp.from(now.minusMillis(redriveAfterMs));
+        Instant failBefore = now.minusMillis(failAfterMs);
+        Instant redriveIfUntouchedSince = now.minusMillis(redriveIntervalMs);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+        int[] counts = new int[2];
+        Timestamp afterCreated = Timestamp.from(Instant.EPOCH);
+        long afterId = 0;
+        while (Duration.between(Instant.now(), leaseUntil).toMillis() > leaseMs / 3) {
+            Timestamp cursorCreated = afterCreated;
+            long cursorId = afterId;
+            List<Stuck> chunk = jdbcTemplate.query(SELECT_EXPIRED, ps -> {
+                ps.setTimestamp(1, expiredBefore, utc);
+                ps.setTimestamp(2, cursorCreated, utc);
+                ps.setTimestamp(3, cursorCreated, utc);
+                ps.setLong(4, cursorId);
+                ps.setInt(5, partitions);
+                ps.setInt(6, partition);
+                ps.setInt(7, chunkSize);
+            }, (rs, i) -> new Stuck(
+                    rs.getLong("id"),
+                    rs.getString("txn_id"),
+                    rs.getLong("from_user_id"),
+                    rs.getLong("to_user_id"),
+                    rs.getDouble("amount"),
+                    rs.getTimestamp("date_created", utc).toInstant(),
+                    rs.getTimestamp("last_updated", utc).toInstant()));
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            List<Stuck> redrive = new ArrayList<>();
+            List<Long> fail = new ArrayList<>();
+            for (Stuck row : chunk) {
+                if (row.dateCreated().isBefore(failBefore)) {
+                    fail.add(row.id());
+                } else if (row.lastUpdated().isBefore(redriveIfUntouchedSince)) {
+                    redrive.add(row);
+                }
+            }
+            if (!redrive.isEmpty() || !fail.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> act(redrive, fail));
+                counts[0] += redrive.size();
+                counts[1] += fail.size();
+                redriven.increment(redrive.size());
+                failed.increment(fail.size());
+            }
+
+            Stuck last = chunk.get(chunk.size() - 1);
+            afterCreated = Timestamp.from(last.dateCreated());
+            afterId = last.id();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        return counts;
+    }
+
+    private void act(List<Stuck> redrive, List<Long> fail) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        if (!fail.isEmpty()) {
+            transactionRepo.completePending(fail, TxnStatusEnum.FAILED, TIMED_OUT, now);
+            // read back: a completion may have won the race for some of them
+            for (Object[] row : transactionRepo.findStatusesByIdIn(fail)) {
+                txnStatusCache.putAfterCommit((String) row[0], (TxnStatusEnum) row[1], (String) row[2]);
+            }
+        }
+        if (!redrive.isEmpty()) {
+            List<Long> ids = new ArrayList<>(redrive.size());
+            List<String> keys = new ArrayList<>(redrive.size());
+            List<TxnInitPayload> payloads = new ArrayList<>(redrive.size());
+            for (Stuck row : redrive) {
+                TxnInitPayload payload = new TxnInitPayload();
+                payload.setId(row.id());
+                payload.setFromUserId(row.fromUserId());
+                payload.setToUserId(row.toUserId());
+                payload.setAmount(Money.ofRupees(row.amount()));
+                payload.setRequestId(row.txnId());
+                // the original deadline, not a new one: re-driving never extends it
+                payload.setExpiresAt(row.dateCreated().toEpochMilli() + expireAfterMs);
+                ids.add(row.id());
+                keys.add(String.valueOf(row.fromUserId()));
+                payloads.add(payload);
+            }
+            transactionRepo.touchPending(ids, now);
+            outboxRelay.enqueueAll(txninittopic, keys, payloads);
+        }
+    }
+
+    /** Rendezvous hashing: the live node with the highest score for a partition gets it, so a join or leave moves few partitions. */
+    private static String assignee(int partition, List<String> live) {
+        String best = null;
+        long bestScore = Long.MIN_VALUE;
+        for (String node : live) {
+            long score = mix(node.hashCode() * 31L + partition);
+            if (best == null || score > bestScore || (score == bestScore && node.compareTo(best) > 0)) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // SplitMix64 finaliser; spreads the small hashCode/partition inputs over the whole long range
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String hostName() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > 40 ? host.substring(0, 40) : host;     // node_id is VARCHAR(64)
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+
+    private record Stuck(long id, String txnId, long fromUserId, long toUserId, double amount,
+                         Instant dateCreated, Instant lastUpdated) {
+    }
+}
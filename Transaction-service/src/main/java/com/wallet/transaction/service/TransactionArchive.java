@@ -0,0 +1,103 @@
+package com.wallet.transaction.service;
+
+import com.wallet.transaction.dto.TxnHistoryItemDto;
+import com.wallet.transaction.dto.TxnStatusDto;
+import com.wallet.transaction.model.TxnStatusEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Read-only access to {@code txn.partitions.archive-table}, where {@link TransactionPartitionMaintenance}
+ * moves month partitions past the retention window. Status and history lookups fall back to it only
+ * when the live table has nothing (left), so hot reads never touch it. The archive is created from
+ * the live table, so it has the same (userId, dateCreated, id) and txnId indexes.
+ */
+@Service
+public class TransactionArchive {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionArchive.class);
+
+    private static final String HISTORY_COLUMNS = "SELECT id, txn_id, from_user_id, to_user_id, amount, status, date_created FROM `%s` ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${txn.partitions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${txn.partitions.archive-table:transaction_archive}")
+    private String archiveTable;
+
+    public TxnStatusDto findStatus(String txnId) {
+        if (!enabled) {
+            return null;
+        }
+        List<TxnStatusDto> found = query("SELECT status, reason FROM `" + archiveTable + "` WHERE txn_id = ?",
+                ps -> ps.setString(1, txnId), (rs, i) -> {
+                    TxnStatusDto dto = new TxnStatusDto();
+                    dto.setStatus(rs.getString("status"));
+                    dto.setReason(rs.getString("reason"));
+                    return dto;
+                });
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /** Archived counterpart of {@code TransactionRepo.findSentBefore}. */
+    public List<TxnHistoryItemDto> findSentBefore(Long userId, OffsetDateTime before, long beforeId, int limit) {
+        return history("from_user_id", userId, before, beforeId, limit);
+    }
+
+    /** Archived counterpart of {@code TransactionRepo.findReceivedBefore}. */
+    public List<TxnHistoryItemDto> findReceivedBefore(Long userId, OffsetDateTime before, long beforeId, int limit) {
+        return history("to_user_id", userId, before, beforeId, limit);
+    }
+
+    private List<TxnHistoryItemDto> history(String userColumn, Long userId, OffsetDateTime before, long beforeId, int limit) {
+        if (!enabled) {
+            return List.of();
+        }
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Timestamp at = Timestamp.from(before.toInstant());
+        String sql = String.format(HISTORY_COLUMNS, archiveTable) + "WHERE " + userColumn + " = ? "
+                + "AND (date_created < ? OR (date_created = ? AND id < ?)) ORDER BY date_created DESC, id DESC LIMIT ?";
+        RowMapper<TxnHistoryItemDto> mapper = (rs, i) -> new TxnHistoryItemDto(
+                rs.getLong("id"),
+                rs.getString("txn_id"),
+                rs.getLong("from_user_id"),
+                rs.getLong("to_user_id"),
+                rs.getDouble("amount"),
+                TxnStatusEnum.valueOf(rs.getString("status")),
+                rs.getTimestamp("date_created", utc).toInstant().atOffset(ZoneOffset.UTC));
+        return query(sql, ps -> {
+            ps.setLong(1, userId);
+            ps.setTimestamp(2, at, utc);
+            ps.setTimestamp(3, at, utc);
+            ps.setLong(4, beforeId);
+            ps.setInt(5, limit);
+        }, mapper);
+    }
+
+    private <T> List<T> query(String sql, PreparedStatementSetter setter, RowMapper<T> mapper) {
+        try {
+            return jdbcTemplate.query(sql, setter, mapper);
+        } catch (BadSqlGrammarException e) {
+            // nothing has been archived yet, so the table does not exist
+            LOGGER.debug("Archive table `{}` not readable: {}", archiveTable, e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.wallet.transaction.service;
+
+import com.wallet.transaction.dto.TxnHistoryItemDto;
+import com.wallet.transaction.dto.TxnHistoryPageDto;
+import com.wallet.transaction.repository.TransactionRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A user's sent and received transfers, merged newest first. Each page reads at most {@code limit + 1}
+ * rows from each side, starting at the cursor on the (userId, dateCreated, id) indexes, and merges the
+ * sorted runs. Cost per page depends on the page size only, not on how long the history is. Only
+ * when the live table cannot fill the page are the same two reads made on {@link TransactionArchive},
+ * whose rows are all older than the live ones.
+ * <p>
+ * The cursor is the (dateCreated, id) of the last item returned. Ids are unique across both sides, so
+ * one cursor positions both scans.
+ */
+@Service
+public class TransactionHistoryService {
+
+    // first page: everything is older than this
+    private static final OffsetDateTime END_OF_TIME = OffsetDateTime.of(9999, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final Comparator<TxnHistoryItemDto> NEWEST_FIRST = Comparator
+            .comparing(TxnHistoryItemDto::getDateCreated, Comparator.reverseOrder())
+            .thenComparing(TxnHistoryItemDto::getId, Comparator.reverseOrder());
+
+    @Autowired
+    private TransactionRepo transactionRepo;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    @Value("${txn.history.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${txn.history.max-limit:200}")
+    private int maxLimit;
+
+    public TxnHistoryPageDto getHistory(Long userId, Integer limit, String cursor) {
+        int pageSize = limit == null ? defaultLimit : limit;
+        if (pageSize < 1 || pageSize > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        OffsetDateTime before = END_OF_TIME;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null) {
+            Cursor position = Cursor.decode(cursor);
+            before = position.dateCreated();
+            beforeId = position.id();
+        }
+
+        Limit fetch = Limit.of(pageSize + 1);
+        List<TxnHistoryItemDto> rows = new ArrayList<>(2 * fetch.max());
+        rows.addAll(transactionRepo.findSentBefore(userId, before, beforeId, fetch));
+        rows.addAll(transactionRepo.findReceivedBefore(userId, before, beforeId, fetch));
+        if (distinctIds(rows) <= pageSize) {
+            // the live partitions ran out before the page filled up; older months are in the archive
+            rows.addAll(transactionArchive.findSentBefore(userId, before, beforeId, pageSize + 1));
+            rows.addAll(transactionArchive.findReceivedBefore(userId, before, beforeId, pageSize + 1));
+        }
+        rows.sort(NEWEST_FIRST);
+
+        List<TxnHistoryItemDto> items = new ArrayList<>(pageSize);
+        boolean more = false;
+        Long previousId = null;
+        for (TxnHistoryItemDto row : rows) {
+            if (row.getId().equals(previousId)) {
+                continue;               // a transfer to oneself is on both sides; list it once
+            }
+            previousId = row.getId();
+            if (items.size() == pageSize) {
+                more = true;
+                break;
+            }
+            items.add(row);
+        }
+
+        String nextCursor = null;
+        if (more) {
+            TxnHistoryItemDto last = items.get(items.size() - 1);
+            nextCursor = new Cursor(last.getDateCreated(), last.getId()).encode();
+        }
+        return new TxnHistoryPageDto(items, nextCursor);
+    }
+
+    private static long distinctIds(List<TxnHistoryItemDto> rows) {
+        return rows.stream().map(TxnHistoryItemDto::getId).distinct().count();
+    }
+
+    /** Opaque to clients: base64url of "epochMicros:id". Micros match the DATETIME(6) column. */
+    private record Cursor(OffsetDateTime dateCreated, long id) {
+
+        String encode() {
+            Instant at = dateCreated.toInstant();
+            long micros = ChronoUnit.MICROS.between(Instant.EPOCH, at);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((micros + ":" + id).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String plain = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                int sep = plain.indexOf(':');
+                Instant at = Instant.EPOCH.plus(Long.parseLong(plain.substring(0, sep)), ChronoUnit.MICROS);
+                return new Cursor(OffsetDateTime.ofInstant(at, ZoneOffset.UTC), Long.parseLong(plain.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
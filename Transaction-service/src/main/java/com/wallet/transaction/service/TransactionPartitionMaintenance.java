@@ -0,0 +1,82 @@
+package com.wallet.transaction.service;
+
+import com.wallet.code.partition.MonthlyPartitions;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Keeps {@code transaction} partitioned by month of dateCreated (see db/partition-transaction.sql
+ * for the one-time migration): creates {@code months-ahead} future partitions, and moves months past
+ * {@code retention-months} into {@code archive-table}, where {@link TransactionArchive} still serves
+ * status and history lookups. Idempotency keys of archived months are purged with them.
+ */
+@Service
+public class TransactionPartitionMaintenance {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionPartitionMaintenance.class);
+
+    private static final String PURGE_KEYS = "DELETE FROM txn_idempotency_key WHERE created_at < ? LIMIT ?";
+
+    private static final int PURGE_CHUNK = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${txn.partitions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${txn.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${txn.partitions.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${txn.partitions.archive-table:transaction_archive}")
+    private String archiveTable;
+
+    private MonthlyPartitions partitions;
+
+    @PostConstruct
+    void init() {
+        partitions = new MonthlyPartitions(jdbcTemplate, "transaction", archiveTable, monthsAhead, retentionMonths);
+    }
+
+    @Scheduled(initialDelayString = "${txn.partitions.initial-delay-ms:60000}",
+            fixedDelayString = "${txn.partitions.interval-ms:3600000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            partitions.maintain();
+            purgeIdempotencyKeys();
+        } catch (RuntimeException e) {
+            LOGGER.error("Transaction partition maintenance failed; retrying next interval", e);
+        }
+    }
+
+    private void purgeIdempotencyKeys() {
+        Timestamp cutoff = Timestamp.from(YearMonth.now(ZoneOffset.UTC).minusMonths(retentionMonths - 1L)
+                .atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_KEYS, ps -> {
+                ps.setTimestamp(1, cutoff, utc);
+                ps.setInt(2, PURGE_CHUNK);
+            });
+        } while (deleted == PURGE_CHUNK);
+    }
+}
@@ -1,9 +1,14 @@
 package com.wallet.transaction.service;
 
+import com.wallet.code.dto.TxnCompletedPayload;
 import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.id.UuidV7;
+import com.wallet.code.money.Money;
+import com.wallet.code.partition.MonthlyPartitions;
 import com.wallet.transaction.dto.TxnRequestDto;
 import com.wallet.transaction.dto.TxnStatusDto;
 import com.wallet.transaction.model.Transaction;
+import com.wallet.transaction.model.TxnOriginEnum;
 import com.wallet.transaction.model.TxnStatusEnum;
 import com.wallet.transaction.repository.TransactionRepo;
 import jakarta.transaction.Transactional;
@@ -11,13 +16,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 
 
 @Service
@@ -25,6 +42,12 @@ public class TransactionService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionService.class);
 
+    private static final int RECHECK_CHUNK = 500;
+
+    private static final String INSERT_IDEMPOTENCY_KEY =
+            "INSERT INTO txn_idempotency_key (from_user_id, idempotency_key, txn_id, to_user_id, amount_paise, created_at)"
+                    + " VALUES (?, ?, ?, ?, ?, ?)";
+
     @Value("${txt.init.topic}")
     private String txninittopic;
 
@@ -32,10 +55,38 @@ public class TransactionService {
     private TransactionRepo transactionRepo;
 
     @Autowired
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private TxnStatusCache txnStatusCache;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TxnIdClaims txnIdClaims;
+
+    @Value("${txn.transfer.expire-after-ms:3000000}")
+    private long expireAfterMs;
+
+    @Value("${txn.status.max-wait-ms:30000}")
+    private long maxWaitMs;
 
     @Transactional
-    public String initTransaction(TxnRequestDto txnRequestDto) throws ExecutionException, InterruptedException {
+    public String initTransaction(TxnRequestDto txnRequestDto) {
+        return initTransaction(txnRequestDto, null);
+    }
+
+    /**
+     * Saves a PENDING transaction and its TXN-INIT outbox record in one commit. A non-null
+     * {@code idempotencyKey} is first claimed in txn_idempotency_key, whose primary key rejects a
+     * second transaction with the same key for the same payer (DuplicateKeyException, nothing saved).
+     */
+    @Transactional
+    public String initTransaction(TxnRequestDto txnRequestDto, String idempotencyKey) {
         // Basic null checks to avoid NPEs during persistence / send
         if (txnRequestDto == null ||
                 txnRequestDto.getFromUserId() == null ||
@@ -44,40 +95,183 @@ public class TransactionService {
             throw new IllegalArgumentException("Invalid transaction request");
         }
 
+        String txnId = UuidV7.nextString();
+        if (idempotencyKey != null) {
+            Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            jdbcTemplate.update(INSERT_IDEMPOTENCY_KEY, ps -> {
+                ps.setLong(1, txnRequestDto.getFromUserId());
+                ps.setString(2, idempotencyKey);
+                ps.setString(3, txnId);
+                ps.setLong(4, txnRequestDto.getToUserId());
+                ps.setLong(5, Money.ofRupees(txnRequestDto.getAmount()));
+                ps.setTimestamp(6, Timestamp.from(Instant.now()), utc);
+            });
+        }
+
         Transaction transaction = new Transaction();
         transaction.setFromUserId(txnRequestDto.getFromUserId());
         transaction.setToUserId(txnRequestDto.getToUserId());
         transaction.setAmount(txnRequestDto.getAmount());
         transaction.setComment(txnRequestDto.getComment());
-        transaction.setTxnId(UUID.randomUUID().toString());
+        transaction.setIdempotencyKey(idempotencyKey);
+        transaction.setTxnId(txnId);
         transaction.setStatus(TxnStatusEnum.PENDING);
+        transaction.setOrigin(TxnOriginEnum.TRANSFER);
+        txnIdClaims.claim(txnId);
         transaction = transactionRepo.save(transaction);
 
         TxnInitPayload txnInitPayload = new TxnInitPayload();
         txnInitPayload.setId(transaction.getId());
         txnInitPayload.setFromUserId(transaction.getFromUserId());
         txnInitPayload.setToUserId(transaction.getToUserId());
-        txnInitPayload.setAmount(transaction.getAmount());
+        txnInitPayload.setAmount(Money.ofRupees(transaction.getAmount()));
         txnInitPayload.setRequestId(transaction.getTxnId());
+        txnInitPayload.setExpiresAt(transaction.getDateCreated().toInstant().toEpochMilli() + expireAfterMs);
 
-        // NOTE: This send happens inside @Transactional and can cause DB/Kafka inconsistency if commit fails.
-        Future<SendResult<String, Object>> future =
-                kafkaTemplate.send(txninittopic, transaction.getFromUserId().toString(), txnInitPayload);
-        LOGGER.info("Sending transaction to Kafka: {}", future.get());
+        // committed together with the transaction row; OutboxRelay publishes it to TXN-INIT after commit
+        outboxRelay.enqueue(txninittopic, transaction.getFromUserId().toString(), txnInitPayload);
+        LOGGER.info("Queued TXN-INIT for txnId={}", transaction.getTxnId());
+        txnStatusCache.putAfterCommit(transaction.getTxnId(), TxnStatusEnum.PENDING, null);
 
         return transaction.getTxnId();
     }
 
+    /**
+     * Applies a batch of TXN-COMPLETED events with one UPDATE per outcome (failures grouped by reason)
+     * instead of a read and a save per event. Only PENDING rows change; the first completion of a
+     * transaction wins. Returns how many rows changed.
+     */
+    @Transactional
+    public int applyCompletions(Collection<TxnCompletedPayload> completions) {
+        Map<Outcome, List<Long>> idsByOutcome = new LinkedHashMap<>();
+        Set<Long> seen = new LinkedHashSet<>();
+        for (TxnCompletedPayload completion : completions) {
+            if (completion.getId() == null || !seen.add(completion.getId())) {
+                continue;
+            }
+            Outcome outcome = Boolean.TRUE.equals(completion.getSuccess())
+                    ? new Outcome(TxnStatusEnum.SUCCESS, null)
+                    : new Outcome(TxnStatusEnum.FAILED, completion.getReason());
+            idsByOutcome.computeIfAbsent(outcome, k -> new ArrayList<>()).add(completion.getId());
+        }
+        if (seen.isEmpty()) {
+            return 0;
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        int updated = 0;
+        for (Map.Entry<Outcome, List<Long>> group : idsByOutcome.entrySet()) {
+            updated += transactionRepo.completePending(group.getValue(), group.getKey().status(), group.getKey().reason(), now);
+        }
+
+        // one read back of what the rows now hold (skipped rows keep their earlier terminal status)
+        for (Object[] row : transactionRepo.findStatusesByIdIn(seen)) {
+            txnStatusCache.putAfterCommit((String) row[0], (TxnStatusEnum) row[1], (String) row[2]);
+        }
+        return updated;
+    }
+
     public TxnStatusDto getStatus(String transactionId) {
-        Transaction transaction = transactionRepo.findByTxnId(transactionId);
+        TxnStatusDto cached = txnStatusCache.get(transactionId);
+        if (cached != null) {
+            return cached;
+        }
+        Transaction transaction = findByTxnId(transactionId);
         if (transaction == null) {
+            TxnStatusDto archived = transactionArchive.findStatus(transactionId);
+            if (archived != null) {
+                txnStatusCache.put(transactionId, TxnStatusEnum.valueOf(archived.getStatus()), archived.getReason());
+                return archived;
+            }
             // Signal not found to avoid ambiguous all-null fields
             throw new IllegalArgumentException("Transaction not found: " + transactionId);
         }
+        txnStatusCache.put(transactionId, transaction.getStatus(), transaction.getReason());
         TxnStatusDto dto = new TxnStatusDto();
         dto.setReason(transaction.getReason());
         dto.setStatus(transaction.getStatus().toString());
         return dto;
     }
-}
 
+    /** Completes once the transaction is terminal (right away if it already is); cancel it on timeout. */
+    public CompletableFuture<TxnStatusDto> awaitStatus(String transactionId) {
+        CompletableFuture<TxnStatusDto> terminal = txnStatusCache.awaitTerminal(transactionId);
+        try {
+            TxnStatusDto now = getStatus(transactionId);
+            if (TxnStatusEnum.valueOf(now.getStatus()).isTerminal()) {
+                txnStatusCache.cancel(transactionId, terminal);
+                terminal.complete(now);
+            }
+        } catch (RuntimeException e) {
+            txnStatusCache.cancel(transactionId, terminal);
+            throw e;
+        }
+        return terminal;
+    }
+
+    public void cancelAwait(String transactionId, CompletableFuture<TxnStatusDto> terminal) {
+        txnStatusCache.cancel(transactionId, terminal);
+    }
+
+    /**
+     * Wakes long-polls whose transaction was completed by another node: without Redis (or after a
+     * missed pub/sub message) this node's cache never hears of it, so the parked txnIds are read
+     * back from the database, {@value #RECHECK_CHUNK} per query, every {@code await-recheck-ms}.
+     * UUIDv7 txnIds sort by creation time, so each sorted chunk is bounded by its first txnId's
+     * creation month and MySQL reads only the partitions from there on.
+     */
+    @Scheduled(initialDelayString = "${txn.status.await-recheck-ms:1000}",
+            fixedDelayString = "${txn.status.await-recheck-ms:1000}")
+    public void recheckAwaited() {
+        List<String> awaited = new ArrayList<>(txnStatusCache.awaitedTxnIds());
+        Collections.sort(awaited);
+        try {
+            for (int from = 0; from < awaited.size(); from += RECHECK_CHUNK) {
+                List<String> chunk = awaited.subList(from, Math.min(from + RECHECK_CHUNK, awaited.size()));
+                Instant notBefore = createdNotBefore(chunk);
+                List<Object[]> rows = notBefore != null
+                        ? transactionRepo.findStatusesByTxnIdInCreatedSince(chunk, notBefore.atOffset(ZoneOffset.UTC))
+                        : transactionRepo.findStatusesByTxnIdIn(chunk);
+                for (Object[] row : rows) {
+                    TxnStatusEnum status = (TxnStatusEnum) row[1];
+                    if (status.isTerminal()) {
+                        txnStatusCache.put((String) row[0], status, (String) row[2]);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // parked polls still answer with the current status when they time out
+            LOGGER.warn("Could not re-check {} awaited transaction(s)", awaited.size(), e);
+        }
+    }
+
+    /** Oldest possible creation time of any of {@code txnIds}; null if one is not a UUIDv7 (no bound). */
+    private static Instant createdNotBefore(List<String> txnIds) {
+        Instant oldest = null;
+        for (String txnId : txnIds) {
+            Instant notBefore = MonthlyPartitions.createdNotBefore(txnId);
+            if (notBefore == null) {
+                return null;
+            }
+            if (oldest == null || notBefore.isBefore(oldest)) {
+                oldest = notBefore;
+            }
+        }
+        return oldest;
+    }
+
+    /** Live-table lookup; a UUIDv7 txnId bounds dateCreated, so only the partitions from its month on are read. */
+    private Transaction findByTxnId(String transactionId) {
+        Instant notBefore = MonthlyPartitions.createdNotBefore(transactionId);
+        return notBefore != null
+                ? transactionRepo.findByTxnIdAndDateCreatedGreaterThanEqual(transactionId, notBefore.atOffset(ZoneOffset.UTC))
+                : transactionRepo.findByTxnId(transactionId);
+    }
+
+    public long maxWaitMs() {
+        return maxWaitMs;
+    }
+
+    private record Outcome(TxnStatusEnum status, String reason) {
+    }
+}
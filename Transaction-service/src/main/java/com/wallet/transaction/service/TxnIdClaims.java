@@ -0,0 +1,43 @@
+package com.wallet.transaction.service;
+
+import com.wallet.transaction.model.TxnIdClaim;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Claims txnIds in {@link TxnIdClaim} inside the caller's transaction. A txnId already claimed
+ * fails the insert with a DuplicateKeyException, which rolls the caller's rows back with it.
+ */
+@Service
+public class TxnIdClaims {
+
+    private static final String CLAIM = "INSERT INTO txn_id_claim (txn_id, claimed_at) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void claim(String txnId) {
+        claimAll(List.of(txnId));
+    }
+
+    public void claimAll(Collection<String> txnIds) {
+        if (txnIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        jdbcTemplate.batchUpdate(CLAIM, new ArrayList<>(txnIds), txnIds.size(), (ps, txnId) -> {
+            ps.setString(1, txnId);
+            ps.setTimestamp(2, now, utc);
+        });
+    }
+}
@@ -0,0 +1,242 @@
+package com.wallet.transaction.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.wallet.transaction.dto.TxnStatusDto;
+import com.wallet.transaction.model.TxnStatusEnum;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-through cache of transaction statuses, so status polls stop hitting the database. Every
+ * path that changes a status (initTransaction, the TXN-COMPLETED consumer, the PG webhook) writes
+ * here after its commit. Terminal statuses never change and stay cached for {@code terminal-ttl-ms};
+ * PENDING entries live only {@code pending-ttl-ms}, which bounds how stale a node can be when the
+ * completion was processed by another node.
+ * <p>
+ * With {@code txn.status-cache.redis.enabled} the entries are also written to Redis and terminal
+ * updates are broadcast on a channel, so every node sees them (and wakes its long-polls) at once.
+ * Either way {@link TransactionService#recheckAwaited} re-reads parked txnIds from the database
+ * periodically, since without Redis (or after a missed pub/sub message) nothing else would.
+ */
+@Service
+public class TxnStatusCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TxnStatusCache.class);
+
+    private static final String KEY_PREFIX = "txn-status:";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Value("${txn.status-cache.max-size:200000}")
+    private long maxSize;
+
+    @Value("${txn.status-cache.pending-ttl-ms:1000}")
+    private long pendingTtlMs;
+
+    @Value("${txn.status-cache.terminal-ttl-ms:600000}")
+    private long terminalTtlMs;
+
+    @Value("${txn.status-cache.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    @Value("${txn.status-cache.redis.channel:txn-status-terminal}")
+    private String channel;
+
+    private Cache<String, Cached> local;
+    private RedisMessageListenerContainer listener;
+
+    // long-polls parked on a txnId; lists are only touched inside compute/remove on this map
+    private final Map<String, List<CompletableFuture<TxnStatusDto>>> waiters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Cached>() {
+                    @Override
+                    public long expireAfterCreate(String txnId, Cached value, long currentTime) {
+                        return ttl(value).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String txnId, Cached value, long currentTime, long currentDuration) {
+                        return ttl(value).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String txnId, Cached value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        if (redisEnabled) {
+            listener = new RedisMessageListenerContainer();
+            listener.setConnectionFactory(redisConnectionFactory);
+            listener.addMessageListener((message, pattern) ->
+                    onRemoteTerminal(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(channel));
+            listener.afterPropertiesSet();
+            listener.start();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws Exception {
+        if (listener != null) {
+            listener.destroy();
+        }
+    }
+
+    /** Cached status, or null when the caller has to read the database (and {@link #put} the result). */
+    public TxnStatusDto get(String txnId) {
+        Cached cached = local.getIfPresent(txnId);
+        if (cached == null && redisEnabled) {
+            cached = readRedis(txnId);
+            if (cached != null) {
+                local.put(txnId, cached);
+            }
+        }
+        return cached != null ? cached.toDto() : null;
+    }
+
+    /** Caches a committed status; a terminal one also completes the long-polls waiting for it. */
+    public void put(String txnId, TxnStatusEnum status, String reason) {
+        Cached cached = new Cached(status, reason);
+        // a PENDING read racing a completion must not overwrite the terminal status
+        local.asMap().merge(txnId, cached, (previous, next) -> previous.status().isTerminal() ? previous : next);
+        if (redisEnabled) {
+            try {
+                if (status.isTerminal()) {
+                    redisTemplate.opsForValue().set(KEY_PREFIX + txnId, cached.encode(), ttl(cached));
+                    redisTemplate.convertAndSend(channel, txnId);
+                } else {
+                    redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + txnId, cached.encode(), ttl(cached));
+                }
+            } catch (RuntimeException e) {
+                // the local entry still serves this node; other nodes fall back to the database
+                LOGGER.warn("Could not write status of txnId={} to Redis", txnId, e);
+            }
+        }
+        if (status.isTerminal()) {
+            complete(txnId, cached.toDto());
+        }
+    }
+
+    /** {@link #put} once the surrounding transaction commits (immediately when there is none). */
+    public void putAfterCommit(String txnId, TxnStatusEnum status, String reason) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(txnId, status, reason);
+                }
+            });
+        } else {
+            put(txnId, status, reason);
+        }
+    }
+
+    /**
+     * Completes with the terminal status of {@code txnId} once one is {@link #put}. Callers read the
+     * current status after registering, so a completion in between is not missed, and
+     * {@link #cancel} when they stop waiting.
+     */
+    public CompletableFuture<TxnStatusDto> awaitTerminal(String txnId) {
+        CompletableFuture<TxnStatusDto> waiter = new CompletableFuture<>();
+        waiters.compute(txnId, (id, list) -> {
+            List<CompletableFuture<TxnStatusDto>> parked = list != null ? list : new ArrayList<>(2);
+            parked.add(waiter);
+            return parked;
+        });
+        return waiter;
+    }
+
+    /** txnIds with at least one parked long-poll. */
+    public Set<String> awaitedTxnIds() {
+        return Set.copyOf(waiters.keySet());
+    }
+
+    public void cancel(String txnId, CompletableFuture<TxnStatusDto> waiter) {
+        waiters.computeIfPresent(txnId, (id, list) -> {
+            list.remove(waiter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private void complete(String txnId, TxnStatusDto status) {
+        List<CompletableFuture<TxnStatusDto>> parked = waiters.remove(txnId);
+        if (parked != null) {
+            for (CompletableFuture<TxnStatusDto> waiter : parked) {
+                waiter.complete(status);
+            }
+        }
+    }
+
+    private void onRemoteTerminal(String txnId) {
+        Cached cached = readRedis(txnId);
+        if (cached != null) {
+            local.put(txnId, cached);
+            complete(txnId, cached.toDto());
+        }
+    }
+
+    private Cached readRedis(String txnId) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + txnId);
+            return value != null ? Cached.decode(value) : null;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not read status of txnId={} from Redis", txnId, e);
+            return null;
+        }
+    }
+
+    private Duration ttl(Cached cached) {
+        return Duration.ofMillis(cached.status().isTerminal() ? terminalTtlMs : pendingTtlMs);
+    }
+
+    private record Cached(TxnStatusEnum status, String reason) {
+
+        TxnStatusDto toDto() {
+            TxnStatusDto dto = new TxnStatusDto();
+            dto.setStatus(status.toString());
+            dto.setReason(reason);
+            return dto;
+        }
+
+        String encode() {
+            return reason != null ? status + "|" + reason : status.toString();
+        }
+
+        static Cached decode(String value) {
+            int sep = value.indexOf('|');
+            return sep < 0
+                    ? new Cached(TxnStatusEnum.valueOf(value), null)
+                    : new Cached(TxnStatusEnum.valueOf(value.substring(0, sep)), value.substring(sep + 1));
+        }
+    }
+}
@@ -2,9 +2,14 @@ package com.wallet.transaction.web;
 
 import com.wallet.transaction.service.PaymentWebhookService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/payment")
 @RequiredArgsConstructor
@@ -12,10 +17,24 @@ public class WebhookController {
 
     private final PaymentWebhookService service;
 
+    @Value("${pg.webhook.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    // raw bytes: the signature is over the exact body, and no String copy is needed to verify or parse it
     @PostMapping("/webhook")
-    public ResponseEntity<Void> webhook(@RequestBody String rawBody,
-                                        @RequestHeader("X-PG-Signature") String signature) {
-        service.handle(rawBody, signature);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> webhook(@RequestBody byte[] rawBody,
+                                                           @RequestHeader("X-PG-Signature") String signature) {
+        CompletableFuture<Void> applied = service.submit(rawBody, signature);
+        if (applied == null) {
+            return CompletableFuture.completedFuture(unavailable());
+        }
+        // the request thread is released while the batch commits; 200 only once the update is durable
+        return applied.handle((ok, failure) -> failure == null ? ResponseEntity.ok().<Void>build() : unavailable());
+    }
+
+    private ResponseEntity<Void> unavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .build();
     }
 }
@@ -1,7 +1,9 @@
 package com.wallet.transaction.web.pg;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger; import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,41 +12,83 @@ import org.springframework.stereotype.Component;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 @Component
 @RequiredArgsConstructor
 public class HmacSignatureVerifier implements SignatureVerifier {
     private static final Logger log = LoggerFactory.getLogger(HmacSignatureVerifier.class);
+    private static final String ALGORITHM = "HmacSHA256";
     private final ObjectMapper objectMapper;
 
     @Value("${pg.webhook.secret:demo-secret}") private String secret; // set in properties
+    @Value("${pg.webhook.mac-pool-size:0}") private int macPoolSize;   // 0 = 2 x cores
+
+    // Mac.getInstance + init cost more than hashing a webhook body, so keyed Macs are reused (doFinal
+    // resets them). A bounded pool rather than a ThreadLocal: on virtual threads every request is a new
+    // thread, so a per-thread Mac would be built and thrown away each time.
+    private Mac prototype;
+    private BlockingQueue<Mac> idle;
+
+    @PostConstruct
+    void init() {
+        prototype = newMac();
+        idle = new ArrayBlockingQueue<>(macPoolSize > 0 ? macPoolSize : 2 * Runtime.getRuntime().availableProcessors());
+    }
 
     @Override
-    public PGWebhookPayload parseAndVerify(String rawBody, String signature) {
+    public PGWebhookPayload parseAndVerify(byte[] rawBody, String signature) {
+        if (!constantTimeEquals(sign(rawBody), signature)) {
+            throw new IllegalArgumentException("Invalid PG signature");
+        }
         try {
-            String expected = hmacSha256Hex(rawBody, secret);
-            if (!constantTimeEquals(expected, signature)) {
-                throw new IllegalArgumentException("Invalid PG signature");
-            }
             return objectMapper.readValue(rawBody, PGWebhookPayload.class);
         } catch (Exception e) {
             throw new IllegalArgumentException("Webhook verification/parsing failed", e);
         }
     }
 
-    private static String hmacSha256Hex(String data, String key) throws Exception {
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-        return Hex.encodeHexString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    private byte[] sign(byte[] rawBody) {
+        Mac mac = idle.poll();
+        if (mac == null) {
+            mac = copyOfPrototype();
+        }
+        try {
+            return mac.doFinal(rawBody);
+        } finally {
+            idle.offer(mac);    // dropped when the pool is full, so bursts do not grow it
+        }
     }
-    private static boolean constantTimeEquals(String a, String b) {
-        if (a == null || b == null) return false;
-        int result = 0;
-        for (int i = 0; i < Math.max(a.length(), b.length()); i++) {
-            char ca = i < a.length() ? a.charAt(i) : 0;
-            char cb = i < b.length() ? b.charAt(i) : 0;
-            result |= ca ^ cb;
+
+    // clone() copies the initialised key schedule, skipping the provider lookup and init
+    private Mac copyOfPrototype() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+        }
+    }
+
+    // compares the raw digest bytes, so the hex case of the header does not matter
+    private static boolean constantTimeEquals(byte[] expected, String signatureHex) {
+        if (signatureHex == null) return false;
+        try {
+            return MessageDigest.isEqual(expected, Hex.decodeHex(signatureHex));
+        } catch (DecoderException e) {
+            return false;
         }
-        return result == 0;
     }
 }
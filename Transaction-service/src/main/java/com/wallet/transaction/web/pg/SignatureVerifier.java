@@ -1,5 +1,11 @@
 package com.wallet.transaction.web.pg;
 
+import java.nio.charset.StandardCharsets;
+
 public interface SignatureVerifier {
-    PGWebhookPayload parseAndVerify(String rawBody, String signature);
+    PGWebhookPayload parseAndVerify(byte[] rawBody, String signature);
+
+    default PGWebhookPayload parseAndVerify(String rawBody, String signature) {
+        return parseAndVerify(rawBody.getBytes(StandardCharsets.UTF_8), signature);
+    }
 }
@@ -0,0 +1,36 @@
+-- One-time migration: partition `transaction` by month of date_created (UTC), for
+-- TransactionPartitionMaintenance (txn.partitions.*). Run it in a quiet period: PARTITION BY
+-- rebuilds the table. Start the new version of the service once first, so Hibernate has created
+-- txn_idempotency_key, txn_id_claim and uk_txn_txn_id, then run this and set
+-- txn.partitions.enabled=true.
+--
+-- MySQL requires every unique key of a partitioned table, the primary key included, to contain
+-- the partitioning column; the keys below are the ones that do not.
+
+-- 1. Idempotency keys now live in txn_idempotency_key; carry the existing ones over.
+INSERT IGNORE INTO txn_idempotency_key (from_user_id, idempotency_key, txn_id, to_user_id, amount_paise, created_at)
+SELECT from_user_id, idempotency_key, txn_id, to_user_id, ROUND(amount * 100), date_created
+FROM `transaction`
+WHERE idempotency_key IS NOT NULL;
+
+-- 2. txnIds are kept unique by txn_id_claim from here on; claim the existing ones.
+INSERT IGNORE INTO txn_id_claim (txn_id, claimed_at)
+SELECT txn_id, date_created FROM `transaction`;
+
+-- 3. Drop the unique keys without date_created and widen the primary key.
+--    <txn_id_unique> is the old single-column unique key on txn_id (SHOW INDEX FROM `transaction`).
+ALTER TABLE `transaction`
+    DROP INDEX uk_txn_idempotency,
+    DROP INDEX <txn_id_unique>,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, date_created);
+
+-- 4. One partition per month from the month of MIN(date_created) through next month, then pmax.
+--    The maintenance job adds later months (split off pmax) and archives expired ones.
+ALTER TABLE `transaction` PARTITION BY RANGE COLUMNS (date_created) (
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01 00:00:00'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01 00:00:00'),
+    -- ... one line per month ...
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01 00:00:00'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
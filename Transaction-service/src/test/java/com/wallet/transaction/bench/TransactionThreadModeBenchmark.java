@@ -0,0 +1,107 @@
+package com.wallet.transaction.bench;
+
+import com.wallet.transaction.TransactionApp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code POST /transaction-service/transaction} served on platform threads versus virtual threads
+ * ({@code spring.threads.virtual.enabled}). Each trial boots the service in-process in the
+ * {@code threads} mode on a random port, against the MySQL and Kafka of its application.properties,
+ * and {@value #CLIENTS} client threads post transfers back to back, more than Tomcat's 200 platform
+ * request threads. Each iteration prints the non-2xx responses it saw.
+ * Run from the test classpath: {@code java -cp <test classpath> org.openjdk.jmh.Main TransactionThreadModeBenchmark}
+ * (add {@code -t <n>} to change the client count). It inserts PENDING transactions between users
+ * {@code bench.from-user} and {@code bench.to-user} (default 1 and 2).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+@Threads(TransactionThreadModeBenchmark.CLIENTS)
+public class TransactionThreadModeBenchmark {
+
+    static final int CLIENTS = 400;
+
+    private static final String FROM_USER = System.getProperty("bench.from-user", "1");
+    private static final String TO_USER = System.getProperty("bench.to-user", "2");
+
+    @State(Scope.Benchmark)
+    public static class Service {
+
+        @Param({"platform", "virtual"})
+        String threads;
+
+        final AtomicLong errors = new AtomicLong();
+        ConfigurableApplicationContext context;
+        HttpClient httpClient;
+        URI endpoint;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(TransactionApp.class)
+                    .properties("spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                            "server.port=0",
+                            "logging.level.com.wallet=WARN")
+                    .run();
+            endpoint = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/transaction-service/transaction");
+            // the client side stays the same in both modes
+            httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        }
+
+        @Setup(Level.Iteration)
+        public void resetErrors() {
+            errors.set(0);
+        }
+
+        @TearDown(Level.Iteration)
+        public void reportErrors() {
+            System.out.printf("%n[%s] %d non-2xx responses%n", threads, errors.get());
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int initTransaction(Service service) throws Exception {
+        String body = "{\"fromUserId\":" + FROM_USER + ",\"toUserId\":" + TO_USER
+                + ",\"amount\":" + (1 + ThreadLocalRandom.current().nextInt(100)) + ".0,\"comment\":\"bench\"}";
+        HttpRequest request = HttpRequest.newBuilder(service.endpoint)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        int status = service.httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status / 100 != 2) {
+            service.errors.incrementAndGet();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,132 @@
+package com.wallet.transaction.bench;
+
+import com.wallet.code.id.UuidV7;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched inserts into a table with a unique txnId index, against a real MySQL, per id scheme:
+ * <ul>
+ *   <li>{@code random}: {@code UUID.randomUUID()} in a VARCHAR(36), as txnIds were generated before.</li>
+ *   <li>{@code v7}: {@link UuidV7#nextString()} in a VARCHAR(36), as txnIds are generated now.</li>
+ *   <li>{@code v7Binary}: {@link UuidV7} in a BINARY(16) ({@code UuidBinaryConverter}).</li>
+ * </ul>
+ * Each trial starts from an empty table and prints the table's rows and txnId index size at the
+ * end (InnoDB statistics after ANALYZE TABLE). Random keys split pages all over the index, so its
+ * size grows faster and inserts slow down once it no longer fits the buffer pool.
+ * Run from the test classpath:
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main TxnIdInsertBenchmark
+ * -jvmArgs -Dbench.jdbc.url=jdbc:mysql://localhost:3306/transactiondb?rewriteBatchedStatements=true}. It creates and drops
+ * {@value #TABLE}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+@Threads(8)
+public class TxnIdInsertBenchmark {
+
+    static final String TABLE = "bench_txn_id";
+    static final int BATCH = 100;
+
+    private static final String URL = System.getProperty("bench.jdbc.url",
+            "jdbc:mysql://localhost:3306/transactiondb?rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("bench.jdbc.user", "root");
+    private static final String PASSWORD = System.getProperty("bench.jdbc.password", "8870");
+
+    @State(Scope.Benchmark)
+    public static class Table {
+
+        @Param({"random", "v7", "v7Binary"})
+        String ids;
+
+        @Setup(Level.Trial)
+        public void create() throws SQLException {
+            String column = "v7Binary".equals(ids) ? "BINARY(16)" : "VARCHAR(36)";
+            try (Connection con = connect(); Statement st = con.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS " + TABLE);
+                st.execute("CREATE TABLE " + TABLE + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, txn_id " + column
+                        + " NOT NULL, amount DOUBLE NOT NULL, UNIQUE KEY uk_bench_txn_id (txn_id)) ENGINE=InnoDB");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void report() throws SQLException {
+            try (Connection con = connect(); Statement st = con.createStatement()) {
+                st.execute("ANALYZE TABLE " + TABLE);
+                try (ResultSet rs = st.executeQuery("SELECT COUNT(*), "
+                        + "(SELECT stat_value * @@innodb_page_size FROM mysql.innodb_index_stats "
+                        + " WHERE database_name = DATABASE() AND table_name = '" + TABLE + "' "
+                        + " AND index_name = 'uk_bench_txn_id' AND stat_name = 'size') "
+                        + "FROM " + TABLE)) {
+                    rs.next();
+                    long rows = rs.getLong(1);
+                    long indexBytes = rs.getLong(2);
+                    System.out.printf("%n[%s] %d rows, txnId index %.1f MiB (%.1f bytes/row)%n", ids, rows,
+                            indexBytes / 1048576.0, rows == 0 ? 0.0 : (double) indexBytes / rows);
+                }
+                st.execute("DROP TABLE " + TABLE);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        Connection con;
+        PreparedStatement insert;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            con = connect();
+            con.setAutoCommit(false);
+            insert = con.prepareStatement("INSERT INTO " + TABLE + " (txn_id, amount) VALUES (?, ?)");
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            con.close();
+        }
+    }
+
+    /** One operation is a committed batch of {@value #BATCH} rows. */
+    @Benchmark
+    public void insertBatch(Table table, Session session) throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            switch (table.ids) {
+                case "random" -> session.insert.setString(1, UUID.randomUUID().toString());
+                case "v7" -> session.insert.setString(1, UuidV7.nextString());
+                default -> session.insert.setBytes(1, UuidV7.toBytes(UuidV7.next()));
+            }
+            session.insert.setDouble(2, 10.0);
+            session.insert.addBatch();
+        }
+        session.insert.executeBatch();
+        session.con.commit();
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+}
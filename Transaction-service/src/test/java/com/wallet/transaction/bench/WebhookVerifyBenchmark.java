@@ -0,0 +1,110 @@
+package com.wallet.transaction.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.transaction.web.pg.HmacSignatureVerifier;
+import com.wallet.transaction.web.pg.PGWebhookPayload;
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verify + parse of one PG webhook body, per Mac strategy:
+ * <ul>
+ *   <li>{@code pooled}: {@link HmacSignatureVerifier} as shipped (bounded pool of keyed Macs).</li>
+ *   <li>{@code threadLocal}: one keyed Mac per thread; only this fast on long-lived platform threads.</li>
+ *   <li>{@code freshMac}: getInstance + init per request, which is what the ThreadLocal degrades to
+ *       with a virtual thread per request.</li>
+ * </ul>
+ * Run from the test classpath: {@code java -cp <test classpath> org.openjdk.jmh.Main WebhookVerifyBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class WebhookVerifyBenchmark {
+
+    private static final String SECRET = "bench-secret";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @State(Scope.Benchmark)
+    public static class Webhook {
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+        HmacSignatureVerifier verifier;
+        byte[] body;
+        String signature;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            body = ("{\"txnId\":\"0190f7c2-5b1e-7c3a-9d4e-2f6a8b0c1d2e\",\"status\":\"SUCCESS\",\"amount\":1499.5,"
+                    + "\"fromUserId\":1001,\"toUserId\":2002,\"pgRef\":\"pg_8f3k2j\","
+                    + "\"occurredAt\":\"2026-10-17T09:15:30Z\"}").getBytes(StandardCharsets.UTF_8);
+            signature = Hex.encodeHexString(newMac().doFinal(body));
+            verifier = new HmacSignatureVerifier(objectMapper);
+            ReflectionTestUtils.setField(verifier, "secret", SECRET);
+            ReflectionTestUtils.invokeMethod(verifier, "init");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        Mac mac;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            mac = newMac();
+        }
+    }
+
+    @Benchmark
+    public PGWebhookPayload pooled(Webhook webhook) {
+        return webhook.verifier.parseAndVerify(webhook.body, webhook.signature);
+    }
+
+    @Benchmark
+    public PGWebhookPayload threadLocal(Webhook webhook, PerThread thread) throws Exception {
+        return verifyAndParse(webhook, thread.mac);
+    }
+
+    @Benchmark
+    public PGWebhookPayload freshMac(Webhook webhook) throws Exception {
+        return verifyAndParse(webhook, newMac());
+    }
+
+    private static PGWebhookPayload verifyAndParse(Webhook webhook, Mac mac) throws Exception {
+        if (!MessageDigest.isEqual(mac.doFinal(webhook.body), Hex.decodeHex(webhook.signature))) {
+            throw new IllegalStateException("signature mismatch");
+        }
+        return webhook.objectMapper.readValue(webhook.body, PGWebhookPayload.class);
+    }
+
+    private static Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.wallet.transaction.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.code.dto.TxnCompletedPayload;
+import com.wallet.transaction.model.Transaction;
+import com.wallet.transaction.model.TxnStatusEnum;
+import com.wallet.transaction.repository.TransactionRepo;
+import com.wallet.transaction.service.OutboxRelay;
+import com.wallet.transaction.service.TransactionArchive;
+import com.wallet.transaction.service.TransactionService;
+import com.wallet.transaction.service.TxnIdClaims;
+import com.wallet.transaction.service.TxnStatusCache;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TXN-COMPLETED consumption against an embedded broker and H2 (MySQL mode): the batch listener's
+ * bulk UPDATEs versus the per-record findById + save listener. Both listeners share group "txn",
+ * so each test starts only the one it exercises.
+ */
+@SpringBootTest(classes = TxnCompletedConsumerTest.Consumers.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:txncompleted;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "txn.completed.batch.enabled=false"})
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers", topics = "TXN-COMPLETED")
+class TxnCompletedConsumerTest {
+
+    private static final int COMPLETIONS = 2_000;
+
+    @Configuration
+    @ImportAutoConfiguration({KafkaAutoConfiguration.class, JacksonAutoConfiguration.class,
+            DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Transaction.class)
+    @EnableJpaRepositories(basePackageClasses = TransactionRepo.class)
+    @Import({TransactionConfigKafkaConsumer.class, TransactionService.class})
+    static class Consumers {
+    }
+
+    @MockitoBean
+    private OutboxRelay outboxRelay;
+
+    @MockitoBean
+    private TxnStatusCache txnStatusCache;
+
+    @MockitoBean
+    private TransactionArchive transactionArchive;
+
+    @MockitoBean
+    private TxnIdClaims txnIdClaims;
+
+    @Autowired
+    private TransactionRepo transactionRepo;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Value("${txt.completed.topic}")
+    private String completedTopic;
+
+    @BeforeEach
+    void reset() {
+        registry.getListenerContainers().forEach(MessageListenerContainer::stop);
+        transactionRepo.deleteAllInBatch();
+    }
+
+    @Test
+    void batchSkipsTerminalRowsAndFirstCompletionWins() throws Exception {
+        List<Long> ids = seed(3);
+        long pending = ids.get(0);
+        long alreadyDone = ids.get(1);
+        long twice = ids.get(2);
+        Transaction done = transactionRepo.findById(alreadyDone).orElseThrow();
+        done.setStatus(TxnStatusEnum.SUCCESS);
+        transactionRepo.save(done);
+
+        MessageListenerContainer batch = container(true);
+        batch.start();
+        ContainerTestUtils.waitForAssignment(batch, 1);
+        try (Producer<String, String> producer = producer()) {
+            send(producer, completion(pending, true, null));
+            send(producer, completion(alreadyDone, false, "late failure"));
+            send(producer, completion(twice, false, "Insufficient balance"));
+            send(producer, completion(twice, true, null));
+        }
+        awaitNoPending(ids);
+
+        assertThat(transactionRepo.findById(pending).orElseThrow().getStatus()).isEqualTo(TxnStatusEnum.SUCCESS);
+        done = transactionRepo.findById(alreadyDone).orElseThrow();
+        assertThat(done.getStatus()).isEqualTo(TxnStatusEnum.SUCCESS);
+        assertThat(done.getReason()).isNull();
+        Transaction failed = transactionRepo.findById(twice).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(TxnStatusEnum.FAILED);
+        assertThat(failed.getReason()).isEqualTo("Insufficient balance");
+    }
+
+    @Test
+    void batchListenerOutrunsPerRecordListener() throws Exception {
+        List<Long> ids = seed(COMPLETIONS);
+
+        long perRecordNanos = drain(container(false), ids);
+        List<Transaction> rows = transactionRepo.findAll();
+        rows.forEach(row -> {
+            row.setStatus(TxnStatusEnum.PENDING);
+            row.setReason(null);
+        });
+        transactionRepo.saveAll(rows);
+        long batchNanos = drain(container(true), ids);
+
+        long perRecordRate = COMPLETIONS * TimeUnit.SECONDS.toNanos(1) / perRecordNanos;
+        long batchRate = COMPLETIONS * TimeUnit.SECONDS.toNanos(1) / batchNanos;
+        assertThat(batchRate)
+                .as("completions/s: batch %d vs per-record %d", batchRate, perRecordRate)
+                .isGreaterThan(perRecordRate);
+    }
+
+    /** Starts {@code container}, sends one completion per id and returns the time until none is PENDING. */
+    private long drain(MessageListenerContainer container, List<Long> ids) throws Exception {
+        container.start();
+        try {
+            ContainerTestUtils.waitForAssignment(container, 1);
+            long started = System.nanoTime();
+            try (Producer<String, String> producer = producer()) {
+                for (int i = 0; i < ids.size(); i++) {
+                    // every fifth transfer fails, so the batch path runs more than one UPDATE
+                    send(producer, completion(ids.get(i), i % 5 != 0, i % 5 != 0 ? null : "Insufficient balance"));
+                }
+            }
+            awaitNoPending(ids);
+            return System.nanoTime() - started;
+        } finally {
+            container.stop();
+        }
+    }
+
+    private void awaitNoPending(List<Long> ids) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < deadline) {
+            boolean pending = transactionRepo.findStatusesByIdIn(ids).stream()
+                    .anyMatch(row -> row[1] == TxnStatusEnum.PENDING);
+            if (!pending) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("completions for " + ids.size() + " transactions were not applied in time");
+    }
+
+    private MessageListenerContainer container(boolean batch) {
+        return registry.getListenerContainers().stream()
+                .filter(c -> (c.getContainerProperties().getMessageListener() instanceof BatchMessageListener) == batch)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<Long> seed(int count) {
+        List<Transaction> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setTxnId("txn-" + i);
+            transaction.setFromUserId(1L);
+            transaction.setToUserId(2L);
+            transaction.setAmount(10.0);
+            transaction.setStatus(TxnStatusEnum.PENDING);
+            rows.add(transaction);
+        }
+        return transactionRepo.saveAll(rows).stream().map(Transaction::getId).toList();
+    }
+
+    private TxnCompletedPayload completion(long id, boolean success, String reason) {
+        TxnCompletedPayload completion = new TxnCompletedPayload();
+        completion.setId(id);
+        completion.setRequestId("txn-" + id);
+        completion.setSuccess(success);
+        completion.setReason(reason);
+        completion.setAmount(1_000L);
+        return completion;
+    }
+
+    private void send(Producer<String, String> producer, TxnCompletedPayload completion) throws Exception {
+        producer.send(new ProducerRecord<>(completedTopic, completion.getRequestId(),
+                objectMapper.writeValueAsString(completion)));
+    }
+
+    private Producer<String, String> producer() {
+        Map<String, Object> props = new HashMap<>(KafkaTestUtils.producerProps(broker));
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return new KafkaProducer<>(props);
+    }
+}
@@ -0,0 +1,66 @@
+package com.wallet.transaction.service;
+
+import com.wallet.code.id.UuidV7;
+import com.wallet.code.partition.MonthlyPartitions;
+import com.wallet.transaction.model.TxnStatusEnum;
+import com.wallet.transaction.repository.TransactionRepo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceRecheckTest {
+
+    @Mock
+    private TransactionRepo transactionRepo;
+
+    @Mock
+    private TxnStatusCache txnStatusCache;
+
+    @InjectMocks
+    private TransactionService transactionService;
+
+    @Test
+    void awaitedUuidV7TxnIdsAreReadFromTheOldestOnesMonthOn() {
+        String older = UuidV7.nextString();
+        String newer = UuidV7.nextString();
+        when(txnStatusCache.awaitedTxnIds()).thenReturn(Set.of(newer, older));
+        when(transactionRepo.findStatusesByTxnIdInCreatedSince(List.of(older, newer),
+                MonthlyPartitions.createdNotBefore(older).atOffset(ZoneOffset.UTC)))
+                .thenReturn(List.<Object[]>of(new Object[]{older, TxnStatusEnum.SUCCESS, null},
+                        new Object[]{newer, TxnStatusEnum.PENDING, null}));
+
+        transactionService.recheckAwaited();
+
+        verify(txnStatusCache).put(older, TxnStatusEnum.SUCCESS, null);
+        verify(txnStatusCache, never()).put(eq(newer), any(), any());
+        verify(transactionRepo, never()).findStatusesByTxnIdIn(anyCollection());
+    }
+
+    @Test
+    void legacyTxnIdsFallBackToTheUnboundedLookup() {
+        String legacy = "3f2b8c1e-0d4a-4b6e-9a51-7c2d9e8f1a03";
+        String v7 = UuidV7.nextString();
+        when(txnStatusCache.awaitedTxnIds()).thenReturn(Set.of(legacy, v7));
+        when(transactionRepo.findStatusesByTxnIdIn(List.of(v7, legacy)))
+                .thenReturn(List.<Object[]>of(new Object[]{legacy, TxnStatusEnum.FAILED, "Insufficient balance"}));
+
+        transactionService.recheckAwaited();
+
+        verify(txnStatusCache).put(legacy, TxnStatusEnum.FAILED, "Insufficient balance");
+        verify(transactionRepo, never()).findStatusesByTxnIdInCreatedSince(anyCollection(), any());
+    }
+}
@@ -13,13 +13,15 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+// unique keys of a month-partitioned table must include the partitioning column (createdOn)
+@Table(indexes = @Index(name = "uk_pg_txn_txn_id", columnList = "txnId, createdOn", unique = true))
 public class Transaction {
     @Id
     @Column(name = "id", nullable = false)
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String txnId;
 
     @Column(nullable = false)
@@ -50,7 +52,8 @@ public class Transaction {
     private String status;
 
     @CreationTimestamp
-    private Date createdOn;
+    @Column(nullable = false, updatable = false)
+    private Date createdOn;      // partitioning column, see db/partition-transaction.sql
 
     @UpdateTimestamp
     private Date updatedOn;
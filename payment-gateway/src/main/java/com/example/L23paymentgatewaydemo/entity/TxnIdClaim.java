@@ -0,0 +1,38 @@
+package com.example.L23paymentgatewaydemo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+/**
+ * One row per txnId ever issued, saved in the same DB transaction as its {@link Transaction}. The
+ * month-partitioned {@code transaction} table can only have unique keys that include createdOn, so
+ * txnId uniqueness is enforced by this table's primary key instead, before and after the migration.
+ * A claim is always new, so saving one is a plain INSERT and a reused txnId fails on the key.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "txn_id_claim")
+public class TxnIdClaim implements Persistable<String> {
+
+    @Id
+    private String txnId;
+
+    @Column(nullable = false)
+    private Date claimedOn;
+
+    @Override
+    public String getId() {
+        return txnId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
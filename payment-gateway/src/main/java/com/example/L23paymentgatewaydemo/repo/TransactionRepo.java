@@ -4,7 +4,12 @@ import com.example.L23paymentgatewaydemo.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+
 @Repository
 public interface TransactionRepo extends JpaRepository<Transaction, Long> {
     Transaction findByTxnId(String txnId);
+
+    // lower bound on createdOn lets MySQL skip the month partitions older than the txnId
+    Transaction findByTxnIdAndCreatedOnGreaterThanEqual(String txnId, Date notBefore);
 }
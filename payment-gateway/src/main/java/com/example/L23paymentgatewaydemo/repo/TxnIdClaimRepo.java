@@ -0,0 +1,9 @@
+package com.example.L23paymentgatewaydemo.repo;
+
+import com.example.L23paymentgatewaydemo.entity.TxnIdClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TxnIdClaimRepo extends JpaRepository<TxnIdClaim, String> {
+}
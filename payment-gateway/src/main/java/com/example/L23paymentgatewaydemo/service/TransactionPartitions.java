@@ -0,0 +1,69 @@
+package com.example.L23paymentgatewaydemo.service;
+
+import com.example.L23paymentgatewaydemo.dto.TransactionDetailDto;
+import com.wallet.code.partition.MonthlyPartitions;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Monthly partitions of the {@code transaction} table (one-time migration: db/partition-transaction.sql).
+ * Keeps future months created and moves months past the retention window into the archive table,
+ * which {@link #findArchived} reads when a status lookup misses the live table.
+ */
+@Service
+public class TransactionPartitions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionPartitions.class);
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Value("${pg.partitions.enabled:false}")                       private boolean enabled;
+    @Value("${pg.partitions.months-ahead:3}")                      private int monthsAhead;
+    @Value("${pg.partitions.retention-months:12}")                 private int retentionMonths;
+    @Value("${pg.partitions.archive-table:transaction_archive}")   private String archiveTable;
+
+    private MonthlyPartitions partitions;
+
+    @PostConstruct
+    void init() {
+        partitions = new MonthlyPartitions(jdbcTemplate, "transaction", archiveTable, monthsAhead, retentionMonths);
+    }
+
+    @Scheduled(initialDelayString = "${pg.partitions.initial-delay-ms:60000}",
+            fixedDelayString = "${pg.partitions.interval-ms:3600000}")
+    public void maintain() {
+        if (!enabled) return;
+        try {
+            partitions.maintain();
+        } catch (RuntimeException e) {
+            LOGGER.error("Transaction partition maintenance failed; retrying next interval", e);
+        }
+    }
+
+    /** Status of an archived transaction, or null if it is not in the archive (or nothing was archived yet). */
+    public TransactionDetailDto findArchived(String txnId) {
+        if (!enabled) return null;
+        try {
+            List<TransactionDetailDto> found = jdbcTemplate.query(
+                    "SELECT status, user_id, amount FROM `" + archiveTable + "` WHERE txn_id = ?",
+                    (rs, i) -> TransactionDetailDto.builder()
+                            .status(rs.getString("status"))
+                            .userId(rs.getLong("user_id"))
+                            .amount(rs.getDouble("amount"))
+                            .build(),
+                    txnId);
+            return found.isEmpty() ? null : found.get(0);
+        } catch (BadSqlGrammarException e) {
+            return null;    // archive table not created yet
+        }
+    }
+}
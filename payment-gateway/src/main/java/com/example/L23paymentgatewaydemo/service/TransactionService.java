@@ -5,14 +5,19 @@ import com.example.L23paymentgatewaydemo.dto.PaymentPageRequest;
 import com.example.L23paymentgatewaydemo.dto.TransactionDetailDto;
 import com.example.L23paymentgatewaydemo.entity.Merchant;
 import com.example.L23paymentgatewaydemo.entity.Transaction;
+import com.example.L23paymentgatewaydemo.entity.TxnIdClaim;
 import com.example.L23paymentgatewaydemo.repo.MerchantRepo;
 import com.example.L23paymentgatewaydemo.repo.TransactionRepo;
+import com.example.L23paymentgatewaydemo.repo.TxnIdClaimRepo;
 import com.razorpay.Order;
 import com.razorpay.RazorpayClient;
+import com.wallet.code.id.UuidV7;
+import com.wallet.code.partition.MonthlyPartitions;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
 import javax.crypto.Mac;
@@ -20,15 +25,18 @@ import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
 import java.util.HexFormat;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 public class TransactionService {
 
     @Autowired private TransactionRepo transactionRepo;
     @Autowired private MerchantRepo merchantRepo;
+    @Autowired private TransactionPartitions transactionPartitions;
+    @Autowired private TxnIdClaimRepo txnIdClaimRepo;
 
     @Value("${razorpay.key_id}")         private String keyId;
     @Value("${razorpay.key_secret}")     private String keySecret;
@@ -36,7 +44,13 @@ public class TransactionService {
     @Value("${razorpay.currency:INR}")   private String currency;
 
     public TransactionDetailDto getStatus(String txnId){
-        Transaction t = getTransaction(txnId);
+        Transaction t = findTransaction(txnId);
+        if (t == null) {
+            // months past the retention window are only in the archive
+            TransactionDetailDto archived = transactionPartitions.findArchived(txnId);
+            if (archived == null) throw new IllegalArgumentException("Invalid txnId: " + txnId);
+            return archived;
+        }
         return TransactionDetailDto.builder()
                 .userId(t.getUserId())
                 .status(t.getStatus())
@@ -45,12 +59,21 @@ public class TransactionService {
     }
 
     public Transaction getTransaction(String txnId){
-        Transaction t = transactionRepo.findByTxnId(txnId);
+        Transaction t = findTransaction(txnId);
         if (t == null) throw new IllegalArgumentException("Invalid txnId: " + txnId);
         return t;
     }
 
+    /** Live-table lookup; a UUIDv7 txnId bounds createdOn, so only the partitions from its month on are read. */
+    private Transaction findTransaction(String txnId){
+        Instant notBefore = MonthlyPartitions.createdNotBefore(txnId);
+        return notBefore != null
+                ? transactionRepo.findByTxnIdAndCreatedOnGreaterThanEqual(txnId, Date.from(notBefore))
+                : transactionRepo.findByTxnId(txnId);
+    }
+
     /** Called by merchant app to start a payment page flow. */
+    @Transactional
     public PaymentInitResponse generatePaymentPage(PaymentPageRequest req){
         Assert.notNull(req.getMerchantId(), "merchantId required");
         Assert.notNull(req.getAmount(), "amount required");
@@ -59,7 +82,7 @@ public class TransactionService {
         merchantRepo.findById(req.getMerchantId())
                 .orElseThrow(() -> new IllegalArgumentException("Merchant not found: " + req.getMerchantId()));
 
-        String txnId = UUID.randomUUID().toString();
+        String txnId = UuidV7.nextString();   // time-ordered: inserts append to the txnId index
 
         Transaction t = Transaction.builder()
                 .merchantId(req.getMerchantId())
@@ -69,6 +92,8 @@ public class TransactionService {
                 .currency(currency)
                 .status("PENDING")
                 .build();
+        // txn_id_claim's primary key keeps txnIds unique; the partitioned table's keys cannot
+        txnIdClaimRepo.save(new TxnIdClaim(txnId, new Date()));
         transactionRepo.save(t);
 
         String url = "http://localhost:9090/payment-page/" + txnId;
@@ -0,0 +1,30 @@
+-- One-time migration: partition the gateway's `transaction` table by month of created_on, for
+-- TransactionPartitions (pg.partitions.*). Run it in a quiet period: PARTITION BY rebuilds the
+-- table. Start the new version once first, so Hibernate has created uk_pg_txn_txn_id and
+-- txn_id_claim, then run this and set pg.partitions.enabled=true.
+--
+-- MySQL requires every unique key of a partitioned table, the primary key included, to contain
+-- the partitioning column, and the column itself must be NOT NULL.
+
+UPDATE `transaction` SET created_on = COALESCE(updated_on, NOW(6)) WHERE created_on IS NULL;
+
+-- txnIds are kept unique by txn_id_claim from here on; claim the existing ones.
+INSERT IGNORE INTO txn_id_claim (txn_id, claimed_on)
+SELECT txn_id, created_on FROM `transaction`;
+
+-- <txn_id_unique> is the old single-column unique key on txn_id (SHOW INDEX FROM `transaction`).
+ALTER TABLE `transaction`
+    MODIFY created_on DATETIME(6) NOT NULL,
+    DROP INDEX <txn_id_unique>,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_on);
+
+-- One partition per month from the month of MIN(created_on) through next month, then pmax.
+-- TransactionPartitions adds later months (split off pmax) and archives expired ones.
+ALTER TABLE `transaction` PARTITION BY RANGE COLUMNS (created_on) (
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01 00:00:00'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01 00:00:00'),
+    -- ... one line per month ...
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01 00:00:00'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,100 @@
+package com.wallet.user.bench;
+
+import com.wallet.user.UserApp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code GET /user-service/profile/{id}} (Redis read plus the Feign balance call to wallet-service)
+ * served on platform threads versus virtual threads ({@code spring.threads.virtual.enabled}). Each
+ * trial boots the service in-process in the {@code threads} mode on a random port, against the
+ * MySQL, Redis and wallet-service of its application.properties, and {@value #CLIENTS} client
+ * threads fetch the profile back to back, more than Tomcat's 200 platform request threads. Each
+ * iteration prints the non-2xx responses it saw.
+ * Run from the test classpath: {@code java -cp <test classpath> org.openjdk.jmh.Main ProfileThreadModeBenchmark}
+ * (add {@code -t <n>} to change the client count). The user is {@code bench.user-id} (default 1).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+@Threads(ProfileThreadModeBenchmark.CLIENTS)
+public class ProfileThreadModeBenchmark {
+
+    static final int CLIENTS = 400;
+
+    private static final String USER_ID = System.getProperty("bench.user-id", "1");
+
+    @State(Scope.Benchmark)
+    public static class Service {
+
+        @Param({"platform", "virtual"})
+        String threads;
+
+        final AtomicLong errors = new AtomicLong();
+        ConfigurableApplicationContext context;
+        HttpClient httpClient;
+        HttpRequest profile;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(UserApp.class)
+                    .properties("spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                            "server.port=0",
+                            "logging.level.com.wallet=WARN")
+                    .run();
+            profile = HttpRequest.newBuilder(URI.create("http://localhost:"
+                    + context.getEnvironment().getProperty("local.server.port") + "/user-service/profile/" + USER_ID))
+                    .GET().build();
+            // the client side stays the same in both modes
+            httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        }
+
+        @Setup(Level.Iteration)
+        public void resetErrors() {
+            errors.set(0);
+        }
+
+        @TearDown(Level.Iteration)
+        public void reportErrors() {
+            System.out.printf("%n[%s] %d non-2xx responses%n", threads, errors.get());
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int getProfile(Service service) throws Exception {
+        int status = service.httpClient.send(service.profile, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status / 100 != 2) {
+            service.errors.incrementAndGet();
+        }
+        return status;
+    }
+}
@@ -1,25 +1,42 @@
 package com.wallet.service.Model;
 
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.money.PaiseDecimalConverter;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.Instant;
 
+/**
+ * Append-only, double-entry ledger: every balance mutation writes one row per wallet leg
+ * (a P2P transfer writes a DEBIT for the payer and a CREDIT for the payee under the same txnId),
+ * so summing a wallet's rows rebuilds its balance. Rows are never updated or deleted.
+ */
 @Entity
-@Table(name = "wallet_ledger", uniqueConstraints = @UniqueConstraint(name="uk_ledger_txn", columnNames = "txnId"))
+@Table(name = "wallet_ledger",
+        uniqueConstraints = @UniqueConstraint(name="uk_ledger_txn", columnNames = {"txnId", "direction"}),
+        indexes = {
+                @Index(name = "idx_ledger_user_id", columnList = "userId, id"),
+                // statement pages seek on (createdAt, id) within a user and read rows in index order
+                @Index(name = "idx_ledger_user_created", columnList = "userId, createdAt, id")})
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class LedgerEntry {
+
+    public static final String CREDIT = "CREDIT";
+    public static final String DEBIT = "DEBIT";
+
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(nullable=false, length=64)
-    private String txnId;          // UNIQUE
+    private String txnId;          // UNIQUE per direction
 
     @Column(nullable=false)
     private Long userId;
 
-    @Column(nullable=false)
-    private Double amount;
+    @Convert(converter = PaiseDecimalConverter.class)
+    @Column(nullable=false, precision=19, scale=2)
+    private long amount;           // paise, always positive
 
     @Column(nullable=false, length=6)
     private String direction;      // "CREDIT" / "DEBIT"
@@ -27,9 +44,40 @@ public class LedgerEntry {
     @Column(nullable=false)
     private Instant createdAt;
 
-    public static LedgerEntry credit(String txnId, Long userId, Double amount) {
+    public static LedgerEntry credit(String txnId, Long userId, long amount) {
         return LedgerEntry.builder()
                 .txnId(txnId).userId(userId).amount(amount)
-                .direction("CREDIT").createdAt(Instant.now()).build();
+                .direction(CREDIT).createdAt(Instant.now()).build();
+    }
+
+    public static LedgerEntry debit(String txnId, Long userId, long amount) {
+        return LedgerEntry.builder()
+                .txnId(txnId).userId(userId).amount(amount)
+                .direction(DEBIT).createdAt(Instant.now()).build();
+    }
+
+    /** The initial balance a wallet is provisioned with. */
+    public static LedgerEntry opening(Long userId, long amount) {
+        return credit("OPEN-" + userId, userId, amount);
+    }
+
+    /** Puts back the debit leg of a transfer whose credit leg could not be applied. */
+    public static LedgerEntry refund(String txnId, Long userId, long amount) {
+        return credit(refundTxnIdOf(txnId), userId, amount);
+    }
+
+    /** Ledger key of the refund of transfer {@code txnId}. */
+    public static String refundTxnIdOf(String txnId) {
+        return "RFD-" + txnId;
+    }
+
+    /** Ledger key of a P2P transfer: the transaction-service txnId, carried as the requestId. */
+    public static String txnIdOf(TxnInitPayload txn) {
+        return txn.getRequestId() != null ? txn.getRequestId() : "TXN-" + txn.getId();
+    }
+
+    /** Effect of this row on the wallet balance, in paise. */
+    public long signedAmount() {
+        return DEBIT.equals(direction) ? -amount : amount;
     }
 }
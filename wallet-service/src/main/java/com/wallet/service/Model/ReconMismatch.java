@@ -0,0 +1,36 @@
+package com.wallet.service.Model;
+
+import com.wallet.code.money.PaiseDecimalConverter;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A wallet whose stored balance (row + hot slots) differs from the net of its ledger rows, or
+ * ledger rows whose wallet does not exist ({@code walletBalance} null).
+ */
+@Entity
+@Table(name = "wallet_recon_mismatch", indexes = @Index(name = "idx_recon_run_user", columnList = "runId, userId"))
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class ReconMismatch {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable=false)
+    private Long runId;
+
+    @Column(nullable=false)
+    private Long userId;
+
+    @Convert(converter = PaiseDecimalConverter.class)
+    @Column(precision=19, scale=2)
+    private Long walletBalance;    // paise; null for ledger rows without a wallet
+
+    @Convert(converter = PaiseDecimalConverter.class)
+    @Column(nullable=false, precision=19, scale=2)
+    private long ledgerBalance;    // paise, hot ledger + archive
+
+    @Column(nullable=false)
+    private Instant detectedAt;
+}
@@ -0,0 +1,42 @@
+package com.wallet.service.Model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/** One pass of the ledger-vs-balance reconciliation job; its findings are {@link ReconMismatch} rows. */
+@Entity
+@Table(name = "wallet_recon_run")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class ReconRun {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String ABORTED = "ABORTED";     // node stopped mid-run
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable=false, length=16)
+    private String status;
+
+    @Column(length=64)
+    private String node;            // host that runs it; only that node (or staleness) aborts it
+
+    @Column(nullable=false)
+    private Instant startedAt;
+
+    private Instant heartbeatAt;    // bumped after every chunk while RUNNING
+
+    private Instant finishedAt;
+
+    private long walletsScanned;
+
+    private long ledgerRows;
+
+    private long mismatches;       // confirmed after the re-check; may exceed the rows recorded
+
+    private double rowsPerSecond;  // wallet + ledger rows read, over the whole run
+}
@@ -1,5 +1,6 @@
 package com.wallet.service.Model;
 
+import com.wallet.code.money.PaiseDecimalConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,10 +26,15 @@ public class Wallet {
 
     private String userEmail;
 
-    private Double balance;
+    @Convert(converter = PaiseDecimalConverter.class)
+    @Column(nullable = false, precision = 19, scale = 2)
+    private long balance;           // paise
 
     private String RequestId;
 
+    // > 0 when credits are striped across that many wallet_balance_slot rows (see HotWalletService)
+    private Integer hotSlots;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private OffsetDateTime dateCreated;
@@ -0,0 +1,31 @@
+package com.wallet.service.Model;
+
+import com.wallet.code.money.PaiseDecimalConverter;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One sub-balance of a hot wallet. Credits to a hot wallet land on a random slot instead of the
+ * {@code wallet} row, so concurrent credits contend on different rows; the wallet's spendable
+ * balance is its own row plus all of its slots.
+ */
+@Entity
+@Table(name = "wallet_balance_slot",
+        uniqueConstraints = @UniqueConstraint(name = "uk_slot_user_slot", columnNames = {"userId", "slot"}))
+@Getter @Setter @NoArgsConstructor
+public class WalletSlot {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Convert(converter = PaiseDecimalConverter.class)
+    @Column(nullable = false, precision = 19, scale = 2)
+    private long balance;          // paise
+}
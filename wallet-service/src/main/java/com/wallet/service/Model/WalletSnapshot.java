@@ -0,0 +1,39 @@
+package com.wallet.service.Model;
+
+import com.wallet.code.money.PaiseDecimalConverter;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Balance of a wallet after applying every ledger row up to {@code lastLedgerId}. Snapshots are
+ * append-only; a balance as of any time is the latest snapshot at or before it plus the ledger
+ * rows recorded after it.
+ */
+@Entity
+@Table(name = "wallet_balance_snapshot", indexes = {
+        @Index(name = "idx_snapshot_user_ledger", columnList = "userId, lastLedgerId"),
+        @Index(name = "idx_snapshot_user_at", columnList = "userId, lastLedgerAt"),
+        @Index(name = "idx_snapshot_ledger", columnList = "lastLedgerId")})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class WalletSnapshot {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable=false)
+    private Long userId;
+
+    @Convert(converter = PaiseDecimalConverter.class)
+    @Column(nullable=false, precision=19, scale=2)
+    private long balance;          // paise
+
+    @Column(nullable=false)
+    private Long lastLedgerId;     // every ledger row with id <= this is folded in
+
+    @Column(nullable=false)
+    private Instant lastLedgerAt;  // newest createdAt among this wallet's folded-in rows
+
+    @Column(nullable=false)
+    private Instant createdAt;
+}
@@ -0,0 +1,51 @@
+package com.wallet.service.Repository;
+
+import com.wallet.code.money.Money;
+import com.wallet.service.Model.LedgerEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Appends ledger rows with one JDBC batch instead of one IDENTITY insert per row (Hibernate
+ * cannot batch those). Must be called inside the transaction that applies the balance change.
+ */
+@Repository
+public class LedgerBatchWriter {
+
+    private static final String COLUMNS = " INTO wallet_ledger (txn_id, user_id, amount, direction, created_at)"
+            + " VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Fails with a DuplicateKeyException if a (txnId, direction) leg was already recorded. */
+    public void append(List<LedgerEntry> entries) {
+        write("INSERT" + COLUMNS, entries);
+    }
+
+    /** Silently skips legs that were already recorded. */
+    public void appendIgnoringDuplicates(List<LedgerEntry> entries) {
+        write("INSERT IGNORE" + COLUMNS, entries);
+    }
+
+    private void write(String sql, List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        // same UTC convention Hibernate uses when it writes Instant columns
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        jdbcTemplate.batchUpdate(sql, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getTxnId());
+            ps.setLong(2, entry.getUserId());
+            ps.setBigDecimal(3, Money.toDecimal(entry.getAmount()));
+            ps.setString(4, entry.getDirection());
+            ps.setTimestamp(5, Timestamp.from(entry.getCreatedAt()), utc);
+        });
+    }
+}
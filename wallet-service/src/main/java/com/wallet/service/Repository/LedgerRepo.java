@@ -2,7 +2,22 @@ package com.wallet.service.Repository;
 
 import com.wallet.service.Model.LedgerEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 
 public interface LedgerRepo extends JpaRepository<LedgerEntry, Long> {
     boolean existsByTxnId(String txnId);
+
+    /** Directions of the legs recorded under {@code txnId}; empty once they were archived. */
+    @Query("select l.direction from LedgerEntry l where l.txnId = :txnId")
+    List<String> findDirectionsByTxnId(@Param("txnId") String txnId);
+
+    /** Net rupee movement of a wallet over ledger ids after {@code afterId}, up to time {@code at}. */
+    @Query(value = "SELECT COALESCE(SUM(CASE WHEN direction = 'DEBIT' THEN -amount ELSE amount END), 0) "
+            + "FROM wallet_ledger WHERE user_id = :userId AND id > :afterId AND created_at <= :at", nativeQuery = true)
+    BigDecimal sumSince(@Param("userId") Long userId, @Param("afterId") long afterId, @Param("at") Instant at);
 }
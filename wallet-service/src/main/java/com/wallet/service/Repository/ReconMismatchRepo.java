@@ -0,0 +1,12 @@
+package com.wallet.service.Repository;
+
+import com.wallet.service.Model.ReconMismatch;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ReconMismatchRepo extends JpaRepository<ReconMismatch, Long> {
+
+    List<ReconMismatch> findByRunIdOrderByUserId(Long runId, Pageable pageable);
+}
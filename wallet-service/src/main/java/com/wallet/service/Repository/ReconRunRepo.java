@@ -0,0 +1,31 @@
+package com.wallet.service.Repository;
+
+import com.wallet.service.Model.ReconRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface ReconRunRepo extends JpaRepository<ReconRun, Long> {
+
+    ReconRun findFirstByOrderByIdDesc();
+
+    /**
+     * Aborts runs left RUNNING by this node before it restarted, and runs of any node that stopped
+     * heartbeating before {@code staleBefore}, finishing them at {@code now}. Live runs of other nodes
+     * are not touched.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ReconRun r set r.status = 'ABORTED', r.finishedAt = :now where r.status = 'RUNNING' "
+            + "and (r.node = :node or r.node is null or coalesce(r.heartbeatAt, r.startedAt) < :staleBefore)")
+    int abortRunning(@Param("node") String node, @Param("staleBefore") Instant staleBefore, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update ReconRun r set r.heartbeatAt = :at where r.id = :id")
+    int heartbeat(@Param("id") Long id, @Param("at") Instant at);
+}
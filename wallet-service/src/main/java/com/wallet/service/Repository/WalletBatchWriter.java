@@ -0,0 +1,48 @@
+package com.wallet.service.Repository;
+
+import com.wallet.code.money.Money;
+import com.wallet.service.Model.Wallet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Creates wallets with one multi-row INSERT instead of one IDENTITY insert (and one lookup) per
+ * user. Rows whose user_id already exists are skipped by the unique key, so no SELECT is needed.
+ */
+@Repository
+public class WalletBatchWriter {
+
+    private static final String INSERT_PREFIX =
+            "INSERT IGNORE INTO wallet (user_id, user_email, balance, request_id, date_created, last_updated) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6))";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Returns how many wallets were actually created. */
+    public int insertIfAbsent(List<Wallet> wallets) {
+        if (wallets.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + wallets.size() * (ROW.length() + 1))
+                .append(INSERT_PREFIX);
+        for (int i = 0; i < wallets.size(); i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW);
+        }
+        return jdbcTemplate.update(sql.toString(), ps -> {
+            int p = 1;
+            for (Wallet wallet : wallets) {
+                ps.setLong(p++, wallet.getUserId());
+                ps.setString(p++, wallet.getUserEmail());
+                ps.setBigDecimal(p++, Money.toDecimal(wallet.getBalance()));
+                ps.setString(p++, wallet.getRequestId());
+            }
+        });
+    }
+}
@@ -1,12 +1,63 @@
 package com.wallet.service.Repository;
 
 import com.wallet.service.Model.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface WalletRepo extends JpaRepository<Wallet,Long> {
 
     Wallet findByUserId(Long userId);
 
+    List<Wallet> findByUserIdIn(Collection<Long> userIds);
+
+    // amounts are paise; the balance column holds DECIMAL rupees
+
+    /** Debits only if the balance covers the amount; returns 0 when it does not (or the wallet is missing). */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE wallet SET balance = balance - :amount / 100, last_updated = CURRENT_TIMESTAMP(6) "
+            + "WHERE user_id = :userId AND balance >= :amount / 100", nativeQuery = true)
+    int debitIfSufficient(@Param("userId") Long userId, @Param("amount") long amount);
+
+    /** Unconditional credit; returns 0 when the wallet is missing. */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE wallet SET balance = balance + :amount / 100, last_updated = CURRENT_TIMESTAMP(6) "
+            + "WHERE user_id = :userId", nativeQuery = true)
+    int credit(@Param("userId") Long userId, @Param("amount") long amount);
+
+    // rows are locked in userId order so concurrent batches cannot deadlock each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from Wallet w where w.userId in :userIds order by w.userId")
+    List<Wallet> lockByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from Wallet w where w.userId = :userId")
+    Wallet lockByUserId(@Param("userId") Long userId);
+
+    @Query("select w.userId, w.hotSlots from Wallet w where w.hotSlots > 0")
+    List<Object[]> findHotSlots();
+
+    // native so a managed Wallet is never flushed over a balance another statement just changed
+    @Modifying
+    @Query(value = "UPDATE wallet SET hot_slots = :slots WHERE user_id = :userId", nativeQuery = true)
+    int updateHotSlots(@Param("userId") Long userId, @Param("slots") Integer slots);
+
+    /** Moves swept slot balances onto the wallet row. */
+    @Modifying
+    @Query(value = "UPDATE wallet SET balance = balance + :amount, last_updated = CURRENT_TIMESTAMP(6) "
+            + "WHERE user_id = :userId", nativeQuery = true)
+    int addRupees(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
 }
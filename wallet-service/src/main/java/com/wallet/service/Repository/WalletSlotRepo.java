@@ -0,0 +1,46 @@
+package com.wallet.service.Repository;
+
+import com.wallet.service.Model.WalletSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WalletSlotRepo extends JpaRepository<WalletSlot, Long> {
+
+    // amounts are paise; the balance column holds DECIMAL rupees
+
+    /** Credits one slot; returns 0 when the slot does not exist (wallet not, or no longer, hot). */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE wallet_balance_slot SET balance = balance + :amount / 100 "
+            + "WHERE user_id = :userId AND slot = :slot", nativeQuery = true)
+    int credit(@Param("userId") Long userId, @Param("slot") int slot, @Param("amount") long amount);
+
+    /** Locks the wallet's slots and returns their balances in rupees. Callers must hold the wallet row lock first. */
+    @Query(value = "SELECT balance FROM wallet_balance_slot WHERE user_id = :userId ORDER BY slot FOR UPDATE",
+            nativeQuery = true)
+    List<BigDecimal> lockBalances(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COALESCE(SUM(balance), 0) FROM wallet_balance_slot WHERE user_id = :userId", nativeQuery = true)
+    BigDecimal sumByUserId(@Param("userId") Long userId);
+
+    @Query(value = "SELECT user_id, COALESCE(SUM(balance), 0) FROM wallet_balance_slot "
+            + "WHERE user_id IN (:userIds) GROUP BY user_id", nativeQuery = true)
+    List<Object[]> sumByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "UPDATE wallet_balance_slot SET balance = 0 WHERE user_id = :userId", nativeQuery = true)
+    int clear(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM wallet_balance_slot WHERE user_id = :userId", nativeQuery = true)
+    int deleteByUser(@Param("userId") Long userId);
+}
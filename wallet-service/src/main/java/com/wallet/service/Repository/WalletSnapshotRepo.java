@@ -0,0 +1,23 @@
+package com.wallet.service.Repository;
+
+import com.wallet.service.Model.WalletSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface WalletSnapshotRepo extends JpaRepository<WalletSnapshot, Long> {
+
+    WalletSnapshot findFirstByUserIdAndLastLedgerAtLessThanEqualOrderByLastLedgerIdDesc(Long userId, Instant at);
+
+    /** Highest ledger id already folded into snapshots; the background job resumes after it. */
+    @Query("select coalesce(max(s.lastLedgerId), 0) from WalletSnapshot s")
+    long findWatermark();
+
+    @Query("select s from WalletSnapshot s where s.id in "
+            + "(select max(s2.id) from WalletSnapshot s2 where s2.userId in :userIds group by s2.userId)")
+    List<WalletSnapshot> findLatestForUsers(@Param("userIds") Collection<Long> userIds);
+}
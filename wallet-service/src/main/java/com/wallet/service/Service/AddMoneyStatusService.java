@@ -0,0 +1,202 @@
+package com.wallet.service.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallet.service.dto.AddMoneyStatusDto;
+import com.wallet.service.dto.PGPaymentStatusDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for add-money payments to reach a terminal gateway status on behalf of long-poll and SSE
+ * clients, without parking a request thread.
+ * <p>
+ * All waiters for the same pgTxnId share one {@link StatusWatch}: one upstream status request per
+ * poll interval no matter how many clients are waiting, issued with the non-blocking JDK
+ * {@link HttpClient}. A terminal status is applied once through
+ * {@link WalletService#applyPgPaymentStatus} (itself idempotent through the ledger) and kept for a
+ * while, so a polling storm after completion never reaches the gateway.
+ */
+@Service
+public class AddMoneyStatusService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AddMoneyStatusService.class);
+
+    private static final String CREDITED = "user updated successfully";
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // shared with RestTemplate; runs on virtual threads when spring.threads.virtual.enabled=true
+    @Autowired
+    private HttpClient httpClient;
+
+    @Value("${wallet.pg.base-url:http://localhost:9090}")
+    private String pgBaseUrl;
+
+    @Value("${wallet.add-money.status.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${wallet.add-money.status.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @Value("${wallet.add-money.status.credit-threads:4}")
+    private int creditThreads;
+
+    private final ConcurrentHashMap<String, StatusWatch> watches = new ConcurrentHashMap<>();
+    private Cache<String, AddMoneyStatusDto> settled;
+    private ExecutorService creditExecutor;
+    private Counter upstreamFetches;
+    private Counter waiters;
+
+    @PostConstruct
+    void init() {
+        settled = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+        // the credit is a short DB transaction; keep it off the HTTP client's and the common pool's threads
+        creditExecutor = Executors.newFixedThreadPool(creditThreads);
+        upstreamFetches = Counter.builder("wallet.addmoney.status.upstream.fetches")
+                .description("Payment-status requests sent to the payment gateway")
+                .register(meterRegistry);
+        waiters = Counter.builder("wallet.addmoney.status.waiters")
+                .description("Long-poll and SSE requests waiting on an add-money status")
+                .register(meterRegistry);
+        meterRegistry.gauge("wallet.addmoney.status.watched", watches, ConcurrentHashMap::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        creditExecutor.shutdown();
+    }
+
+    public long maxWaitMs() {
+        return maxWaitMs;
+    }
+
+    /** Completes once the payment is terminal (and credited if it succeeded), or PENDING when nobody waits any more. */
+    public CompletableFuture<AddMoneyStatusDto> awaitTerminal(String pgTxnId) {
+        waiters.increment();
+        AddMoneyStatusDto done = settled.getIfPresent(pgTxnId);
+        if (done != null) {
+            return CompletableFuture.completedFuture(done);
+        }
+        StatusWatch created = new StatusWatch(pgTxnId);
+        StatusWatch watch = watches.putIfAbsent(pgTxnId, created);
+        if (watch == null) {
+            watch = created;
+            poll(watch);
+        }
+        watch.lastInterest = System.nanoTime();
+        return watch.result;
+    }
+
+    private void poll(StatusWatch watch) {
+        upstreamFetches.increment();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(pgBaseUrl + "/pg-service/payment-status/"
+                        + URLEncoder.encode(watch.pgTxnId, StandardCharsets.UTF_8)))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(this::parse)
+                .whenComplete((status, error) -> onStatus(watch, status, error));
+    }
+
+    private PGPaymentStatusDTO parse(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(response.body(), PGPaymentStatusDTO.class);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void onStatus(StatusWatch watch, PGPaymentStatusDTO status, Throwable error) {
+        if (error != null) {
+            LOGGER.warn("Payment-status fetch failed for pgTxnId={}", watch.pgTxnId, error);
+        } else if (status != null && isTerminal(status.getStatus())) {
+            CompletableFuture.supplyAsync(() -> settle(watch.pgTxnId, status), creditExecutor)
+                    .whenComplete((dto, creditError) -> {
+                        if (creditError != null) {
+                            // not cached: the next waiter starts a fresh watch and retries the credit
+                            LOGGER.error("Crediting add-money pgTxnId={} failed", watch.pgTxnId, creditError);
+                            finish(watch, AddMoneyStatusDto.pending(watch.pgTxnId));
+                        } else {
+                            settled.put(watch.pgTxnId, dto);
+                            finish(watch, dto);
+                        }
+                    });
+            return;
+        }
+        if (System.nanoTime() - watch.lastInterest > TimeUnit.MILLISECONDS.toNanos(maxWaitMs)) {
+            // every waiter has timed out; stop polling until somebody asks again
+            finish(watch, AddMoneyStatusDto.pending(watch.pgTxnId));
+            return;
+        }
+        CompletableFuture.delayedExecutor(pollIntervalMs, TimeUnit.MILLISECONDS).execute(() -> poll(watch));
+    }
+
+    private AddMoneyStatusDto settle(String pgTxnId, PGPaymentStatusDTO status) {
+        if (!"SUCCESS".equalsIgnoreCase(status.getStatus())) {
+            return new AddMoneyStatusDto(pgTxnId, "FAILED", false, "payment failed");
+        }
+        String message = walletService.applyPgPaymentStatus(pgTxnId, status);
+        if (!CREDITED.equals(message)) {
+            throw new IllegalStateException("Wallet credit for pgTxnId=" + pgTxnId + " failed: " + message);
+        }
+        return new AddMoneyStatusDto(pgTxnId, "SUCCESS", true, message);
+    }
+
+    private void finish(StatusWatch watch, AddMoneyStatusDto dto) {
+        // settled is written before the watch goes away, so no waiter can fall between the two
+        watches.remove(watch.pgTxnId, watch);
+        watch.result.complete(dto);
+    }
+
+    private static boolean isTerminal(String status) {
+        return "SUCCESS".equalsIgnoreCase(status) || "FAILED".equalsIgnoreCase(status);
+    }
+
+    private static final class StatusWatch {
+        final String pgTxnId;
+        final CompletableFuture<AddMoneyStatusDto> result = new CompletableFuture<>();
+        volatile long lastInterest = System.nanoTime();
+
+        StatusWatch(String pgTxnId) {
+            this.pgTxnId = pgTxnId;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.wallet.service.Service;
+
+import com.wallet.code.lock.NamedLock;
+import com.wallet.code.money.Money;
+import com.wallet.service.Model.Wallet;
+import com.wallet.service.Model.WalletSnapshot;
+import com.wallet.service.Repository.LedgerRepo;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Repository.WalletSnapshotRepo;
+import com.wallet.service.archive.ArchivedEntry;
+import com.wallet.service.archive.LedgerArchive;
+import com.wallet.service.dto.BalanceAuditDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Folds the append-only ledger into per-wallet balance snapshots in the background, so that a
+ * historical balance or an audit only replays the ledger rows written since the latest snapshot.
+ * The job only reads {@code wallet_ledger} and appends to {@code wallet_balance_snapshot};
+ * it never reads or locks the {@code wallet} table. One instance runs it at a time (named lock).
+ */
+@Service
+public class BalanceSnapshotService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalanceSnapshotService.class);
+
+    private static final String NEXT_CHUNK =
+            "SELECT id, user_id, amount, direction, created_at FROM wallet_ledger WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String INSERT_SNAPSHOT =
+            "INSERT INTO wallet_balance_snapshot (user_id, balance, last_ledger_id, last_ledger_at, created_at)"
+                    + " VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LedgerRepo ledgerRepo;
+
+    @Autowired
+    private WalletSnapshotRepo walletSnapshotRepo;
+
+    @Autowired
+    private WalletRepo walletRepo;
+
+    @Autowired
+    private HotWalletService hotWalletService;
+
+    @Autowired
+    private LedgerArchive ledgerArchive;
+
+    @Value("${wallet.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallet.snapshot.chunk-size:5000}")
+    private int chunkSize;
+
+    // without the PROCESS privilege (innodb_trx unreadable) an id gap is trusted only after this long
+    @Value("${wallet.snapshot.gap-timeout-ms:300000}")
+    private long gapTimeoutMs;
+
+    // first missing ledger id the scan stopped at; scheduler thread only, under the named lock
+    private Gap gap;
+    private boolean trxUnreadableLogged;
+
+    @Scheduled(initialDelayString = "${wallet.snapshot.interval-ms:60000}",
+            fixedDelayString = "${wallet.snapshot.interval-ms:60000}")
+    public void snapshotPending() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // two nodes folding the same chunk would each append a snapshot on top of the same base
+            boolean ran = NamedLock.runExclusively(jdbcTemplate, "wallet:balance-snapshot", () -> {
+                int chunks = 0;
+                while (snapshotNextChunk()) {
+                    chunks++;
+                }
+                if (chunks > 0) {
+                    LOGGER.info("Balance snapshots advanced by {} ledger chunk(s)", chunks);
+                }
+            });
+            if (!ran) {
+                LOGGER.debug("Balance snapshot run skipped: another instance holds the lock");
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Balance snapshot run failed; will resume from the last watermark", e);
+        }
+    }
+
+    /**
+     * Folds the next contiguous run of committed ledger rows into new snapshots for the wallets they
+     * touch, in one short transaction. Returns false once there is nothing (provably complete) left.
+     * <p>
+     * Ledger ids are allocated at insert, before commit, so a row can become visible after a higher
+     * id was already folded. The scan therefore stops at the first missing id. A hole is crossed only
+     * once it is proven final: every transaction that was open when it was first seen has ended, so
+     * whatever it inserted is visible now and what is still missing was rolled back.
+     */
+    boolean snapshotNextChunk() {
+        // decided before the transaction's read view opens, so the scan sees what the proof waited for
+        boolean gapFinal = gap != null && gapFinal(gap);
+        Boolean more = transactionTemplate.execute(status -> {
+            long watermark = walletSnapshotRepo.findWatermark();
+            Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+            Map<Long, Long> deltas = new HashMap<>();
+            Map<Long, Instant> lastAt = new HashMap<>();
+            long[] lastId = {watermark};
+            int[] seen = {0};
+            boolean[] stopped = {false};
+            jdbcTemplate.query(NEXT_CHUNK, rs -> {
+                seen[0]++;
+                if (stopped[0]) {
+                    return;
+                }
+                long id = rs.getLong("id");
+                if (id != lastId[0] + 1 && !(gapFinal && gap.afterId() == lastId[0])) {
+                    stopped[0] = true;
+                    return;
+                }
+                Instant createdAt = rs.getTimestamp("created_at", utc).toInstant();
+                long userId = rs.getLong("user_id");
+                long amount = Money.ofDecimal(rs.getBigDecimal("amount"));
+                long signed = "DEBIT".equals(rs.getString("direction")) ? -amount : amount;
+                deltas.merge(userId, signed, Money::add);
+                lastAt.merge(userId, createdAt, (a, b) -> a.isAfter(b) ? a : b);
+                lastId[0] = id;
+            }, watermark, chunkSize);
+
+            boolean newGap = false;
+            if (stopped[0] && (gap == null || gap.afterId() != lastId[0])) {
+                gap = new Gap(lastId[0], jdbcTemplate.queryForObject("SELECT NOW()", Timestamp.class),
+                        System.currentTimeMillis());
+                newGap = true;
+            } else if (!stopped[0]) {
+                gap = null;
+            }
+
+            if (!deltas.isEmpty()) {
+                Map<Long, Long> previous = new HashMap<>();
+                for (WalletSnapshot snapshot : walletSnapshotRepo.findLatestForUsers(deltas.keySet())) {
+                    previous.put(snapshot.getUserId(), snapshot.getBalance());
+                }
+                Timestamp now = Timestamp.from(Instant.now());
+                jdbcTemplate.batchUpdate(INSERT_SNAPSHOT, deltas.entrySet(), deltas.size(), (ps, entry) -> {
+                    Long userId = entry.getKey();
+                    ps.setLong(1, userId);
+                    ps.setBigDecimal(2, Money.toDecimal(Money.add(previous.getOrDefault(userId, 0L), entry.getValue())));
+                    ps.setLong(3, lastId[0]);
+                    ps.setTimestamp(4, Timestamp.from(lastAt.get(userId)), utc);
+                    ps.setTimestamp(5, now, utc);
+                });
+            }
+            // a hole seen for the first time is usually final already: check it right away, once
+            return stopped[0] ? newGap : seen[0] == chunkSize;
+        });
+        return Boolean.TRUE.equals(more);
+    }
+
+    private boolean gapFinal(Gap gap) {
+        try {
+            // trx_started and NOW() are both server-local DATETIMEs, so they compare directly
+            Integer open = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.innodb_trx"
+                            + " WHERE trx_started <= ? AND trx_mysql_thread_id <> CONNECTION_ID()",
+                    Integer.class, gap.seenAt());
+            return open != null && open == 0;
+        } catch (DataAccessException e) {
+            if (!trxUnreadableLogged) {
+                trxUnreadableLogged = true;
+                LOGGER.warn("Cannot read information_schema.innodb_trx (needs PROCESS); ledger id gaps are "
+                        + "trusted after {} ms instead", gapTimeoutMs, e);
+            }
+            return System.currentTimeMillis() - gap.seenAtMillis() >= gapTimeoutMs;
+        }
+    }
+
+    /** Ledger ids after {@code afterId} were missing when the database clock read {@code seenAt}. */
+    private record Gap(long afterId, Timestamp seenAt, long seenAtMillis) {
+    }
+
+    /** Balance in paise as of {@code at}: the latest snapshot at or before it plus the ledger rows after it. */
+    public long balanceAsOf(Long userId, Instant at) {
+        WalletSnapshot snapshot =
+                walletSnapshotRepo.findFirstByUserIdAndLastLedgerAtLessThanEqualOrderByLastLedgerIdDesc(userId, at);
+        long base = snapshot != null ? snapshot.getBalance() : 0L;
+        long afterId = snapshot != null ? snapshot.getLastLedgerId() : 0L;
+        // ids up to archivedThroughId are read from the archive only, even while still being purged from MySQL
+        long archivedThrough = ledgerArchive.archivedThroughId();
+        long hot = Money.ofDecimal(ledgerRepo.sumSince(userId, Math.max(afterId, archivedThrough), at));
+        // rows after the snapshot may already be archived when 'at' is far in the past
+        long cold = archivedThrough <= afterId ? 0L
+                : ledgerArchive.sumForUser(userId, afterId, archivedThrough, ArchivedEntry.toMicros(at));
+        return Money.add(base, Money.add(hot, cold));
+    }
+
+    /**
+     * Compares the stored wallet balance with the one rebuilt from snapshot + ledger. With the balance
+     * engine enabled the wallet row can trail the ledger by at most one write-behind flush.
+     */
+    public BalanceAuditDto audit(Long userId) {
+        Wallet wallet = walletRepo.findByUserId(userId);
+        if (wallet == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Wallet not found for userId=" + userId);
+        }
+        Instant now = Instant.now();
+        WalletSnapshot snapshot =
+                walletSnapshotRepo.findFirstByUserIdAndLastLedgerAtLessThanEqualOrderByLastLedgerIdDesc(userId, now);
+        long ledgerBalance = balanceAsOf(userId, now);
+        long walletBalance = hotWalletService.totalBalance(wallet);
+        return new BalanceAuditDto(userId,
+                Money.toRupees(walletBalance),
+                Money.toRupees(ledgerBalance),
+                snapshot != null ? snapshot.getLastLedgerId() : null,
+                ledgerBalance == walletBalance);
+    }
+}
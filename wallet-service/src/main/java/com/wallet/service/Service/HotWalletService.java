@@ -0,0 +1,243 @@
+package com.wallet.service.Service;
+
+import com.wallet.code.money.Money;
+import com.wallet.service.Model.Wallet;
+import com.wallet.service.Model.WalletSlot;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Repository.WalletSlotRepo;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Striped balances for hot wallets (popular payees, the add-money merchant), in the spirit of
+ * {@link java.util.concurrent.atomic.LongAdder}: credits go to one of N {@code wallet_balance_slot}
+ * rows picked at random, so they no longer queue on the single {@code wallet} row lock. Debits and
+ * reads see the wallet row plus all slots; a debit the wallet row cannot cover first sweeps the
+ * slots into it, and a background job sweeps them regularly so that rarely happens.
+ * <p>
+ * Lock order is ascending userId, and a wallet's slots (ascending) are taken right after its own
+ * row, i.e. at the wallet's place in that order. A credit locks one slot in its wallet's place;
+ * the debit path sweeps right after locking the payer's row; batches lock through
+ * {@link #lockAndSweep}, which sweeps each hot wallet before locking any higher row. So no
+ * transaction waits for a slot while holding a higher wallet's row, the one shape that could
+ * close a cycle with a credit that holds a slot and wants that row.
+ */
+@Service
+public class HotWalletService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotWalletService.class);
+
+    @Autowired
+    private WalletRepo walletRepo;
+
+    @Autowired
+    private WalletSlotRepo walletSlotRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WalletBalanceCache walletBalanceCache;
+
+    // userId -> slot count; refreshed by the sweep job, so other nodes' markings show up within one interval
+    private volatile Map<Long, Integer> hotSlots = Map.of();
+
+    @PostConstruct
+    void init() {
+        refreshHotWallets();
+    }
+
+    public boolean isHot(Long userId) {
+        return hotSlots.containsKey(userId);
+    }
+
+    /** Credit that avoids the wallet row for hot wallets; returns 0 when the wallet is missing. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int credit(Long userId, long amount) {
+        Integer slots = hotSlots.get(userId);
+        // a slot update of 0 rows means the wallet was cooled down elsewhere: fall back to the row
+        if (slots != null && walletSlotRepo.credit(userId, ThreadLocalRandom.current().nextInt(slots), amount) == 1) {
+            return 1;
+        }
+        return walletRepo.credit(userId, amount);
+    }
+
+    /** Debit against the wallet row, sweeping the slots into it first if the row alone is short. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int debitIfSufficient(Long userId, long amount) {
+        int debited = walletRepo.debitIfSufficient(userId, amount);
+        if (debited == 0 && isHot(userId) && sweepLocked(userId) > 0) {
+            debited = walletRepo.debitIfSufficient(userId, amount);
+        }
+        return debited;
+    }
+
+    /** Wallet rows locked by {@link #lockAndSweep}, and the paise swept onto each of them. */
+    public record Locked(List<Wallet> wallets, Map<Long, Long> swept) {
+    }
+
+    /**
+     * Locks the wallet rows of {@code userIds} in ascending order, folding each hot wallet's slots
+     * into its row right after locking it. Cold wallets between two hot ones are locked with one
+     * statement. Returned wallets carry their pre-sweep balance; add {@link Locked#swept()}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Locked lockAndSweep(SortedSet<Long> userIds) {
+        List<Wallet> wallets = new ArrayList<>(userIds.size());
+        Map<Long, Long> swept = new HashMap<>();
+        List<Long> cold = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (!isHot(userId)) {
+                cold.add(userId);
+                continue;
+            }
+            if (!cold.isEmpty()) {
+                wallets.addAll(walletRepo.lockByUserIdIn(cold));
+                cold = new ArrayList<>();
+            }
+            Wallet wallet = walletRepo.lockByUserId(userId);
+            if (wallet != null) {
+                wallets.add(wallet);
+                long amount = sweepLocked(userId);
+                if (amount != 0) {
+                    swept.put(userId, amount);
+                }
+            }
+        }
+        if (!cold.isEmpty()) {
+            wallets.addAll(walletRepo.lockByUserIdIn(cold));
+        }
+        return new Locked(wallets, swept);
+    }
+
+    /** Balance in paise including slots, for a wallet read without locks. */
+    public long totalBalance(Wallet wallet) {
+        long balance = wallet.getBalance();
+        if (wallet.getHotSlots() != null && wallet.getHotSlots() > 0) {
+            balance = Money.add(balance, Money.ofDecimal(walletSlotRepo.sumByUserId(wallet.getUserId())));
+        }
+        return balance;
+    }
+
+    /** Balances in paise including slots for several wallets, with one slot query for the hot ones. */
+    public Map<Long, Long> totalBalances(Collection<Wallet> wallets) {
+        Map<Long, Long> totals = new HashMap<>();
+        List<Long> hot = new ArrayList<>();
+        for (Wallet wallet : wallets) {
+            totals.put(wallet.getUserId(), wallet.getBalance());
+            if (wallet.getHotSlots() != null && wallet.getHotSlots() > 0) {
+                hot.add(wallet.getUserId());
+            }
+        }
+        if (!hot.isEmpty()) {
+            for (Object[] row : walletSlotRepo.sumByUserIdIn(hot)) {
+                Long userId = ((Number) row[0]).longValue();
+                totals.merge(userId, Money.ofDecimal((BigDecimal) row[1]), Money::add);
+            }
+        }
+        return totals;
+    }
+
+    /** Splits future credits to this wallet across {@code slots} sub-balances. */
+    public void markHot(Long userId, int slots) {
+        if (slots < 2 || slots > 256) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "slots must be between 2 and 256");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            lockWallet(userId);
+            sweepLocked(userId);
+            walletSlotRepo.deleteByUser(userId);
+            List<WalletSlot> rows = new ArrayList<>(slots);
+            for (int i = 0; i < slots; i++) {
+                WalletSlot slot = new WalletSlot();
+                slot.setUserId(userId);
+                slot.setSlot(i);
+                rows.add(slot);
+            }
+            walletSlotRepo.saveAll(rows);
+            walletRepo.updateHotSlots(userId, slots);
+        });
+        refreshHotWallets();
+        LOGGER.info("Wallet of userId={} is now striped across {} slots", userId, slots);
+    }
+
+    /** Folds the slots back into the wallet row and stops striping credits. */
+    public void markCold(Long userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            lockWallet(userId);
+            sweepLocked(userId);
+            walletSlotRepo.deleteByUser(userId);
+            walletRepo.updateHotSlots(userId, null);
+        });
+        refreshHotWallets();
+        LOGGER.info("Wallet of userId={} is no longer striped", userId);
+    }
+
+    /**
+     * Periodically moves slot balances onto the wallet rows, one short transaction per hot wallet,
+     * so debits almost never need to sweep inline.
+     */
+    @Scheduled(fixedDelayString = "${wallet.hot.sweep-interval-ms:1000}")
+    public void sweepAll() {
+        refreshHotWallets();
+        for (Long userId : hotSlots.keySet()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (walletRepo.lockByUserId(userId) != null) {
+                        sweepLocked(userId);
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOGGER.warn("Sweeping slots of userId={} failed; will retry next interval", userId, e);
+            }
+        }
+    }
+
+    // caller holds the wallet row lock; returns the swept amount in paise
+    private long sweepLocked(Long userId) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal balance : walletSlotRepo.lockBalances(userId)) {
+            total = total.add(balance);
+        }
+        if (total.signum() == 0) {
+            return 0;
+        }
+        walletSlotRepo.clear(userId);
+        walletRepo.addRupees(userId, total);
+        // the total is unchanged, but cached entries were loaded from both tables non-atomically
+        walletBalanceCache.invalidateAfterCommit(List.of(userId));
+        return Money.ofDecimal(total);
+    }
+
+    private void lockWallet(Long userId) {
+        if (walletRepo.lockByUserId(userId) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Wallet not found for userId=" + userId);
+        }
+    }
+
+    private void refreshHotWallets() {
+        Map<Long, Integer> refreshed = new HashMap<>();
+        for (Object[] row : walletRepo.findHotSlots()) {
+            refreshed.put((Long) row[0], (Integer) row[1]);
+        }
+        hotSlots = Map.copyOf(refreshed);
+    }
+}
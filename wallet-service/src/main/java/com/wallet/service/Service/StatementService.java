@@ -0,0 +1,206 @@
+package com.wallet.service.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.code.money.Money;
+import com.wallet.service.archive.ArchivedEntry;
+import com.wallet.service.archive.LedgerArchive;
+import com.wallet.service.dto.StatementEntryDto;
+import com.wallet.service.dto.StatementPageDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Wallet statements read straight from {@code wallet_ledger} through idx_ledger_user_created
+ * (user_id, created_at, id). Pages seek past a (createdAt, id) cursor instead of using OFFSET, so
+ * page N costs the same as page 1; the NDJSON export streams the whole history row by row.
+ * <p>
+ * Archived rows ({@link LedgerArchive}) have lower ids than the hot ones but can be stamped later
+ * than some of them, so neither tier simply follows the other. Hot reads skip ids the archive
+ * already holds; a page also reads the archive when it reaches back past the archive's horizon
+ * and keeps the newest rows of both, and the export merges the two ordered streams.
+ */
+@Service
+public class StatementService {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final String COLUMNS = "SELECT id, txn_id, amount, direction, created_at FROM wallet_ledger ";
+
+    // every query skips ids up to LedgerArchive.archivedThroughId: those rows are read from the archive
+    private static final String FIRST_PAGE = COLUMNS
+            + "WHERE user_id = ? AND id > ? ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    private static final String NEXT_PAGE = COLUMNS
+            + "WHERE user_id = ? AND id > ? AND (created_at < ? OR (created_at = ? AND id < ?)) "
+            + "ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    private static final String EXPORT = COLUMNS
+            + "WHERE user_id = ? AND id > ? ORDER BY created_at, id";
+
+    private static final Comparator<StatementEntryDto> NEWEST_FIRST = Comparator
+            .comparing(StatementEntryDto::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(StatementEntryDto::getId, Comparator.reverseOrder());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LedgerArchive ledgerArchive;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    void init() {
+        // Integer.MIN_VALUE makes Connector/J stream rows from a server-side cursor instead of buffering them
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /** One page of the statement, newest first. {@code cursor} is the previous page's nextCursor. */
+    public StatementPageDto page(Long userId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        RowMapper<StatementEntryDto> mapper = rowMapper();
+        long hotAfterId = ledgerArchive.archivedThroughId();
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        // one extra row tells whether another page exists
+        List<StatementEntryDto> rows;
+        if (after == null) {
+            rows = jdbcTemplate.query(FIRST_PAGE, mapper, userId, hotAfterId, size + 1);
+        } else {
+            Calendar utc = utc();
+            rows = jdbcTemplate.query(NEXT_PAGE, ps -> {
+                ps.setLong(1, userId);
+                ps.setLong(2, hotAfterId);
+                ps.setTimestamp(3, after.createdAt, utc);
+                ps.setTimestamp(4, after.createdAt, utc);
+                ps.setLong(5, after.id);
+                ps.setInt(6, size + 1);
+            }, mapper);
+        }
+        // archived rows are all older than the archive horizon; a page that stays newer needs no archive read
+        if (!ledgerArchive.isEmpty() && (rows.size() <= size
+                || ArchivedEntry.toMicros(rows.get(size).getCreatedAt()) < ledgerArchive.archivedBeforeMicros())) {
+            long beforeMicros = after != null ? ArchivedEntry.toMicros(after.createdAt.toInstant()) : Long.MAX_VALUE;
+            long beforeId = after != null ? after.id : Long.MAX_VALUE;
+            rows = new ArrayList<>(rows);
+            for (ArchivedEntry entry : ledgerArchive.newestForUser(userId, hotAfterId,
+                    e -> e.createdAtMicros() < beforeMicros || (e.createdAtMicros() == beforeMicros && e.id() < beforeId),
+                    size + 1)) {
+                rows.add(entry.toStatementEntry());
+            }
+            rows.sort(NEWEST_FIRST);
+        }
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            StatementEntryDto last = rows.get(size - 1);
+            nextCursor = Cursor.encode(last.getCreatedAt(), last.getId());
+        }
+        return new StatementPageDto(userId, rows, nextCursor);
+    }
+
+    /** Writes the full statement, oldest first, as one JSON object per line; memory use is independent of its length. */
+    public void exportNdjson(Long userId, OutputStream out) throws IOException {
+        RowMapper<StatementEntryDto> mapper = rowMapper();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            int[] rowNum = {0};
+            // both streams are in (createdAt, id) order; archived rows go out as soon as a hot row sorts after them
+            long hotAfterId = ledgerArchive.archivedThroughId();
+            Iterator<ArchivedEntry> archived = ledgerArchive.iterateForUser(userId, hotAfterId);
+            ArchivedEntry[] nextArchived = {archived.hasNext() ? archived.next() : null};
+            streamingJdbcTemplate.query(EXPORT, rs -> {
+                try {
+                    StatementEntryDto row = mapper.mapRow(rs, rowNum[0]);
+                    long at = ArchivedEntry.toMicros(row.getCreatedAt());
+                    while (nextArchived[0] != null && (nextArchived[0].createdAtMicros() < at
+                            || (nextArchived[0].createdAtMicros() == at && nextArchived[0].id() < row.getId()))) {
+                        generator.writeObject(nextArchived[0].toStatementEntry());
+                        rowNum[0]++;
+                        nextArchived[0] = archived.hasNext() ? archived.next() : null;
+                    }
+                    generator.writeObject(row);
+                    rowNum[0]++;
+                } catch (IOException e) {
+                    // client disconnected: abort the cursor instead of reading the remaining rows
+                    throw new UncheckedIOException(e);
+                }
+            }, userId, hotAfterId);
+            while (nextArchived[0] != null) {
+                generator.writeObject(nextArchived[0].toStatementEntry());
+                rowNum[0]++;
+                nextArchived[0] = archived.hasNext() ? archived.next() : null;
+            }
+            if (rowNum[0] > 0) {
+                generator.writeRaw('\n');
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static RowMapper<StatementEntryDto> rowMapper() {
+        Calendar utc = utc();
+        return (rs, rowNum) -> new StatementEntryDto(
+                rs.getLong("id"),
+                rs.getString("txn_id"),
+                rs.getString("direction"),
+                Money.ofDecimal(rs.getBigDecimal("amount")),
+                rs.getTimestamp("created_at", utc).toInstant());
+    }
+
+    private static Calendar utc() {
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+
+    /** Opaque page cursor: base64url("epochSecond.nanos:id") of the last entry served. */
+    private record Cursor(Timestamp createdAt, long id) {
+
+        static String encode(Instant createdAt, long id) {
+            String raw = createdAt.getEpochSecond() + "." + createdAt.getNano() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                int dot = raw.indexOf('.');
+                int colon = raw.indexOf(':');
+                Instant createdAt = Instant.ofEpochSecond(
+                        Long.parseLong(raw.substring(0, dot)), Long.parseLong(raw.substring(dot + 1, colon)));
+                return new Cursor(Timestamp.from(createdAt), Long.parseLong(raw.substring(colon + 1)));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid statement cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.wallet.service.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallet.service.Model.Wallet;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Repository.WalletSlotRepo;
+import com.wallet.code.money.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded near-cache of wallet balances (paise) for the balance endpoint.
+ * <p>
+ * Every code path that changes a balance calls {@link #invalidateAfterCommit} for the wallets it
+ * touched. To stop a slow read from re-caching a value that was already superseded, each key maps
+ * to a generation stripe: a load remembers the stripe's generation before reading MySQL and only
+ * installs its result if no invalidation bumped the stripe meanwhile. The check and the install run
+ * inside {@code compute}, which is atomic with {@code invalidate} on the same key. Writes made by
+ * other wallet-service nodes are only bounded by {@code wallet.balance-cache.ttl-ms}.
+ */
+@Component
+public class WalletBalanceCache {
+
+    private static final int STRIPES = 1 << 12;
+
+    @Autowired
+    private WalletRepo walletRepo;
+
+    @Autowired
+    private WalletSlotRepo walletSlotRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wallet.balance-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${wallet.balance-cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private Cache<Long, Long> cache;
+    private Timer loadTimer;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "walletBalance");
+        loadTimer = Timer.builder("wallet.balance.cache.load")
+                .description("MySQL read on a balance cache miss")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /** Balance in paise, or null when the user has no wallet (misses are not cached). */
+    public Long balance(Long userId) {
+        Long cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = stripe(userId);
+        long generation = generations.get(stripe);
+        long started = System.nanoTime();
+        Wallet wallet = walletRepo.findByUserId(userId);
+        loadTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (wallet == null) {
+            return null;
+        }
+        long total = wallet.getBalance();
+        if (wallet.getHotSlots() != null && wallet.getHotSlots() > 0) {
+            // striped wallet: the spendable balance includes its slots (see HotWalletService)
+            total = Money.add(total, Money.ofDecimal(walletSlotRepo.sumByUserId(userId)));
+        }
+        Long balance = total;
+        cache.asMap().compute(userId, (key, current) -> generations.get(stripe) == generation ? balance : current);
+        return balance;
+    }
+
+    /**
+     * Drops the given wallets once the surrounding transaction commits (immediately when there is
+     * none). Invalidating before commit would let a concurrent read re-cache the old balance.
+     */
+    public void invalidateAfterCommit(Collection<Long> userIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(userIds);
+                }
+            });
+        } else {
+            invalidate(userIds);
+        }
+    }
+
+    public void invalidate(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            generations.incrementAndGet(stripe(userId));
+            cache.invalidate(userId);
+        }
+    }
+
+    private static int stripe(Long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 52) & (STRIPES - 1);
+    }
+}
@@ -2,26 +2,43 @@ package com.wallet.service.Service;
 
 import com.wallet.code.dto.TxnCompletedPayload;
 import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.dto.UserCreatedPayload;
 import com.wallet.code.dto.WalletBalanceDto;
 import com.wallet.code.dto.WalletUpdatedPayload;
+import com.wallet.code.money.Money;
+import com.wallet.service.Model.LedgerEntry;
 import com.wallet.service.Model.Wallet;
+import com.wallet.service.Repository.LedgerBatchWriter;
+import com.wallet.service.Repository.WalletBatchWriter;
 import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.dedupe.LedgerTxnIdFilter;
+import com.wallet.service.engine.BalanceEngine;
+import com.wallet.service.engine.TransferOutcome;
 import com.wallet.service.dto.PGPaymentStatusDTO;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 @Service
 public class WalletService {
@@ -40,104 +57,329 @@ public class WalletService {
     @Value("${wallet.updated.topic}")
     private String WALLETUPDATED;
 
+    @Value("${wallet.pg.base-url:http://localhost:9090}")
+    private String pgBaseUrl;
+
     @Autowired
     private com.wallet.service.Repository.LedgerRepo ledgerRepo;
 
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WalletEventPublisher walletEventPublisher;
+
+    @Autowired
+    private LedgerBatchWriter ledgerBatchWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LedgerTxnIdFilter ledgerTxnIdFilter;
+
+    @Autowired
+    private WalletBalanceCache walletBalanceCache;
+
+    @Autowired
+    private WalletBatchWriter walletBatchWriter;
+
+    @Autowired
+    private HotWalletService hotWalletService;
+
+    // present only when wallet.engine.enabled=true; it then owns every balance mutation
+    @Autowired(required = false)
+    private BalanceEngine balanceEngine;
+
     public WalletBalanceDto walletBalance(Long userId) {
-        Wallet wallet = walletRepo.findByUserId(userId);
-        if (wallet == null) {
+        Long balance = walletBalanceCache.balance(userId);
+        if (balance == null) {
             // Make it a 404 so Feign can handle it gracefully
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
                     "Wallet not found for userId=" + userId);
         }
         WalletBalanceDto dto = new WalletBalanceDto();
         dto.setUserId(userId);                   // include userId (helpful for clients)
-        dto.setBalance(wallet.getBalance());     // consider BigDecimal for money
+        dto.setBalance(Money.toRupees(balance));   // wire format stays rupees
         dto.setStatus("OK");
         return dto;
     }
 
-    @Transactional
+    /**
+     * Applies one P2P transfer in a DB transaction and publishes its events once that committed,
+     * so no ledger row or wallet lock is held while the broker acknowledges the sends. A redelivered
+     * transfer moves nothing but has its TXN-COMPLETED sent again, so a re-drive of a transaction
+     * whose completion was lost still ends it; one past its {@code expiresAt} that was never applied
+     * is refused.
+     */
     public void walletTxn(TxnInitPayload txnInitPayload) throws ExecutionException, InterruptedException {
+        TransferOutcome outcome = transactionTemplate.execute(status -> applyTransfer(txnInitPayload, status));
+        awaitUnlessTransactional(walletEventPublisher.publish(outcome));
+        LOGGER.info("Pushed events for {} (success={})", txnInitPayload.getRequestId(), Boolean.TRUE.equals(outcome.completed().getSuccess()));
+    }
+
+    private TransferOutcome applyTransfer(TxnInitPayload txnInitPayload, TransactionStatus status) {
         TxnCompletedPayload txnCompletedPayload = new TxnCompletedPayload();
         txnCompletedPayload.setId(txnInitPayload.getId());
         txnCompletedPayload.setRequestId(txnInitPayload.getRequestId());
 
-        Wallet fromwallet = walletRepo.findByUserId(txnInitPayload.getFromUserId());
-        Wallet towallet   = walletRepo.findByUserId(txnInitPayload.getToUserId());
+        Long fromUserId = txnInitPayload.getFromUserId();
+        Long toUserId = txnInitPayload.getToUserId();
+        long amount = txnInitPayload.getAmount();
 
-        // Validate wallets exist
-        if (fromwallet == null || towallet == null) {
-            txnCompletedPayload.setSuccess(false);
-            txnCompletedPayload.setReason("Wallet not found");
-            Future<SendResult<String,Object>> f = kafkaTemplate.send(
-                    TXTCOMPLETED, txnInitPayload.getRequestId(), txnCompletedPayload);
-            LOGGER.info("Pushed into kafka TXTCOMPLETED (wallet missing): " + f.get());
-            return;
+        // Both ledger legs go in first: a redelivered transfer trips uk_ledger_txn before any
+        // balance is touched, and the rows roll back with the balances if a leg fails below.
+        String ledgerTxnId = LedgerEntry.txnIdOf(txnInitPayload);
+        if (txnInitPayload.expiredAt(System.currentTimeMillis())) {
+            status.setRollbackOnly();
+            return expired(txnInitPayload, txnCompletedPayload);
+        }
+        try {
+            ledgerBatchWriter.append(List.of(
+                    LedgerEntry.debit(ledgerTxnId, fromUserId, amount),
+                    LedgerEntry.credit(ledgerTxnId, toUserId, amount)));
+        } catch (DuplicateKeyException e) {
+            status.setRollbackOnly();
+            ledgerTxnIdFilter.record(List.of(ledgerTxnId));
+            LOGGER.info("Transfer {} already applied; re-sending its completion", ledgerTxnId);
+            // this path leaves no ledger rows for failed transfers, so existing legs mean it succeeded
+            return TransferOutcome.alreadyApplied(txnCompletedPayload, false);
         }
 
-        // Check balance
-        if (fromwallet.getBalance() < txnInitPayload.getAmount()) {
-            txnCompletedPayload.setSuccess(false);
-            txnCompletedPayload.setReason("Insufficient balance");
-            Future<SendResult<String,Object>> f = kafkaTemplate.send(
-                    TXTCOMPLETED, txnInitPayload.getRequestId(), txnCompletedPayload);
-            LOGGER.info("Pushed into kafka TXTCOMPLETED (insufficient): " + f.get());
-            return;
+        // Apply both legs as single-statement updates, lower userId first so that two transfers
+        // between the same pair of wallets always take the row locks in the same order.
+        boolean debited;
+        boolean credited;
+        if (fromUserId <= toUserId) {
+            debited = hotWalletService.debitIfSufficient(fromUserId, amount) == 1;
+            credited = debited && hotWalletService.credit(toUserId, amount) == 1;
+        } else {
+            credited = hotWalletService.credit(toUserId, amount) == 1;
+            debited = credited && hotWalletService.debitIfSufficient(fromUserId, amount) == 1;
         }
 
-        // Perform transfer
-        fromwallet.setBalance(fromwallet.getBalance() - txnInitPayload.getAmount());
-        towallet.setBalance(towallet.getBalance() + txnInitPayload.getAmount());
+        if (!debited || !credited) {
+            // undo whichever leg did apply; only this failure path pays for a diagnostic read
+            status.setRollbackOnly();
+            boolean walletsExist = walletRepo.findByUserId(fromUserId) != null
+                    && walletRepo.findByUserId(toUserId) != null;
+            String reason = walletsExist ? "Insufficient balance" : "Wallet not found";
+            LOGGER.info("Transfer {} failed: {}", txnInitPayload.getRequestId(), reason);
+            return TransferOutcome.failed(txnCompletedPayload, reason);
+        }
 
-        // Persist updates explicitly to avoid repo implementation edge cases
-        walletRepo.save(fromwallet);
-        walletRepo.save(towallet);
+        // one read for both post-update balances (the event payloads need email + balance)
+        Wallet fromwallet = null;
+        Wallet towallet = null;
+        List<Wallet> both = walletRepo.findByUserIdIn(List.of(fromUserId, toUserId));
+        Map<Long, Long> totals = hotWalletService.totalBalances(both);
+        for (Wallet wallet : both) {
+            if (wallet.getUserId().equals(fromUserId)) {
+                fromwallet = wallet;
+            }
+            if (wallet.getUserId().equals(toUserId)) {
+                towallet = wallet;
+            }
+        }
 
         txnCompletedPayload.setSuccess(true);
+        ledgerTxnIdFilter.recordAfterCommit(List.of(ledgerTxnId));
+        walletBalanceCache.invalidateAfterCommit(List.of(fromUserId, toUserId));
 
         // Emit per-wallet update events using the current requestId as correlation/key
         WalletUpdatedPayload fromwalletUpdatedPayload = new WalletUpdatedPayload(
-                fromwallet.getUserEmail(), fromwallet.getBalance(), txnInitPayload.getRequestId()
+                fromwallet.getUserEmail(), totals.get(fromUserId), txnInitPayload.getRequestId()
         );
         WalletUpdatedPayload towalletUpdatedPayload = new WalletUpdatedPayload(
-                towallet.getUserEmail(), towallet.getBalance(), txnInitPayload.getRequestId()
+                towallet.getUserEmail(), totals.get(toUserId), txnInitPayload.getRequestId()
         );
+        return new TransferOutcome(txnCompletedPayload, fromwalletUpdatedPayload, towalletUpdatedPayload);
+    }
 
-        Future<SendResult<String,Object>> future1 = kafkaTemplate.send(
-                WALLETUPDATED, fromwalletUpdatedPayload.getUserEmail(), fromwalletUpdatedPayload);
-        LOGGER.info("Pushed into kafka WALLETUPDATED fromWallet: " + future1.get());
+    /**
+     * Outcome for a TXN-INIT past its {@code expiresAt}: the original completion if the transfer was
+     * applied before, otherwise a refusal, so nothing moves after Transaction-service may have timed
+     * the transaction out.
+     */
+    private TransferOutcome expired(TxnInitPayload txn, TxnCompletedPayload completed) {
+        String ledgerTxnId = LedgerEntry.txnIdOf(txn);
+        if (ledgerTxnIdFilter.alreadyApplied(ledgerTxnId)) {
+            return TransferOutcome.alreadyApplied(completed, ledgerTxnIdFilter.alreadyApplied(LedgerEntry.refundTxnIdOf(ledgerTxnId)));
+        }
+        LOGGER.info("Transfer {} expired before it was applied; refusing it", ledgerTxnId);
+        return TransferOutcome.failed(completed, TransferOutcome.EXPIRED);
+    }
 
-        Future<SendResult<String,Object>> future2 = kafkaTemplate.send(
-                WALLETUPDATED, towalletUpdatedPayload.getUserEmail(), towalletUpdatedPayload);
-        LOGGER.info("Pushed into kafka WALLETUPDATED toWallet: " + future2.get());
+    /**
+     * All three sends are already in flight when this is called, so a transfer costs one broker
+     * round trip. Inside a Kafka transaction nothing is awaited: the listener's commit flushes the
+     * records together with the consumed offset.
+     */
+    private void awaitUnlessTransactional(CompletableFuture<Void> sends) throws ExecutionException, InterruptedException {
+        if (!kafkaTemplate.inTransaction()) {
+            sends.get();
+        }
+    }
 
-        // Finally emit the transaction completion event (send the *TxnCompletedPayload*, not Wallet)
-        Future<SendResult<String,Object>> finalFuture = kafkaTemplate.send(
-                TXTCOMPLETED, txnInitPayload.getRequestId(), txnCompletedPayload);
-        LOGGER.info("Pushed into kafka TXTCOMPLETED (success): " + finalFuture.get());
+    /**
+     * Applies a whole TXN-INIT poll batch in one DB transaction: the involved wallets are locked
+     * in userId order (one SELECT ... FOR UPDATE per run of cold wallets, see
+     * {@link HotWalletService#lockAndSweep}), transfers are applied in order in memory, and the final
+     * balances are written with one JDBC batch. Events are returned for the caller to publish
+     * after commit. Any exception rolls the entire batch back.
+     */
+    @Transactional
+    public List<TransferOutcome> walletTxnBatch(List<TxnInitPayload> batch) {
+        TreeSet<Long> userIds = new TreeSet<>();
+        for (TxnInitPayload txn : batch) {
+            userIds.add(txn.getFromUserId());
+            userIds.add(txn.getToUserId());
+        }
+        Map<Long, Wallet> wallets = new HashMap<>();
+        Map<Long, Long> balances = new HashMap<>();
+        // hot wallets get their slots folded into their rows as they are locked, so the batch sees full balances
+        HotWalletService.Locked locked = hotWalletService.lockAndSweep(userIds);
+        for (Wallet wallet : locked.wallets()) {
+            wallets.put(wallet.getUserId(), wallet);
+            balances.put(wallet.getUserId(), wallet.getBalance());
+        }
+        locked.swept().forEach((userId, swept) -> balances.merge(userId, swept, Money::add));
+
+        List<TransferOutcome> outcomes = new ArrayList<>(batch.size());
+        List<LedgerEntry> ledger = new ArrayList<>(batch.size() * 2);
+        Map<Long, Long> touched = new HashMap<>();
+        for (TxnInitPayload txn : batch) {
+            TxnCompletedPayload completed = new TxnCompletedPayload();
+            completed.setId(txn.getId());
+            completed.setRequestId(txn.getRequestId());
+            if (txn.expiredAt(System.currentTimeMillis())) {
+                outcomes.add(expired(txn, completed));
+                continue;
+            }
+
+            Wallet from = wallets.get(txn.getFromUserId());
+            Wallet to = wallets.get(txn.getToUserId());
+            if (from == null || to == null) {
+                outcomes.add(TransferOutcome.failed(completed, "Wallet not found"));
+                continue;
+            }
+            long amount = txn.getAmount();
+            long fromBalance = balances.get(from.getUserId());
+            if (fromBalance < amount) {
+                outcomes.add(TransferOutcome.failed(completed, "Insufficient balance"));
+                continue;
+            }
+            balances.put(from.getUserId(), Money.subtract(fromBalance, amount));
+            balances.put(to.getUserId(), Money.add(balances.get(to.getUserId()), amount));
+            touched.put(from.getUserId(), balances.get(from.getUserId()));
+            touched.put(to.getUserId(), balances.get(to.getUserId()));
+            String ledgerTxnId = LedgerEntry.txnIdOf(txn);
+            ledger.add(LedgerEntry.debit(ledgerTxnId, from.getUserId(), amount));
+            ledger.add(LedgerEntry.credit(ledgerTxnId, to.getUserId(), amount));
+
+            completed.setSuccess(true);
+            outcomes.add(new TransferOutcome(completed,
+                    new WalletUpdatedPayload(from.getUserEmail(), balances.get(from.getUserId()), txn.getRequestId()),
+                    new WalletUpdatedPayload(to.getUserEmail(), balances.get(to.getUserId()), txn.getRequestId())));
+        }
+
+        // the locked entities are never modified, so Hibernate has nothing to flush on commit
+        if (!touched.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE wallet SET balance = ?, last_updated = CURRENT_TIMESTAMP(6) WHERE user_id = ?",
+                    touched.entrySet(), touched.size(), (ps, entry) -> {
+                        ps.setBigDecimal(1, Money.toDecimal(entry.getValue()));
+                        ps.setLong(2, entry.getKey());
+                    });
+        }
+        // a redelivered transfer fails the whole batch here; the caller's per-record fallback
+        // re-sends its completion
+        ledgerBatchWriter.append(ledger);
+        List<String> appliedTxnIds = new ArrayList<>(ledger.size() / 2);
+        for (int i = 0; i < ledger.size(); i += 2) {
+            appliedTxnIds.add(ledger.get(i).getTxnId());
+        }
+        ledgerTxnIdFilter.recordAfterCommit(appliedTxnIds);
+        walletBalanceCache.invalidateAfterCommit(touched.keySet());
+        return outcomes;
+    }
+
+    /**
+     * Creates the wallets (and their opening ledger rows) for a poll batch of USER-CREATED events
+     * with one multi-row insert each. Users that already have a wallet are skipped by the unique
+     * keys rather than by a lookup, which also makes redelivered batches harmless.
+     */
+    @Transactional
+    public int provisionWallets(List<UserCreatedPayload> users) {
+        List<Wallet> wallets = new ArrayList<>(users.size());
+        List<LedgerEntry> openings = new ArrayList<>(users.size());
+        for (UserCreatedPayload user : users) {
+            Wallet wallet = new Wallet();
+            wallet.setUserId(user.getUserId());
+            wallet.setUserEmail(user.getUserEmail());
+            wallet.setBalance(Money.rupees(100));
+            wallet.setRequestId(user.getRequestId());
+            wallets.add(wallet);
+            openings.add(LedgerEntry.opening(user.getUserId(), wallet.getBalance()));
+        }
+        int created = walletBatchWriter.insertIfAbsent(wallets);
+        ledgerBatchWriter.appendIgnoringDuplicates(openings);
+        return created;
     }
 
     public String processingPGTxn(String pgtxn){
         PGPaymentStatusDTO paymentStatusDTO =
-                restTemplate.getForObject("http://localhost:9090/pg-service/payment-status/" + pgtxn,
+                restTemplate.getForObject(pgBaseUrl + "/pg-service/payment-status/" + pgtxn,
                         PGPaymentStatusDTO.class);
+        return applyPgPaymentStatus(pgtxn, paymentStatusDTO);
+    }
 
+    /**
+     * Credits a successful add-money payment. Safe to call any number of times for the same pgTxnId:
+     * the ledger row (uk_ledger_txn) lets exactly one call apply the credit.
+     */
+    public String applyPgPaymentStatus(String pgtxn, PGPaymentStatusDTO paymentStatusDTO){
         if (paymentStatusDTO == null || paymentStatusDTO.getStatus() == null) {
             return "user updated failed";
         }
 
         if (paymentStatusDTO.getStatus().equalsIgnoreCase("SUCCESS")) {
-            Wallet wallet = walletRepo.findByUserId(paymentStatusDTO.getUserId());
-            if (wallet == null) {
-                return "user updated failed";
+            Long userId = paymentStatusDTO.getUserId();
+            long amount = Money.ofRupees(paymentStatusDTO.getAmount());
+            if (balanceEngine != null) {
+                // the wallet's partition checks pgtxn and credits in one step; null means already credited
+                try {
+                    balanceEngine.credit(userId, amount, pgtxn).join();
+                    return "user updated successfully";
+                } catch (CompletionException e) {
+                    RuntimeException cause = engineFailure(e);
+                    if (cause instanceof ResponseStatusException notFound
+                            && notFound.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                        return "user updated failed";
+                    }
+                    throw cause;
+                }
+            }
+            // the ledger row makes a repeated status poll a no-op instead of a second credit
+            try {
+                Boolean credited = transactionTemplate.execute(status -> {
+                    ledgerBatchWriter.append(List.of(LedgerEntry.credit(pgtxn, userId, amount)));
+                    if (hotWalletService.credit(userId, amount) == 0) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    ledgerTxnIdFilter.recordAfterCommit(List.of(pgtxn));
+                    walletBalanceCache.invalidateAfterCommit(List.of(userId));
+                    return true;
+                });
+                return Boolean.TRUE.equals(credited) ? "user updated successfully" : "user updated failed";
+            } catch (DuplicateKeyException e) {
+                LOGGER.info("pgTxn={} already credited", pgtxn);
+                return "user updated successfully";
             }
-            wallet.setBalance(wallet.getBalance() + paymentStatusDTO.getAmount());
-            walletRepo.save(wallet);
-            return "user updated successfully";
         }
         return "user updated failed";
     }
@@ -145,27 +387,45 @@ public class WalletService {
     @Transactional
     public void applyPgCapture(com.wallet.code.dto.TxnCompletedPayload e) {
         String txnId = e.getRequestId();
-        if (ledgerRepo.existsByTxnId(txnId)) {
-            LOGGER.info("txnId={} already applied; skipping", txnId);
-            return;
-        }
 
         // Business rule: credit the receiver (toUserId). Adjust to your use-case.
         Long creditUser = e.getToUserId();
-        Wallet w = walletRepo.findByUserId(creditUser);
-        if (w == null) {
+        if (balanceEngine != null) {
+            // the duplicate check runs on the wallet's partition thread, so it cannot race the credit
+            WalletUpdatedPayload updated;
+            try {
+                updated = balanceEngine.credit(creditUser, e.getAmount(), txnId).join();
+            } catch (CompletionException ex) {
+                throw engineFailure(ex);
+            }
+            if (updated == null) {
+                LOGGER.info("txnId={} already applied; skipping", txnId);
+                return;
+            }
+            // the engine writes the ledger row in the same flush as the balance
+            kafkaTemplate.send(WALLETUPDATED, updated.getUserEmail(), updated);
+            return;
+        }
+        if (ledgerTxnIdFilter.alreadyApplied(txnId)) {
+            LOGGER.info("txnId={} already applied; skipping", txnId);
+            return;
+        }
+        if (hotWalletService.credit(creditUser, e.getAmount()) == 0) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Wallet not found for userId=" + creditUser);
         }
+        Wallet w = walletRepo.findByUserId(creditUser);
 
-        w.setBalance(w.getBalance() + e.getAmount());
-        walletRepo.save(w);
-
-        ledgerRepo.save(com.wallet.service.Model.LedgerEntry.credit(txnId, creditUser, e.getAmount()));
+        ledgerRepo.save(LedgerEntry.credit(txnId, creditUser, e.getAmount()));
+        ledgerTxnIdFilter.recordAfterCommit(List.of(txnId));
+        walletBalanceCache.invalidateAfterCommit(List.of(creditUser));
 
         // optional: publish wallet.updated (you already do for other flows)
-        WalletUpdatedPayload payload = new WalletUpdatedPayload(w.getUserEmail(), w.getBalance(), txnId);
+        WalletUpdatedPayload payload = new WalletUpdatedPayload(w.getUserEmail(), hotWalletService.totalBalance(w), txnId);
         kafkaTemplate.send(WALLETUPDATED, w.getUserEmail(), payload);
     }
 
-
+    // the engine's own failure (404 for a missing wallet, anything else as thrown), not the future's wrapper
+    private static RuntimeException engineFailure(CompletionException e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
 }
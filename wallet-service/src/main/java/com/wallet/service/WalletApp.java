@@ -3,9 +3,11 @@ package com.wallet.service;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan({"com.wallet.service","com.wallet.code"})
+@EnableScheduling
 public class WalletApp {
     public static void main(String[] args) {
         SpringApplication.run(WalletApp.class, args);
@@ -0,0 +1,39 @@
+package com.wallet.service.archive;
+
+import com.wallet.service.dto.StatementEntryDto;
+
+import java.time.Instant;
+import java.util.Comparator;
+
+/** One ledger row as stored in a cold segment; {@code createdAtMicros} is epoch microseconds (the column's precision). */
+public record ArchivedEntry(long id, long userId, String txnId, long amount, boolean debit, long createdAtMicros) {
+
+    /** Segment row order: per user, chronological. */
+    static final Comparator<ArchivedEntry> SEGMENT_ORDER = Comparator.comparingLong(ArchivedEntry::userId)
+            .thenComparingLong(ArchivedEntry::createdAtMicros)
+            .thenComparingLong(ArchivedEntry::id);
+
+    /** Statement order within one user: (createdAt, id). */
+    public static final Comparator<ArchivedEntry> TIME_ORDER = Comparator.comparingLong(ArchivedEntry::createdAtMicros)
+            .thenComparingLong(ArchivedEntry::id);
+
+    public static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    public static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    public Instant createdAt() {
+        return fromMicros(createdAtMicros);
+    }
+
+    public long signedAmount() {
+        return debit ? -amount : amount;
+    }
+
+    public StatementEntryDto toStatementEntry() {
+        return new StatementEntryDto(id, txnId, debit ? "DEBIT" : "CREDIT", amount, createdAt());
+    }
+}
@@ -0,0 +1,338 @@
+package com.wallet.service.archive;
+
+import com.wallet.code.lock.NamedLock;
+import com.wallet.code.money.Money;
+import com.wallet.service.Repository.WalletSnapshotRepo;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Cold tier of {@code wallet_ledger}. A scheduled job moves ledger rows older than
+ * {@code wallet.archive.horizon-days} into immutable segment files under {@code wallet.archive.dir}
+ * and deletes them from MySQL, keeping the hot table (and the InnoDB buffer pool) to recent rows.
+ * Only rows already folded into balance snapshots are archived, so snapshots and the ledger tail
+ * they are replayed against always stay in MySQL.
+ * <p>
+ * Segments cover contiguous id ranges from the start of the ledger: a run takes rows in id order
+ * after the last segment and stops at the first one that is not old enough yet. Every id up to
+ * {@link #archivedThroughId} is therefore archived, and hot readers add {@code id > archivedThroughId}
+ * so a row that is briefly in both tiers (segment visible, purge not done) is counted once.
+ * Archived rows have lower ids than hot rows, but not necessarily earlier timestamps: an engine
+ * leg is stamped before its write-behind flush allocates the id.
+ * <p>
+ * Statements, historical balances and the txnId idempotency check read both tiers. MySQL's
+ * uk_ledger_txn no longer sees archived txnIds; {@link #containsTxnId} covers them instead.
+ * <p>
+ * Segments are local files that are only read at startup and appended by this instance, so the
+ * archive must only be enabled when wallet-service runs as a single instance: rows another
+ * instance archived would be gone from MySQL and missing from this one's segments. A MySQL named
+ * lock still keeps a second instance that was started with it enabled from archiving concurrently.
+ */
+@Component
+public class LedgerArchive {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerArchive.class);
+
+    private static final String SELECT_CANDIDATES =
+            "SELECT id, user_id, txn_id, amount, direction, created_at FROM wallet_ledger "
+                    + "WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    // a segment took every row in its id range
+    private static final String PURGE =
+            "DELETE FROM wallet_ledger WHERE id BETWEEN ? AND ? ORDER BY id LIMIT ?";
+
+    private static final int PURGE_CHUNK = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WalletSnapshotRepo walletSnapshotRepo;
+
+    @Value("${wallet.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${wallet.archive.dir:./ledger-archive}")
+    private String dir;
+
+    @Value("${wallet.archive.horizon-days:90}")
+    private long horizonDays;
+
+    @Value("${wallet.archive.segment-rows:200000}")
+    private int segmentRows;
+
+    @Value("${wallet.archive.block-rows:4096}")
+    private int blockRows;
+
+    // ordered by first ledger id and append-only; each iteration sees a stable snapshot
+    private final List<LedgerSegment> segments = new CopyOnWriteArrayList<>();
+    private Path directory;
+
+    @PostConstruct
+    void load() throws IOException {
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        List<LedgerSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.seg*")) {
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.delete(file);     // interrupted write; its rows are still in MySQL
+                } else {
+                    loaded.add(LedgerSegment.open(file));
+                }
+            }
+        }
+        loaded.sort(Comparator.comparingLong(LedgerSegment::minLedgerId));
+        segments.addAll(loaded);
+        if (!loaded.isEmpty()) {
+            // a crash between writing the newest segment and purging its rows leaves them in both tiers
+            purge(loaded.get(loaded.size() - 1));
+            LOGGER.info("Loaded {} ledger archive segments from {}", loaded.size(), directory.toAbsolutePath());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${wallet.archive.interval-ms:3600000}",
+            fixedDelayString = "${wallet.archive.interval-ms:3600000}")
+    public void archivePending() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            boolean ran = NamedLock.runExclusively(jdbcTemplate, "wallet:ledger-archive", () -> {
+                try {
+                    while (archiveOnce()) {
+                        // keep going while segments come out full
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!ran) {
+                LOGGER.warn("Ledger archival skipped: another instance holds the archive lock; "
+                        + "the archive must only be enabled on a single instance");
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Ledger archival failed; rows stay in MySQL until the next run", e);
+        }
+    }
+
+    /** Archives up to one segment of eligible rows; true if there may be more. */
+    boolean archiveOnce() throws IOException {
+        long after = archivedThroughId();
+        long watermark = walletSnapshotRepo.findWatermark();
+        Instant horizon = Instant.now().minus(Duration.ofDays(horizonDays));
+        long horizonMicros = ArchivedEntry.toMicros(horizon);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        List<ArchivedEntry> rows = new ArrayList<>();
+        boolean[] young = {false};
+        jdbcTemplate.query(SELECT_CANDIDATES, ps -> {
+            ps.setLong(1, after);
+            ps.setLong(2, watermark);
+            ps.setInt(3, segmentRows);
+        }, rs -> {
+            if (young[0]) {
+                return;
+            }
+            long createdAt = ArchivedEntry.toMicros(rs.getTimestamp("created_at", utc).toInstant());
+            if (createdAt >= horizonMicros) {
+                // segments stay contiguous: everything from here waits until this row is old enough
+                young[0] = true;
+                return;
+            }
+            rows.add(new ArchivedEntry(
+                    rs.getLong("id"),
+                    rs.getLong("user_id"),
+                    rs.getString("txn_id"),
+                    Money.ofDecimal(rs.getBigDecimal("amount")),
+                    "DEBIT".equals(rs.getString("direction")),
+                    createdAt));
+        });
+        if (rows.isEmpty()) {
+            return false;
+        }
+        long minId = rows.get(0).id();
+        long maxId = rows.get(rows.size() - 1).id();
+        Path file = directory.resolve(String.format("ledger-%019d-%019d.seg", minId, maxId));
+        LedgerSegmentWriter.write(file, rows, horizonMicros, blockRows);
+        LedgerSegment segment = LedgerSegment.open(file);
+        // visible before the purge: readers skip hot ids up to archivedThroughId, so never in neither, never twice
+        segments.add(segment);
+        int purged = purge(segment);
+        LOGGER.info("Archived {} ledger rows (ids {}..{}) to {}; purged {} from MySQL",
+                rows.size(), minId, maxId, file.getFileName(), purged);
+        return !young[0] && rows.size() == segmentRows;
+    }
+
+    /** Highest archived ledger id (0 if none); every lower id is archived too, or never existed. */
+    public long archivedThroughId() {
+        return segments.isEmpty() ? 0L : segments.get(segments.size() - 1).maxLedgerId();
+    }
+
+    /** Upper bound (exclusive) on the createdAt of any archived row, in epoch micros; 0 if none. */
+    public long archivedBeforeMicros() {
+        return segments.isEmpty() ? 0L : segments.get(segments.size() - 1).horizonMicros();
+    }
+
+    private int purge(LedgerSegment segment) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE, ps -> {
+                ps.setLong(1, segment.minLedgerId());
+                ps.setLong(2, segment.maxLedgerId());
+                ps.setInt(3, PURGE_CHUNK);
+            });
+            total += deleted;
+        } while (deleted == PURGE_CHUNK);
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public boolean containsTxnId(String txnId) {
+        for (LedgerSegment segment : segments) {
+            if (segment.containsTxnId(txnId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void forEachTxnId(Consumer<String> consumer) {
+        for (LedgerSegment segment : segments) {
+            segment.forEachTxnId(consumer);
+        }
+    }
+
+    /**
+     * Net archived movement in paise for rows with afterId < id <= throughId created at or before
+     * {@code atMicros}. Callers pass the {@link #archivedThroughId} their hot read skipped up to, so a
+     * segment added in between is counted in neither read rather than in both.
+     */
+    public long sumForUser(long userId, long afterId, long throughId, long atMicros) {
+        long sum = 0;
+        for (LedgerSegment segment : segments) {
+            if (segment.maxLedgerId() > throughId) {
+                break;
+            }
+            if (segment.maxLedgerId() <= afterId) {
+                continue;
+            }
+            Iterator<ArchivedEntry> rows = segment.userEntries(userId);
+            while (rows.hasNext()) {
+                ArchivedEntry row = rows.next();
+                if (row.createdAtMicros() > atMicros) {
+                    break;
+                }
+                if (row.id() > afterId) {
+                    sum = Money.add(sum, row.signedAmount());
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Feeds every archived row with id <= throughId of users in (lowerExclusive, upperInclusive],
+     * segment by segment (userId order within each); returns the rows fed. One pass over the
+     * blocks covering the range, for callers that would otherwise look users up one at a time.
+     */
+    public long forEachInUserRange(long lowerExclusive, long upperInclusive, long throughId, Consumer<ArchivedEntry> consumer) {
+        long fed = 0;
+        for (LedgerSegment segment : segments) {
+            if (segment.maxLedgerId() > throughId) {
+                break;
+            }
+            fed += segment.forEachInUserRange(lowerExclusive, upperInclusive, consumer);
+        }
+        return fed;
+    }
+
+    /** Up to {@code limit} of the user's archived rows with id <= throughId matching {@code filter}, newest first. */
+    public List<ArchivedEntry> newestForUser(long userId, long throughId, Predicate<ArchivedEntry> filter, int limit) {
+        // min-heap of the newest rows seen so far
+        PriorityQueue<ArchivedEntry> newest = new PriorityQueue<>(limit + 1, ArchivedEntry.TIME_ORDER);
+        for (LedgerSegment segment : segments) {
+            if (segment.maxLedgerId() > throughId) {
+                break;
+            }
+            Iterator<ArchivedEntry> rows = segment.userEntries(userId);
+            while (rows.hasNext()) {
+                ArchivedEntry row = rows.next();
+                if (!filter.test(row)) {
+                    continue;
+                }
+                newest.add(row);
+                if (newest.size() > limit) {
+                    newest.poll();
+                }
+            }
+        }
+        List<ArchivedEntry> result = new ArrayList<>(newest);
+        result.sort(ArchivedEntry.TIME_ORDER.reversed());
+        return result;
+    }
+
+    /** The user's archived rows with id <= throughId in (createdAt, id) order, merged across segments one block at a time. */
+    public Iterator<ArchivedEntry> iterateForUser(long userId, long throughId) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::row, ArchivedEntry.TIME_ORDER));
+        for (LedgerSegment segment : segments) {
+            if (segment.maxLedgerId() > throughId) {
+                break;
+            }
+            Iterator<ArchivedEntry> rows = segment.userEntries(userId);
+            if (rows.hasNext()) {
+                heads.add(new Head(rows.next(), rows));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public ArchivedEntry next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.rest().hasNext()) {
+                    heads.add(new Head(head.rest().next(), head.rest()));
+                }
+                return head.row();
+            }
+        };
+    }
+
+    private record Head(ArchivedEntry row, Iterator<ArchivedEntry> rest) {
+    }
+}
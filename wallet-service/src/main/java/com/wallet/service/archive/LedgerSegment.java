@@ -0,0 +1,298 @@
+package com.wallet.service.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read side of an immutable, memory-mapped ledger segment.
+ * <pre>
+ * [row blocks]    deflated; rows sorted by (userId, createdAt, id), stored column by column
+ * [txnId blocks]  deflated; every txnId of the segment, sorted
+ * [row index]     per row block: first userId, last userId, offset, compressed length, raw length
+ * [txnId index]   per txnId block: offset, compressed length, raw length, first txnId
+ * [footer]        index offsets and counts, id range, archive horizon, row count, magic
+ * </pre>
+ * Both indexes are sparse (one entry per block) and held on the heap; blocks are inflated
+ * straight from the mapping on demand, so only the blocks a lookup touches are paged in.
+ */
+public final class LedgerSegment {
+
+    static final int MAGIC = 0x574c5347; // "WLSG"
+    static final int FOOTER_BYTES = 56;
+
+    private final Path file;
+    private final MappedByteBuffer mapped;
+    private final long minLedgerId;
+    private final long maxLedgerId;
+    private final long horizonMicros;
+    private final int rowCount;
+
+    private final long[] blockFirstUser;
+    private final long[] blockLastUser;
+    private final long[] blockOffset;
+    private final int[] blockCompressed;
+    private final int[] blockRaw;
+
+    private final String[] txnFirst;
+    private final long[] txnOffset;
+    private final int[] txnCompressed;
+    private final int[] txnRaw;
+
+    private LedgerSegment(Path file, MappedByteBuffer mapped) {
+        this.file = file;
+        this.mapped = mapped;
+        ByteBuffer footer = mapped.duplicate().position(mapped.capacity() - FOOTER_BYTES);
+        long rowIndexOffset = footer.getLong();
+        int rowBlocks = footer.getInt();
+        long txnIndexOffset = footer.getLong();
+        int txnBlocks = footer.getInt();
+        this.minLedgerId = footer.getLong();
+        this.maxLedgerId = footer.getLong();
+        this.horizonMicros = footer.getLong();
+        this.rowCount = footer.getInt();
+        if (footer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a ledger segment: " + file);
+        }
+
+        ByteBuffer index = mapped.duplicate().position((int) rowIndexOffset);
+        blockFirstUser = new long[rowBlocks];
+        blockLastUser = new long[rowBlocks];
+        blockOffset = new long[rowBlocks];
+        blockCompressed = new int[rowBlocks];
+        blockRaw = new int[rowBlocks];
+        for (int i = 0; i < rowBlocks; i++) {
+            blockFirstUser[i] = index.getLong();
+            blockLastUser[i] = index.getLong();
+            blockOffset[i] = index.getLong();
+            blockCompressed[i] = index.getInt();
+            blockRaw[i] = index.getInt();
+        }
+
+        index.position((int) txnIndexOffset);
+        txnFirst = new String[txnBlocks];
+        txnOffset = new long[txnBlocks];
+        txnCompressed = new int[txnBlocks];
+        txnRaw = new int[txnBlocks];
+        for (int i = 0; i < txnBlocks; i++) {
+            txnOffset[i] = index.getLong();
+            txnCompressed[i] = index.getInt();
+            txnRaw[i] = index.getInt();
+            txnFirst[i] = readString(index);
+        }
+    }
+
+    static LedgerSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new LedgerSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public long minLedgerId() {
+        return minLedgerId;
+    }
+
+    public long maxLedgerId() {
+        return maxLedgerId;
+    }
+
+    public long horizonMicros() {
+        return horizonMicros;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public boolean containsTxnId(String txnId) {
+        // last block whose first txnId <= txnId
+        int lo = 0;
+        int hi = txnFirst.length - 1;
+        int block = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (txnFirst[mid].compareTo(txnId) <= 0) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return false;
+        }
+        ByteBuffer raw = inflate(txnOffset[block], txnCompressed[block], txnRaw[block]);
+        int count = raw.getInt();
+        for (int i = 0; i < count; i++) {
+            int cmp = readString(raw).compareTo(txnId);
+            if (cmp == 0) {
+                return true;
+            }
+            if (cmp > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public void forEachTxnId(Consumer<String> consumer) {
+        for (int block = 0; block < txnFirst.length; block++) {
+            ByteBuffer raw = inflate(txnOffset[block], txnCompressed[block], txnRaw[block]);
+            int count = raw.getInt();
+            for (int i = 0; i < count; i++) {
+                consumer.accept(readString(raw));
+            }
+        }
+    }
+
+    /** The user's archived rows in (createdAt, id) order, one inflated block in memory at a time. */
+    public Iterator<ArchivedEntry> userEntries(long userId) {
+        return new UserIterator(userId, firstBlockFor(userId));
+    }
+
+    /** Feeds every row of users in (lowerExclusive, upperInclusive] in userId order; returns the rows fed. */
+    public int forEachInUserRange(long lowerExclusive, long upperInclusive, Consumer<ArchivedEntry> consumer) {
+        if (lowerExclusive >= upperInclusive) {
+            return 0;
+        }
+        int fed = 0;
+        for (int block = firstBlockFor(lowerExclusive + 1);
+             block < blockFirstUser.length && blockFirstUser[block] <= upperInclusive; block++) {
+            for (ArchivedEntry row : decodeBlock(block)) {
+                if (row.userId() > upperInclusive) {
+                    return fed;
+                }
+                if (row.userId() > lowerExclusive) {
+                    consumer.accept(row);
+                    fed++;
+                }
+            }
+        }
+        return fed;
+    }
+
+    private int firstBlockFor(long userId) {
+        // first block whose last userId >= userId
+        int lo = 0;
+        int hi = blockLastUser.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockLastUser[mid] < userId) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private ArchivedEntry[] decodeBlock(int block) {
+        ByteBuffer raw = inflate(blockOffset[block], blockCompressed[block], blockRaw[block]);
+        int n = raw.getInt();
+        long[] users = new long[n];
+        long[] ids = new long[n];
+        long[] created = new long[n];
+        long[] amounts = new long[n];
+        for (int i = 0; i < n; i++) users[i] = raw.getLong();
+        for (int i = 0; i < n; i++) ids[i] = raw.getLong();
+        for (int i = 0; i < n; i++) created[i] = raw.getLong();
+        for (int i = 0; i < n; i++) amounts[i] = raw.getLong();
+        boolean[] debit = new boolean[n];
+        for (int i = 0; i < n; i++) debit[i] = raw.get() == 1;
+        ArchivedEntry[] rows = new ArchivedEntry[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = new ArchivedEntry(ids[i], users[i], readString(raw), amounts[i], debit[i], created[i]);
+        }
+        return rows;
+    }
+
+    private ByteBuffer inflate(long offset, int compressed, int rawLength) {
+        ByteBuffer source = mapped.slice((int) offset, compressed);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(source);
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block in ledger segment " + file, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private final class UserIterator implements Iterator<ArchivedEntry> {
+        private final long userId;
+        private int block;
+        private ArchivedEntry[] rows;
+        private int pos;
+        private ArchivedEntry next;
+
+        UserIterator(long userId, int block) {
+            this.userId = userId;
+            this.block = block;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (true) {
+                if (rows != null && pos < rows.length) {
+                    ArchivedEntry row = rows[pos++];
+                    if (row.userId() == userId) {
+                        next = row;
+                        return;
+                    }
+                    if (row.userId() > userId) {
+                        return;
+                    }
+                    continue;
+                }
+                if (block >= blockFirstUser.length || blockFirstUser[block] > userId) {
+                    return;
+                }
+                rows = decodeBlock(block++);
+                pos = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public ArchivedEntry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            ArchivedEntry current = next;
+            advance();
+            return current;
+        }
+    }
+}
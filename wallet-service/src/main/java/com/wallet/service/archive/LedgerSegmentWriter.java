@@ -0,0 +1,158 @@
+package com.wallet.service.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an immutable ledger segment (format described on {@link LedgerSegment}). The file is
+ * written under a temporary name, forced to disk and then atomically renamed, so a segment that
+ * exists under its final name is always complete.
+ */
+final class LedgerSegmentWriter {
+
+    private LedgerSegmentWriter() {
+    }
+
+    /** {@code rows} must be non-empty; they are re-sorted into segment order. */
+    static void write(Path file, List<ArchivedEntry> rows, long horizonMicros, int blockRows) throws IOException {
+        List<ArchivedEntry> sorted = new ArrayList<>(rows);
+        sorted.sort(ArchivedEntry.SEGMENT_ORDER);
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        List<String> txnIds = new ArrayList<>(sorted.size());
+        for (ArchivedEntry row : sorted) {
+            minId = Math.min(minId, row.id());
+            maxId = Math.max(maxId, row.id());
+            txnIds.add(row.txnId());
+        }
+        txnIds.sort(null);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            try {
+                ByteArrayOutputStream rowIndex = new ByteArrayOutputStream();
+                DataOutputStream rowIndexOut = new DataOutputStream(rowIndex);
+                int rowBlocks = 0;
+                for (int from = 0; from < sorted.size(); from += blockRows) {
+                    List<ArchivedEntry> block = sorted.subList(from, Math.min(sorted.size(), from + blockRows));
+                    byte[] raw = encodeRows(block);
+                    long offset = channel.position();
+                    int compressed = writeDeflated(channel, deflater, raw);
+                    rowIndexOut.writeLong(block.get(0).userId());
+                    rowIndexOut.writeLong(block.get(block.size() - 1).userId());
+                    rowIndexOut.writeLong(offset);
+                    rowIndexOut.writeInt(compressed);
+                    rowIndexOut.writeInt(raw.length);
+                    rowBlocks++;
+                }
+
+                ByteArrayOutputStream txnIndex = new ByteArrayOutputStream();
+                DataOutputStream txnIndexOut = new DataOutputStream(txnIndex);
+                int txnBlocks = 0;
+                for (int from = 0; from < txnIds.size(); from += blockRows) {
+                    List<String> block = txnIds.subList(from, Math.min(txnIds.size(), from + blockRows));
+                    byte[] raw = encodeStrings(block);
+                    long offset = channel.position();
+                    int compressed = writeDeflated(channel, deflater, raw);
+                    txnIndexOut.writeLong(offset);
+                    txnIndexOut.writeInt(compressed);
+                    txnIndexOut.writeInt(raw.length);
+                    writeString(txnIndexOut, block.get(0));
+                    txnBlocks++;
+                }
+
+                long rowIndexOffset = channel.position();
+                writeFully(channel, ByteBuffer.wrap(rowIndex.toByteArray()));
+                long txnIndexOffset = channel.position();
+                writeFully(channel, ByteBuffer.wrap(txnIndex.toByteArray()));
+
+                ByteBuffer footer = ByteBuffer.allocate(LedgerSegment.FOOTER_BYTES);
+                footer.putLong(rowIndexOffset).putInt(rowBlocks)
+                        .putLong(txnIndexOffset).putInt(txnBlocks)
+                        .putLong(minId).putLong(maxId).putLong(horizonMicros)
+                        .putInt(sorted.size()).putInt(LedgerSegment.MAGIC)
+                        .flip();
+                writeFully(channel, footer);
+            } finally {
+                deflater.end();
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // columns one after another, so each compresses against similar values
+    private static byte[] encodeRows(List<ArchivedEntry> block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(block.size());
+        for (ArchivedEntry row : block) {
+            out.writeLong(row.userId());
+        }
+        for (ArchivedEntry row : block) {
+            out.writeLong(row.id());
+        }
+        for (ArchivedEntry row : block) {
+            out.writeLong(row.createdAtMicros());
+        }
+        for (ArchivedEntry row : block) {
+            out.writeLong(row.amount());
+        }
+        for (ArchivedEntry row : block) {
+            out.writeByte(row.debit() ? 1 : 0);
+        }
+        for (ArchivedEntry row : block) {
+            writeString(out, row.txnId());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeStrings(List<String> block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.size() * 24);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(block.size());
+        for (String value : block) {
+            writeString(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static int writeDeflated(FileChannel channel, Deflater deflater, byte[] raw) throws IOException {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+        int total = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            writeFully(channel, ByteBuffer.wrap(buffer, 0, n));
+            total += n;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.wallet.service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.service.Service.WalletEventPublisher;
+import com.wallet.service.engine.BalanceEngine;
+import com.wallet.service.engine.TransferOutcome;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * TXN-INIT consumer used when the {@link BalanceEngine} is enabled. A whole poll batch is handed
+ * to the engine and the listener returns only once every transfer is durable and its events were
+ * acknowledged by the broker, so the batch offsets are never committed ahead of the balances.
+ * Events are sent from the listener thread, so in a Kafka transaction they commit with the offsets.
+ * A failed transfer fails the listener, so the container's error handler redelivers the batch
+ * rather than committing offsets past a record that was never applied.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.engine.enabled", havingValue = "true")
+public class EngineTxnInitConsumer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EngineTxnInitConsumer.class);
+
+    @Autowired
+    private BalanceEngine balanceEngine;
+
+    @Autowired
+    private WalletEventPublisher walletEventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @KafkaListener(topics = "${wallet.init.topic}", groupId = "wallet", batch = "true",
+            containerFactory = "walletTxnContainerFactory")
+    public void consumeTxnInitBatch(List<ConsumerRecord<String, String>> records) {
+        List<CompletableFuture<TransferOutcome>> inflight = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            if (record.value() == null) {
+                continue;
+            }
+            TxnInitPayload txnInitPayload;
+            try {
+                txnInitPayload = objectMapper.readValue(record.value(), TxnInitPayload.class);
+            } catch (Exception e) {
+                LOGGER.error("Failed to parse txn-init message, skipping. raw='{}'", record.value(), e);
+                continue;
+            }
+            inflight.add(balanceEngine.transfer(txnInitPayload));
+        }
+        try {
+            CompletableFuture.allOf(inflight.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            // the container's error handler redelivers the batch; transfers that did apply are
+            // recognised by txnId on the way back and only have their events sent again
+            LOGGER.error("Engine failed on a batch of {} txn-init records; batch will be redelivered", records.size(), e);
+            throw e;
+        }
+        List<TransferOutcome> outcomes = new ArrayList<>(inflight.size());
+        for (CompletableFuture<TransferOutcome> transfer : inflight) {
+            outcomes.add(transfer.join());
+        }
+        CompletableFuture<Void> sends = walletEventPublisher.publishAll(outcomes);
+        if (!kafkaTemplate.inTransaction()) {
+            sends.join();
+        }
+        LOGGER.debug("Applied {} txn-init records through the balance engine", inflight.size());
+    }
+}
@@ -2,13 +2,17 @@ package com.wallet.service.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+
 @Configuration
 public class RestConfig {
 
+    // shared client from Common-CodeBase, so calls follow the service's threading mode
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(HttpClient outboundHttpClient) {
+        return new RestTemplate(new JdkClientHttpRequestFactory(outboundHttpClient));
     }
 }
@@ -3,9 +3,14 @@ package com.wallet.service.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wallet.code.dto.TxnInitPayload;
 import com.wallet.code.dto.UserCreatedPayload;
+import com.wallet.code.money.Money;
+import com.wallet.service.Model.LedgerEntry;
 import com.wallet.service.Model.Wallet;
+import com.wallet.service.Repository.LedgerRepo;
 import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Service.WalletEventPublisher;
 import com.wallet.service.Service.WalletService;
+import com.wallet.service.engine.TransferOutcome;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +18,12 @@ import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Configuration
 public class WalletKafkaConsumerConfig {
@@ -25,10 +36,24 @@ public class WalletKafkaConsumerConfig {
     @Autowired
     private WalletService walletService;
 
+    @Autowired
+    private LedgerRepo ledgerRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    @KafkaListener(topics = "${wallet.usercreated.topic}", groupId = "wallet")
+    @Autowired
+    private WalletEventPublisher walletEventPublisher;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    // replaced by consumeUserCreatedBatch when wallet.usercreated.batch.enabled=true
+    @KafkaListener(topics = "${wallet.usercreated.topic}", groupId = "wallet",
+            autoStartup = "#{!${wallet.usercreated.batch.enabled:false}}")
     public void consumeUserCreated(ConsumerRecord<String, String> payload) {
         if (payload == null || payload.value() == null) {
             LOGGER.warn("Received null payload for user created topic; ignoring.");
@@ -52,8 +77,12 @@ public class WalletKafkaConsumerConfig {
                     Wallet wallet = new Wallet();
                     wallet.setUserId(userCreatedPayload.getUserId());
                     wallet.setUserEmail(userCreatedPayload.getUserEmail());
-                    wallet.setBalance(100.0);
-                    walletRepo.save(wallet);
+                    wallet.setBalance(Money.rupees(100));
+                    // the opening balance is the wallet's first ledger row
+                    transactionTemplate.executeWithoutResult(status -> {
+                        walletRepo.save(wallet);
+                        ledgerRepo.save(LedgerEntry.opening(wallet.getUserId(), wallet.getBalance()));
+                    });
                 } else {
                     LOGGER.info("Wallet already exists for userId={}, skipping create", userCreatedPayload.getUserId());
                 }
@@ -68,30 +97,141 @@ public class WalletKafkaConsumerConfig {
         }
     }
 
-    @KafkaListener(topics = "${wallet.init.topic}", groupId = "wallet")
+    @KafkaListener(topics = "${wallet.usercreated.topic}", groupId = "wallet", batch = "true",
+            autoStartup = "#{${wallet.usercreated.batch.enabled:false}}",
+            properties = {
+                    "max.poll.records=${wallet.usercreated.batch.max-size:1000}",
+                    "fetch.max.wait.ms=${wallet.usercreated.batch.max-linger-ms:50}"
+            })
+    public void consumeUserCreatedBatch(List<ConsumerRecord<String, String>> records) {
+        List<UserCreatedPayload> users = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            if (record.value() == null) {
+                continue;
+            }
+            try {
+                UserCreatedPayload user = objectMapper.readValue(record.value(), UserCreatedPayload.class);
+                if (user.getUserId() != null) {
+                    users.add(user);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to parse user-created message, skipping. raw='{}'", record.value(), e);
+            }
+        }
+        if (users.isEmpty()) {
+            return;
+        }
+        // a DB failure propagates so the container redelivers the whole poll; re-inserts are no-ops
+        int created = walletService.provisionWallets(users);
+        LOGGER.info("Provisioned {} new wallets from {} user-created events", created, users.size());
+    }
+
+    // replaced by consumeTxnInitBatch in batch mode, and by EngineTxnInitConsumer when the balance engine owns the wallets
+    @KafkaListener(topics = "${wallet.init.topic}", groupId = "wallet", containerFactory = "walletTxnContainerFactory",
+            autoStartup = "#{!${wallet.engine.enabled:false} && !${wallet.txninit.batch.enabled:false}}")
     public void consumeTxnInit(ConsumerRecord<String, String> payload) {
         if (payload == null || payload.value() == null) {
             LOGGER.warn("Received null payload for txn init topic; ignoring.");
             return;
         }
+        TxnInitPayload txnInitPayload;
         try {
-            TxnInitPayload txnInitPayload = objectMapper.readValue(payload.value(), TxnInitPayload.class);
+            txnInitPayload = objectMapper.readValue(payload.value(), TxnInitPayload.class);
+        } catch (Exception e) {
+            // avoid throwing to prevent endless retries on poison messages
+            LOGGER.error("Failed to parse txn-init message, skipping. raw='{}'", payload.value(), e);
+            return;
+        }
 
-            String requestId = txnInitPayload.getRequestId();
-            if (requestId != null) {
-                MDC.put("requestId", requestId);
+        String requestId = txnInitPayload.getRequestId();
+        if (requestId != null) {
+            MDC.put("requestId", requestId);
+        }
+        try {
+            LOGGER.info("read from kafka topic {}", requestId);
+            walletService.walletTxn(txnInitPayload);
+        } catch (Exception e) {
+            if (kafkaTemplate.inTransaction()) {
+                // abort the Kafka transaction so no event of a rolled-back transfer is ever visible;
+                // the container's after-rollback processor redelivers and eventually skips the record
+                throw new IllegalStateException("txn-init " + requestId + " failed; aborting Kafka transaction", e);
             }
+            LOGGER.error("Failed to process txn-init message, skipping. raw='{}'", payload.value(), e);
+        } finally {
+            MDC.clear();
+        }
+    }
 
+    /**
+     * Batch mode for TXN-INIT: a poll of up to {@code max-size} records (the broker lingers up to
+     * {@code max-linger-ms} to fill it) is applied in one DB transaction and its events are
+     * published together afterwards. If the batch fails as a whole, every record is retried on its
+     * own through {@link WalletService#walletTxn} so one bad record cannot poison its neighbours.
+     * <p>
+     * Inside a Kafka transaction nothing is skipped: a record that still fails, or a publish that
+     * fails, aborts the transaction and the batch is redelivered, like {@link #consumeTxnInit}. The
+     * sends are not awaited there; they commit with the offsets or not at all. Transfers that did
+     * commit are recognised by txnId on redelivery and only have their events sent again.
+     */
+    @KafkaListener(topics = "${wallet.init.topic}", groupId = "wallet", batch = "true",
+            containerFactory = "walletTxnContainerFactory",
+            autoStartup = "#{${wallet.txninit.batch.enabled:false} && !${wallet.engine.enabled:false}}",
+            properties = {
+                    "max.poll.records=${wallet.txninit.batch.max-size:500}",
+                    "fetch.max.wait.ms=${wallet.txninit.batch.max-linger-ms:20}",
+                    "fetch.min.bytes=${wallet.txninit.batch.min-fetch-bytes:65536}"
+            })
+    public void consumeTxnInitBatch(List<ConsumerRecord<String, String>> records) {
+        List<TxnInitPayload> batch = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            if (record.value() == null) {
+                continue;
+            }
             try {
-                LOGGER.info("read from kafka topic {}", requestId);
-                walletService.walletTxn(txnInitPayload);
-            } finally {
-                MDC.clear();
+                batch.add(objectMapper.readValue(record.value(), TxnInitPayload.class));
+            } catch (Exception e) {
+                LOGGER.error("Failed to parse txn-init message, skipping. raw='{}'", record.value(), e);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<TransferOutcome> outcomes;
+        try {
+            outcomes = walletService.walletTxnBatch(batch);
+        } catch (Exception e) {
+            LOGGER.warn("Batch of {} txn-init records failed, falling back to per-record processing", batch.size(), e);
+            for (TxnInitPayload txnInitPayload : batch) {
+                if (txnInitPayload.getRequestId() != null) {
+                    MDC.put("requestId", txnInitPayload.getRequestId());
+                }
+                try {
+                    walletService.walletTxn(txnInitPayload);
+                } catch (Exception ex) {
+                    if (kafkaTemplate.inTransaction()) {
+                        throw new IllegalStateException("txn-init " + txnInitPayload.getRequestId()
+                                + " failed; aborting Kafka transaction for the batch", ex);
+                    }
+                    LOGGER.error("Failed to process txn-init {}, skipping.", txnInitPayload, ex);
+                } finally {
+                    MDC.clear();
+                }
             }
+            return;
+        }
+
+        CompletableFuture<Void> sends = walletEventPublisher.publishAll(outcomes);
+        if (kafkaTemplate.inTransaction()) {
+            // a failed send fails the commit, and the container redelivers the batch
+            LOGGER.info("Applied txn-init batch of {} records", outcomes.size());
+            return;
+        }
+        try {
+            sends.join();
+            LOGGER.info("Applied txn-init batch of {} records", outcomes.size());
         } catch (Exception e) {
-            LOGGER.error("Failed to process txn-init message, skipping. raw='{}'", payload.value(), e);
-            MDC.clear();
-            // avoid throwing to prevent endless retries on poison messages
+            LOGGER.error("Batch of {} transfers committed but publishing their events failed", outcomes.size(), e);
         }
     }
 
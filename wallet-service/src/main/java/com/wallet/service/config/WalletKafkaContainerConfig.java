@@ -0,0 +1,63 @@
+package com.wallet.service.config;
+
+import com.wallet.code.config.KafkaProducerConfig;
+import com.wallet.service.engine.BalanceEngine;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+
+import java.util.Collection;
+
+@Configuration
+public class WalletKafkaContainerConfig {
+
+    @Autowired
+    private KafkaProducerConfig kafkaProducerConfig;
+
+    /**
+     * Container factory for the TXN-INIT listeners. When a transactional producer is configured
+     * (kafka.producer.transaction-id-prefix) each delivery runs inside a Kafka transaction, so the
+     * consumed TXN-INIT offsets and the WALLET-UPDATED / TXN-COMPLETED records sent from the
+     * listener thread commit or abort together.
+     * <p>
+     * The KafkaTransactionManager is deliberately not a bean: that would displace the JPA
+     * transaction manager that {@code @Transactional} service methods rely on.
+     * <p>
+     * With the balance engine enabled, revoked partitions make the engine drop its cached balances:
+     * the wallets behind them may be debited by another node until they come back.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> walletTxnContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            ProducerFactory<String, Object> producerFactory,
+            ObjectProvider<BalanceEngine> balanceEngine) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        if (kafkaProducerConfig.isTransactional()) {
+            factory.getContainerProperties().setKafkaAwareTransactionManager(new KafkaTransactionManager<>(producerFactory));
+        }
+        balanceEngine.ifAvailable(engine -> factory.getContainerProperties().setConsumerRebalanceListener(
+                new ConsumerRebalanceListener() {
+                    @Override
+                    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                        if (!partitions.isEmpty()) {
+                            engine.evictAll();
+                        }
+                    }
+
+                    @Override
+                    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    }
+                }));
+        return factory;
+    }
+}
@@ -1,13 +1,31 @@
 package com.wallet.service.controller;
 
 import com.wallet.code.dto.WalletBalanceDto;
+import com.wallet.code.money.Money;
+import com.wallet.service.Service.AddMoneyStatusService;
+import com.wallet.service.Service.BalanceSnapshotService;
+import com.wallet.service.Service.HotWalletService;
+import com.wallet.service.Service.StatementService;
 import com.wallet.service.Service.WalletService;
 import com.wallet.service.dto.AddMoneyRequest;
 import com.wallet.service.dto.AddMoneyResponse;
+import com.wallet.service.dto.AddMoneyStatusDto;
+import com.wallet.service.dto.BalanceAuditDto;
+import com.wallet.service.dto.ReconRunDto;
+import com.wallet.service.dto.StatementPageDto;
+import com.wallet.service.recon.LedgerReconciler;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.Instant;
 
 
 @RestController
@@ -20,12 +38,88 @@ public class WallerController {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private HotWalletService hotWalletService;
+
+    @Autowired
+    private AddMoneyStatusService addMoneyStatusService;
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private LedgerReconciler ledgerReconciler;
+
     @GetMapping("/balance/{userId}")
     public ResponseEntity<WalletBalanceDto> getWalletBalance(@PathVariable Long userId){
         WalletBalanceDto walletBalanceDto = walletService.walletBalance(userId);
         return ResponseEntity.ok(walletBalanceDto);
     }
 
+    // e.g. /balance/42/as-of?at=2025-01-31T23:59:59Z
+    @GetMapping("/balance/{userId}/as-of")
+    public ResponseEntity<WalletBalanceDto> getWalletBalanceAsOf(@PathVariable Long userId,
+                                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at){
+        WalletBalanceDto walletBalanceDto = new WalletBalanceDto();
+        walletBalanceDto.setUserId(userId);
+        walletBalanceDto.setBalance(Money.toRupees(balanceSnapshotService.balanceAsOf(userId, at)));
+        walletBalanceDto.setStatus("OK");
+        return ResponseEntity.ok(walletBalanceDto);
+    }
+
+    @GetMapping("/audit/{userId}")
+    public ResponseEntity<BalanceAuditDto> auditWallet(@PathVariable Long userId){
+        return ResponseEntity.ok(balanceSnapshotService.audit(userId));
+    }
+
+    // starts a full ledger-vs-balance reconciliation in the background; 409 while one is running
+    @PostMapping("/recon/runs")
+    public ResponseEntity<ReconRunDto> startReconciliation(){
+        return ResponseEntity.accepted().body(ledgerReconciler.start());
+    }
+
+    // progress (rows/s) of the running pass, or the outcome of the last one with up to 'limit' mismatches
+    @GetMapping("/recon/runs/latest")
+    public ResponseEntity<ReconRunDto> latestReconciliation(@RequestParam(defaultValue = "100") int limit){
+        return ResponseEntity.ok(ledgerReconciler.latest(limit));
+    }
+
+    @GetMapping("/recon/runs/{runId}")
+    public ResponseEntity<ReconRunDto> reconciliation(@PathVariable Long runId,
+                                                      @RequestParam(defaultValue = "100") int limit){
+        return ResponseEntity.ok(ledgerReconciler.run(runId, limit));
+    }
+
+    // newest first; pass the returned nextCursor to get the following page
+    @GetMapping("/statement/{userId}")
+    public ResponseEntity<StatementPageDto> getStatement(@PathVariable Long userId,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "50") int limit){
+        return ResponseEntity.ok(statementService.page(userId, cursor, limit));
+    }
+
+    // full history, oldest first, one JSON object per line
+    @GetMapping(value = "/statement/{userId}/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportStatement(@PathVariable Long userId){
+        StreamingResponseBody body = out -> statementService.exportNdjson(userId, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    // stripe credits to a heavily-paid wallet (e.g. the add-money merchant) across several rows
+    @PutMapping("/hot/{userId}")
+    public ResponseEntity<Void> markHot(@PathVariable Long userId, @RequestParam(defaultValue = "8") int slots){
+        hotWalletService.markHot(userId, slots);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/hot/{userId}")
+    public ResponseEntity<Void> markCold(@PathVariable Long userId){
+        hotWalletService.markCold(userId);
+        return ResponseEntity.noContent().build();
+    }
 
     @PostMapping("/add-money")
     public ResponseEntity<AddMoneyResponse> addMoney(@RequestBody AddMoneyRequest addMoneyRequest){
@@ -39,6 +133,29 @@ public class WallerController {
         return ResponseEntity.ok(walletService.processingPGTxn(pgTxnId));
     }
 
+    // long-poll: the request is parked (no thread held) until the payment is terminal or max-wait-ms passes
+    @GetMapping("/add-money-status/{pgTxnId}/wait")
+    public DeferredResult<ResponseEntity<AddMoneyStatusDto>> awaitAddMoneyStatus(@PathVariable String pgTxnId){
+        DeferredResult<ResponseEntity<AddMoneyStatusDto>> result = new DeferredResult<>(
+                addMoneyStatusService.maxWaitMs(), ResponseEntity.ok(AddMoneyStatusDto.pending(pgTxnId)));
+        addMoneyStatusService.awaitTerminal(pgTxnId)
+                .thenAccept(status -> result.setResult(ResponseEntity.ok(status)));
+        return result;
+    }
 
-
+    // SSE: one "status" event with the terminal status, then the stream closes
+    @GetMapping(value = "/add-money-status/{pgTxnId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter addMoneyStatusEvents(@PathVariable String pgTxnId){
+        SseEmitter emitter = new SseEmitter(addMoneyStatusService.maxWaitMs());
+        addMoneyStatusService.awaitTerminal(pgTxnId).thenAccept(status -> {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(status));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // client went away or the emitter already timed out
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
 }
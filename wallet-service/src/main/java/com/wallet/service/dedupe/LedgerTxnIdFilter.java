@@ -0,0 +1,195 @@
+package com.wallet.service.dedupe;
+
+import com.wallet.service.Repository.LedgerRepo;
+import com.wallet.service.archive.LedgerArchive;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers "was this txnId already applied?" without a MySQL round trip for the common "no" case.
+ * Archived ledger rows ({@link LedgerArchive}) count as applied as well.
+ * <ol>
+ *   <li>Recently applied txnIds are held exactly; a hit there is a definite yes.</li>
+ *   <li>A Bloom filter over every txnId in {@code wallet_ledger} (streamed in at startup and fed
+ *       by every ledger write since) turns most remaining lookups into a definite no.</li>
+ *   <li>Only Bloom "maybe" answers, and everything until the startup scan finished, go to
+ *       {@link LedgerRepo#existsByTxnId}.</li>
+ * </ol>
+ * The filter only ever knows this node's writes after startup, so it is a fast path, not the
+ * guard. Every ledger write is a plain INSERT (the engine's write-behind drops legs it finds
+ * already recorded, with their deltas), so {@code uk_ledger_txn} rejects a second leg for any
+ * txnId still in {@code wallet_ledger}. It does not cover archived rows: for those this class's
+ * archive lookup is the only check, and paths that skip it (the non-engine TXN-INIT and add-money
+ * writes) rely on {@code wallet.archive.horizon-days} outlasting every redelivery window.
+ */
+@Component
+public class LedgerTxnIdFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerTxnIdFilter.class);
+
+    @Autowired
+    private LedgerRepo ledgerRepo;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private LedgerArchive ledgerArchive;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wallet.dedupe.expected-txn-ids:10000000}")
+    private long expectedTxnIds;
+
+    @Value("${wallet.dedupe.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${wallet.dedupe.recent-capacity:65536}")
+    private int recentCapacity;
+
+    private BloomFilter bloom;
+    private RecentTxnIds recent;
+    private volatile boolean ready;
+
+    private final LongAdder recentHits = new LongAdder();
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder notReady = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        bloom = new BloomFilter(expectedTxnIds, falsePositiveRate);
+        recent = new RecentTxnIds(recentCapacity);
+        registerMetrics();
+        LOGGER.info("Ledger txnId filter sized for {} ids: {} bits, {} hashes",
+                expectedTxnIds, bloom.bitCount(), bloom.hashCount());
+    }
+
+    /** Streams the ledger's txnIds into the Bloom filter off the startup path. */
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuild() {
+        Thread loader = new Thread(this::loadLedger, "ledger-txnid-filter-rebuild");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void loadLedger() {
+        long started = System.nanoTime();
+        long[] count = {0};
+        try {
+            // Integer.MIN_VALUE makes Connector/J stream rows instead of buffering the whole result
+            JdbcTemplate streaming = new JdbcTemplate(dataSource);
+            streaming.setFetchSize(Integer.MIN_VALUE);
+            streaming.query("SELECT txn_id FROM wallet_ledger", rs -> {
+                bloom.put(rs.getString(1));
+                count[0]++;
+            });
+            ledgerArchive.forEachTxnId(txnId -> {
+                bloom.put(txnId);
+                count[0]++;
+            });
+            ready = true;
+            LOGGER.info("Ledger txnId filter loaded {} ids in {} ms",
+                    count[0], (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            // stay not-ready: every lookup keeps going to the database
+            LOGGER.error("Ledger txnId filter rebuild failed after {} ids; falling back to database lookups",
+                    count[0], e);
+        }
+    }
+
+    /** True if a ledger row with this txnId exists. Only possible hits reach the database. */
+    public boolean alreadyApplied(String txnId) {
+        if (recent.contains(txnId)) {
+            recentHits.increment();
+            return true;
+        }
+        boolean trusted = ready;
+        if (trusted && !bloom.mightContain(txnId)) {
+            bloomNegatives.increment();
+            return false;
+        }
+        // archived rows are gone from MySQL (and from uk_ledger_txn), so the cold tier is checked too
+        boolean exists = ledgerRepo.existsByTxnId(txnId) || ledgerArchive.containsTxnId(txnId);
+        if (exists) {
+            databaseHits.increment();
+            recent.add(txnId);
+        } else if (trusted) {
+            falsePositives.increment();
+        } else {
+            notReady.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * Records txnIds whose ledger rows are being written. Inside a transaction the ids become
+     * visible only after commit, so a rolled-back write never reads as applied.
+     */
+    public void recordAfterCommit(Collection<String> txnIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(txnIds);
+                }
+            });
+        } else {
+            record(txnIds);
+        }
+    }
+
+    public void record(Collection<String> txnIds) {
+        for (String txnId : txnIds) {
+            bloom.put(txnId);
+            recent.add(txnId);
+        }
+    }
+
+    private void registerMetrics() {
+        counter("recent_hit", recentHits);
+        counter("bloom_negative", bloomNegatives);
+        counter("db_hit", databaseHits);
+        counter("false_positive", falsePositives);
+        counter("not_ready", notReady);
+        // share of lookups answered without touching MySQL
+        Gauge.builder("wallet.dedupe.filter.hit.rate", this, f -> ratio(
+                        f.recentHits.sum() + f.bloomNegatives.sum(),
+                        f.recentHits.sum() + f.bloomNegatives.sum() + f.databaseHits.sum()
+                                + f.falsePositives.sum() + f.notReady.sum()))
+                .register(meterRegistry);
+        // share of absent txnIds the Bloom filter failed to rule out
+        Gauge.builder("wallet.dedupe.bloom.false.positive.rate", this, f -> ratio(
+                        f.falsePositives.sum(), f.falsePositives.sum() + f.bloomNegatives.sum()))
+                .register(meterRegistry);
+        Gauge.builder("wallet.dedupe.recent.size", this, f -> f.recent.size()).register(meterRegistry);
+    }
+
+    private void counter(String outcome, LongAdder adder) {
+        FunctionCounter.builder("wallet.dedupe.lookups", adder, LongAdder::sum)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0.0 : (double) numerator / denominator;
+    }
+}
@@ -0,0 +1,41 @@
+package com.wallet.service.dedupe;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded set of the most recently applied txnIds. A ring of slots decides eviction (the oldest
+ * insert is dropped once the ring wraps) and a concurrent set answers membership, so neither
+ * side takes a lock. A txnId is only added once its ledger row committed, so a hit is definitive.
+ */
+final class RecentTxnIds {
+
+    private final Set<String> members = ConcurrentHashMap.newKeySet();
+    private final AtomicReferenceArray<String> ring;
+    private final AtomicLong cursor = new AtomicLong();
+
+    RecentTxnIds(int capacity) {
+        this.ring = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    void add(String txnId) {
+        if (!members.add(txnId)) {
+            return;
+        }
+        int slot = (int) (cursor.getAndIncrement() % ring.length());
+        String evicted = ring.getAndSet(slot, txnId);
+        if (evicted != null && !evicted.equals(txnId)) {
+            members.remove(evicted);
+        }
+    }
+
+    boolean contains(String txnId) {
+        return members.contains(txnId);
+    }
+
+    int size() {
+        return members.size();
+    }
+}
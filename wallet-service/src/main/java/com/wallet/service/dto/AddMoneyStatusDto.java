@@ -0,0 +1,21 @@
+package com.wallet.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddMoneyStatusDto {
+    private String pgTxnId;
+    private String status;      // SUCCESS / FAILED from the gateway, PENDING if not terminal yet
+    private boolean credited;   // true once the wallet holds the money
+    private String message;
+
+    public static AddMoneyStatusDto pending(String pgTxnId) {
+        return new AddMoneyStatusDto(pgTxnId, "PENDING", false, "payment not completed yet");
+    }
+}
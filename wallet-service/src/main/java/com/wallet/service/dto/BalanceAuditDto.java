@@ -0,0 +1,18 @@
+package com.wallet.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceAuditDto {
+    private Long userId;
+    private Double walletBalance;     // rupees, as stored on the wallet row
+    private Double ledgerBalance;     // rupees, latest snapshot + ledger rows after it
+    private Long snapshotLedgerId;    // null when no snapshot covers this wallet yet
+    private boolean consistent;
+}
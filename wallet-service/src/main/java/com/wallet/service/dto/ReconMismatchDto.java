@@ -0,0 +1,17 @@
+package com.wallet.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconMismatchDto {
+    private Long userId;
+    private Double walletBalance;     // rupees, row + hot slots; null when the wallet does not exist
+    private Double ledgerBalance;     // rupees, net of every ledger row (hot + archived)
+    private Double difference;        // walletBalance - ledgerBalance
+}
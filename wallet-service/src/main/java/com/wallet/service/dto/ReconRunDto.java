@@ -0,0 +1,25 @@
+package com.wallet.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconRunDto {
+    private Long runId;
+    private String status;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long walletsScanned;
+    private long ledgerRows;
+    private double rowsPerSecond;
+    private long mismatches;
+    private List<ReconMismatchDto> mismatchDetails;   // first page, ordered by userId
+}
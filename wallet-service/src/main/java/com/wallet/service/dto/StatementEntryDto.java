@@ -0,0 +1,23 @@
+package com.wallet.service.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.wallet.code.money.MoneyJson;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementEntryDto {
+    private Long id;
+    private String txnId;
+    private String direction;     // CREDIT / DEBIT
+    @JsonSerialize(using = MoneyJson.RupeesSerializer.class)
+    private long amount;          // paise, rupees on the wire
+    private Instant createdAt;
+}
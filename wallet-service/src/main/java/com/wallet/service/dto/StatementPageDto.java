@@ -0,0 +1,18 @@
+package com.wallet.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementPageDto {
+    private Long userId;
+    private List<StatementEntryDto> entries;
+    private String nextCursor;    // null on the last page
+}
@@ -0,0 +1,154 @@
+package com.wallet.service.engine;
+
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.dto.WalletUpdatedPayload;
+import com.wallet.service.Repository.LedgerRepo;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Service.HotWalletService;
+import com.wallet.service.dedupe.LedgerTxnIdFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory, single-writer balance engine (enabled with {@code wallet.engine.enabled=true}).
+ * <p>
+ * Wallets are split across {@code wallet.engine.partitions} worker threads. A wallet is routed
+ * with the same murmur2 hash Kafka's default partitioner applies to the TXN-INIT key
+ * (the payer's userId), so with as many engine partitions as TXN-INIT partitions the payer's
+ * debit runs on the partition that mirrors the Kafka partition it arrived on.
+ * <p>
+ * Cached balances are only exact while no other node debits the same wallets, i.e. while this node
+ * keeps the TXN-INIT partitions it had; the listener container calls {@link #evictAll} whenever
+ * partitions are revoked.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.engine.enabled", havingValue = "true")
+public class BalanceEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalanceEngine.class);
+
+    @Autowired
+    private WalletRepo walletRepo;
+
+    @Autowired
+    private LedgerRepo ledgerRepo;
+
+    @Autowired
+    private WalletWriteBehind writeBehind;
+
+    @Autowired
+    private HotWalletService hotWalletService;
+
+    @Autowired
+    private LedgerTxnIdFilter ledgerTxnIdFilter;
+
+    @Value("${wallet.engine.partitions:8}")
+    private int partitionCount;
+
+    @Value("${wallet.engine.queue-capacity:65536}")
+    private int queueCapacity;
+
+    // per partition; past it the cached table is dropped at the next flush and refilled on demand
+    @Value("${wallet.engine.max-cached-wallets:100000}")
+    private int maxCachedWallets;
+
+    @Value("${wallet.engine.flush-batch-size:512}")
+    private int flushBatchSize;
+
+    @Value("${wallet.engine.flush-interval-ms:5}")
+    private long flushIntervalMs;
+
+    private BalancePartition[] partitions;
+    private Thread[] threads;
+
+    @PostConstruct
+    void start() {
+        partitions = new BalancePartition[partitionCount];
+        threads = new Thread[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new BalancePartition(i, this, walletRepo, ledgerRepo, hotWalletService, writeBehind,
+                    ledgerTxnIdFilter, queueCapacity, maxCachedWallets, flushBatchSize, flushIntervalMs);
+            threads[i] = new Thread(partitions[i], "balance-partition-" + i);
+            threads[i].start();
+        }
+        LOGGER.info("Balance engine started with {} partitions", partitionCount);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        for (BalancePartition partition : partitions) {
+            partition.stop();
+        }
+        for (Thread thread : threads) {
+            thread.join(10_000L);
+        }
+    }
+
+    /**
+     * Applies a P2P transfer. The returned future completes once both legs are durable in the
+     * {@code wallet} table (or with a failed outcome if a wallet is missing or underfunded).
+     */
+    public CompletableFuture<TransferOutcome> transfer(TxnInitPayload txn) {
+        CompletableFuture<TransferOutcome> result = new CompletableFuture<>();
+        BalancePartition payer = partitionFor(txn.getFromUserId());
+        payer.submit(() -> guard(result, () -> payer.transfer(txn, result)));
+        return result;
+    }
+
+    /**
+     * Credits a wallet by {@code amount} paise once per {@code txnId}. Completes with the resulting
+     * wallet state once durable, with null if {@code txnId} was already credited, or exceptionally
+     * with a 404 {@code ResponseStatusException} if the wallet does not exist.
+     */
+    public CompletableFuture<WalletUpdatedPayload> credit(Long userId, long amount, String txnId) {
+        CompletableFuture<WalletUpdatedPayload> result = new CompletableFuture<>();
+        BalancePartition partition = partitionFor(userId);
+        partition.submit(() -> guard(result, () -> partition.credit(userId, amount, result, txnId)));
+        return result;
+    }
+
+    /**
+     * Flushes every partition and drops its cached balances; returns once all partitions did.
+     * Called on a rebalance: wallets whose TXN-INIT partition moved may be debited by another node
+     * from now on, and a balance cached here would go stale without noticing.
+     */
+    public void evictAll() {
+        List<CompletableFuture<Void>> evicted = new ArrayList<>(partitions.length);
+        for (BalancePartition partition : partitions) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            partition.handoff(() -> guard(done, () -> {
+                partition.evict();
+                done.complete(null);
+            }));
+            evicted.add(done);
+        }
+        CompletableFuture.allOf(evicted.toArray(new CompletableFuture[0])).join();
+        LOGGER.info("Balance engine dropped its cached wallets after a partition revocation");
+    }
+
+    // a task that throws before completing its future must not leave the caller waiting forever
+    private static void guard(CompletableFuture<?> result, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    BalancePartition partitionFor(Long userId) {
+        byte[] key = userId.toString().getBytes(StandardCharsets.UTF_8);
+        return partitions[Utils.toPositive(Utils.murmur2(key)) % partitions.length];
+    }
+}
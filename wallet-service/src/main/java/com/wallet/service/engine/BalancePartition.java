@@ -0,0 +1,420 @@
+package com.wallet.service.engine;
+
+import com.wallet.code.dto.TxnCompletedPayload;
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.dto.WalletUpdatedPayload;
+import com.wallet.service.Model.LedgerEntry;
+import com.wallet.service.Model.Wallet;
+import com.wallet.service.Repository.LedgerRepo;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Service.HotWalletService;
+import com.wallet.service.dedupe.LedgerTxnIdFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer owner of a slice of the wallets. Every balance read or mutation for a wallet
+ * routed here runs on this partition's thread, so no locks are needed and no update is lost.
+ * Mutations are applied to the in-memory table immediately and written behind to the
+ * {@code wallet} table in batches, together with their ledger rows; callers are only told about a change once its batch committed.
+ * <p>
+ * A transfer's two legs live on different partitions and so commit in different flushes. The
+ * credit leg is only handed to the payee's partition once the payer's flush made the debit
+ * durable, so a crash or a failed flush in between leaves at most a debit without its credit,
+ * never money credited that was not taken.
+ * <p>
+ * Redeliveries are caught here, before any balance moves, per ledger leg (txnId and direction):
+ * against the legs this partition has staged but not flushed yet, then against the
+ * {@link LedgerTxnIdFilter} and, on a hit, the ledger rows themselves. A redelivered transfer whose
+ * debit is durable goes on to the payee's partition and applies the credit leg only if it is
+ * missing, which completes a transfer cut in half by a crash. Every delivery of a txnId is routed to
+ * the same partitions, so the check and the mutation cannot interleave with a second delivery. Only
+ * another node can still get there first (around a rebalance); {@link WalletWriteBehind} then drops
+ * the leg and its delta at flush time and the cached balance is corrected.
+ * <p>
+ * Only the engine debits wallets, but credits also land outside it (add-money and PG captures
+ * outside engine mode, transfers whose payer another node owns), so a cached balance can only be
+ * low: a debit it cannot cover is checked again against the database before it is refused.
+ * <p>
+ * The cached balances are only trusted while this node owns the wallets' TXN-INIT partitions;
+ * {@link #evict} drops them after a rebalance, and the table is also dropped once it outgrows
+ * {@code maxCachedWallets} (at a point where every delta is durable, so reloads are exact).
+ */
+final class BalancePartition implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalancePartition.class);
+
+    private final int index;
+    private final BalanceEngine engine;
+    private final WalletRepo walletRepo;
+    private final LedgerRepo ledgerRepo;
+    private final HotWalletService hotWalletService;
+    private final WalletWriteBehind writeBehind;
+    private final LedgerTxnIdFilter ledgerTxnIdFilter;
+    private final int queueCapacity;
+    private final int maxCachedWallets;
+    private final int flushBatchSize;
+    private final long flushIntervalNanos;
+
+    // unbounded so partition-to-partition handoffs never block; callers are throttled in submit()
+    private final BlockingQueue<Runnable> inbox = new LinkedBlockingQueue<>();
+
+    // partition-thread confined state
+    private final LongLongMap balances = new LongLongMap(1 << 14);
+    private final Map<Long, String> emails = new HashMap<>();
+    private final LongLongMap pendingDeltas = new LongLongMap(1 << 10);
+    private final List<LedgerEntry> pendingLedger = new ArrayList<>();
+    // staged legs, as legKey(txnId, direction)
+    private final Set<String> unflushedLegs = new HashSet<>();
+    // legs of the flush whose callbacks are running that turned out to be recorded already
+    private final Set<String> droppedLegs = new HashSet<>();
+    private final List<Runnable> afterFlush = new ArrayList<>();
+    private long[] flushIds = new long[64];
+    private long[] flushDeltas = new long[64];
+    private long lastFlush = System.nanoTime();
+
+    private volatile boolean running = true;
+
+    BalancePartition(int index, BalanceEngine engine, WalletRepo walletRepo, LedgerRepo ledgerRepo,
+                     HotWalletService hotWalletService, WalletWriteBehind writeBehind, LedgerTxnIdFilter ledgerTxnIdFilter, int queueCapacity,
+                     int maxCachedWallets, int flushBatchSize, long flushIntervalMs) {
+        this.index = index;
+        this.engine = engine;
+        this.walletRepo = walletRepo;
+        this.ledgerRepo = ledgerRepo;
+        this.hotWalletService = hotWalletService;
+        this.writeBehind = writeBehind;
+        this.ledgerTxnIdFilter = ledgerTxnIdFilter;
+        this.queueCapacity = queueCapacity;
+        this.maxCachedWallets = maxCachedWallets;
+        this.flushBatchSize = flushBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    }
+
+    /** Enqueues a task from outside the engine, waiting while the inbox is over capacity. */
+    void submit(Runnable task) {
+        while (inbox.size() >= queueCapacity) {
+            if (!running || Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Balance partition " + index + " is not accepting work");
+            }
+            LockSupport.parkNanos(50_000L);
+        }
+        inbox.add(task);
+    }
+
+    /** Enqueues a task from another partition thread; never blocks, so partitions cannot deadlock. */
+    void handoff(Runnable task) {
+        inbox.add(task);
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        List<Runnable> drained = new ArrayList<>(flushBatchSize);
+        while (running || !inbox.isEmpty()) {
+            try {
+                Runnable first = inbox.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    execute(first);
+                    inbox.drainTo(drained, flushBatchSize);
+                    for (Runnable task : drained) {
+                        execute(task);
+                    }
+                    drained.clear();
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (pendingDeltas.size() >= flushBatchSize
+                    || ((!pendingDeltas.isEmpty() || !pendingLedger.isEmpty() || !afterFlush.isEmpty())
+                        && System.nanoTime() - lastFlush >= flushIntervalNanos)) {
+                flush();
+            }
+        }
+        flush();
+        LOGGER.info("Balance partition {} stopped", index);
+    }
+
+    // ---- tasks (partition thread only) ----
+
+    /**
+     * Debit leg: runs on the payer's partition and, once the debit is durable, hands the credit leg
+     * to the payee's partition.
+     */
+    void transfer(TxnInitPayload txn, CompletableFuture<TransferOutcome> result) {
+        TxnCompletedPayload completed = new TxnCompletedPayload();
+        completed.setId(txn.getId());
+        completed.setRequestId(txn.getRequestId());
+
+        long from = txn.getFromUserId();
+        long amount = txn.getAmount();
+        String txnId = LedgerEntry.txnIdOf(txn);
+        String refundTxnId = LedgerEntry.refundTxnIdOf(txnId);
+        if (isStaged(txnId, LedgerEntry.DEBIT) || isStaged(refundTxnId, LedgerEntry.CREDIT)) {
+            // an earlier delivery is still in flight here; decide once its legs are durable
+            afterFlush.add(() -> transfer(txn, result));
+            return;
+        }
+        if (isRecorded(refundTxnId, LedgerEntry.CREDIT)) {
+            // redelivery of a refunded transfer: report the original result again, move nothing
+            result.complete(TransferOutcome.alreadyApplied(completed, true));
+            return;
+        }
+        if (isRecorded(txnId, LedgerEntry.DEBIT)) {
+            // redelivery: the debit is durable, the payee's partition applies the credit if it is missing
+            handOffCredit(txn, completed, null, result);
+            return;
+        }
+        if (txn.expiredAt(System.currentTimeMillis())) {
+            // Transaction-service may already have timed it out, so it must not move money now
+            result.complete(TransferOutcome.failed(completed, TransferOutcome.EXPIRED));
+            return;
+        }
+        if (!ensureLoaded(from)) {
+            result.complete(TransferOutcome.failed(completed, "Wallet not found"));
+            return;
+        }
+        long balance = balances.get(from, 0L);
+        if (balance < amount) {
+            balance = reload(from);
+        }
+        if (balance < amount) {
+            result.complete(TransferOutcome.failed(completed, "Insufficient balance"));
+            return;
+        }
+        long fromBalance = stage(LedgerEntry.debit(txnId, from, amount));
+        WalletUpdatedPayload fromWallet = new WalletUpdatedPayload(emails.get(from), fromBalance, txn.getRequestId());
+
+        afterFlush.add(() -> {
+            // a debit another node recorded first still needs its credit checked on the payee's partition
+            boolean dropped = droppedLegs.contains(legKey(txnId, LedgerEntry.DEBIT));
+            handOffCredit(txn, completed, dropped ? null : fromWallet, result);
+        });
+    }
+
+    private void handOffCredit(TxnInitPayload txn, TxnCompletedPayload completed, WalletUpdatedPayload fromWallet,
+                               CompletableFuture<TransferOutcome> result) {
+        BalancePartition payee = engine.partitionFor(txn.getToUserId());
+        payee.handoff(() -> payee.creditLeg(txn, completed, fromWallet, this, result));
+    }
+
+    /** Credit leg, on the payee's partition; the payer's debit is already durable. */
+    private void creditLeg(TxnInitPayload txn, TxnCompletedPayload completed, WalletUpdatedPayload fromWallet,
+                           BalancePartition payer, CompletableFuture<TransferOutcome> result) {
+        long to = txn.getToUserId();
+        long amount = txn.getAmount();
+        String txnId = LedgerEntry.txnIdOf(txn);
+        if (isStaged(txnId, LedgerEntry.CREDIT)) {
+            // the credit of an earlier delivery, not flushed yet
+            afterFlush.add(() -> result.complete(TransferOutcome.alreadyApplied(completed, false)));
+            return;
+        }
+        boolean recorded;
+        try {
+            recorded = isRecorded(txnId, LedgerEntry.CREDIT);
+        } catch (RuntimeException e) {
+            // unknown whether the credit exists, so neither credit nor refund; the batch is redelivered
+            result.completeExceptionally(e);
+            return;
+        }
+        if (recorded) {
+            result.complete(TransferOutcome.alreadyApplied(completed, false));
+            return;
+        }
+        String missing;
+        try {
+            missing = ensureLoaded(to) ? null : "Wallet not found";
+        } catch (RuntimeException e) {
+            LOGGER.error("Loading payee wallet {} failed on partition {}", to, index, e);
+            missing = "Wallet lookup failed";
+        }
+        if (missing != null) {
+            String reason = missing;
+            payer.handoff(() -> payer.refund(txn, completed, reason, result));
+            return;
+        }
+        long toBalance = stage(LedgerEntry.credit(txnId, to, amount));
+        WalletUpdatedPayload toWallet = new WalletUpdatedPayload(emails.get(to), toBalance, txn.getRequestId());
+
+        afterFlush.add(() -> {
+            if (droppedLegs.contains(legKey(txnId, LedgerEntry.CREDIT))) {
+                // applied elsewhere
+                result.complete(TransferOutcome.alreadyApplied(completed, false));
+            } else {
+                completed.setSuccess(true);
+                result.complete(new TransferOutcome(completed, fromWallet, toWallet));
+            }
+        });
+    }
+
+    private void refund(TxnInitPayload txn, TxnCompletedPayload completed, String reason,
+                        CompletableFuture<TransferOutcome> result) {
+        stage(LedgerEntry.refund(LedgerEntry.txnIdOf(txn), txn.getFromUserId(), txn.getAmount()));
+        afterFlush.add(() -> result.complete(TransferOutcome.failed(completed, reason)));
+    }
+
+    /**
+     * Unconditional credit (PG captures, add-money) keyed by {@code txnId}; completes with the new
+     * balance once durable, or with null if that txnId was already credited.
+     */
+    void credit(long userId, long amount, CompletableFuture<WalletUpdatedPayload> result, String txnId) {
+        if (isStaged(txnId, LedgerEntry.CREDIT) || isRecorded(txnId, LedgerEntry.CREDIT)) {
+            result.complete(null);
+            return;
+        }
+        if (!ensureLoaded(userId)) {
+            result.completeExceptionally(
+                    new ResponseStatusException(HttpStatus.NOT_FOUND, "Wallet not found for userId=" + userId));
+            return;
+        }
+        long balance = stage(LedgerEntry.credit(txnId, userId, amount));
+        WalletUpdatedPayload updated = new WalletUpdatedPayload(emails.get(userId), balance, txnId);
+        afterFlush.add(() -> result.complete(droppedLegs.contains(legKey(txnId, LedgerEntry.CREDIT)) ? null : updated));
+    }
+
+    /** Drops the cached wallets once their deltas are durable, so they are re-read from the database on next use. */
+    void evict() {
+        flush();
+        dropCache();
+    }
+
+    // ---- internals ----
+
+    /** Applies a ledger leg to the in-memory balance and queues it for the next flush; returns the new balance. */
+    private long stage(LedgerEntry leg) {
+        long balance = balances.addTo(leg.getUserId(), leg.signedAmount());
+        pendingDeltas.addTo(leg.getUserId(), leg.signedAmount());
+        pendingLedger.add(leg);
+        unflushedLegs.add(legKey(leg.getTxnId(), leg.getDirection()));
+        return balance;
+    }
+
+    private static String legKey(String txnId, String direction) {
+        return txnId + ':' + direction;
+    }
+
+    private boolean isStaged(String txnId, String direction) {
+        return unflushedLegs.contains(legKey(txnId, direction));
+    }
+
+    /** Whether the leg is durable; the filter answers most "no"s, its hits are looked up per direction. */
+    private boolean isRecorded(String txnId, String direction) {
+        if (!ledgerTxnIdFilter.alreadyApplied(txnId)) {
+            return false;
+        }
+        List<String> directions = ledgerRepo.findDirectionsByTxnId(txnId);
+        // no hot rows left: archived, long after any redelivery that could find a leg missing
+        return directions.isEmpty() || directions.contains(direction);
+    }
+
+    private void dropCache() {
+        if (!pendingDeltas.isEmpty()) {
+            // the last flush failed; these balances include deltas the database does not have yet
+            LOGGER.warn("Balance partition {} keeps {} cached wallets: {} deltas are not flushed",
+                    index, balances.size(), pendingDeltas.size());
+            return;
+        }
+        balances.clear();
+        emails.clear();
+    }
+
+    private boolean ensureLoaded(long userId) {
+        if (balances.containsKey(userId)) {
+            return true;
+        }
+        Wallet wallet = walletRepo.findByUserId(userId);
+        if (wallet == null) {
+            return false;
+        }
+        // deltas are written to the wallet row, so slots left over from non-engine mode stay counted
+        balances.put(userId, hotWalletService.totalBalance(wallet));
+        emails.put(userId, wallet.getUserEmail());
+        return true;
+    }
+
+    /** Re-reads a cached wallet, keeping the deltas not flushed yet; returns the refreshed balance. */
+    private long reload(long userId) {
+        Wallet wallet = walletRepo.findByUserId(userId);
+        if (wallet == null) {
+            return balances.get(userId, 0L);
+        }
+        long balance = hotWalletService.totalBalance(wallet) + pendingDeltas.get(userId, 0L);
+        balances.put(userId, balance);
+        return balance;
+    }
+
+    private void flush() {
+        lastFlush = System.nanoTime();
+        if (!pendingDeltas.isEmpty() || !pendingLedger.isEmpty()) {
+            int count = pendingDeltas.size();
+            if (flushIds.length < count) {
+                flushIds = new long[Integer.highestOneBit(count) << 1];
+                flushDeltas = new long[flushIds.length];
+            }
+            int[] n = {0};
+            pendingDeltas.forEach((userId, delta) -> {
+                flushIds[n[0]] = userId;
+                flushDeltas[n[0]++] = delta;
+            });
+            List<LedgerEntry> dropped;
+            try {
+                dropped = writeBehind.flush(flushIds, flushDeltas, count, pendingLedger);
+            } catch (RuntimeException e) {
+                // keep the deltas and callbacks; the next interval retries the whole batch
+                LOGGER.error("Write-behind flush of {} wallets failed on partition {}; will retry", count, index, e);
+                LockSupport.parkNanos(flushIntervalNanos);
+                return;
+            }
+            pendingDeltas.clear();
+            for (LedgerEntry leg : pendingLedger) {
+                unflushedLegs.remove(legKey(leg.getTxnId(), leg.getDirection()));   // the filter has them now
+            }
+            pendingLedger.clear();
+            for (LedgerEntry leg : dropped) {
+                // another node recorded this leg first: the cached balance must not count it twice
+                LOGGER.warn("Ledger leg {} {} was already recorded; dropped from partition {}",
+                        leg.getTxnId(), leg.getDirection(), index);
+                if (balances.containsKey(leg.getUserId())) {
+                    balances.addTo(leg.getUserId(), -leg.signedAmount());
+                }
+                droppedLegs.add(legKey(leg.getTxnId(), leg.getDirection()));
+            }
+            if (balances.size() > maxCachedWallets) {
+                dropCache();
+            }
+        }
+        if (!afterFlush.isEmpty()) {
+            List<Runnable> callbacks = new ArrayList<>(afterFlush);
+            afterFlush.clear();
+            for (Runnable callback : callbacks) {
+                execute(callback);
+            }
+        }
+        droppedLegs.clear();
+    }
+
+    private void execute(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Balance partition {} task failed", index, e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.wallet.service.engine;
+
+/**
+ * Open-addressing long -> long map so the partition balance tables hold no boxed
+ * keys or values. Not thread-safe: every instance is owned by one partition thread.
+ * Key 0 is reserved as the empty-slot marker (wallet userIds come from an IDENTITY
+ * column and start at 1).
+ */
+final class LongLongMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    interface Visitor {
+        void accept(long key, long value);
+    }
+
+    LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    boolean containsKey(long key) {
+        return keys[slot(key)] == key;
+    }
+
+    long get(long key, long missing) {
+        int i = slot(key);
+        return keys[i] == key ? values[i] : missing;
+    }
+
+    void put(long key, long value) {
+        checkKey(key);
+        int i = slot(key);
+        if (keys[i] != key) {
+            keys[i] = key;
+            if (++size > resizeAt) {
+                values[i] = value;
+                rehash();
+                return;
+            }
+        }
+        values[i] = value;
+    }
+
+    /** Adds {@code delta} to the value for {@code key} (0 if absent) and returns the new value. */
+    long addTo(long key, long delta) {
+        checkKey(key);
+        int i = slot(key);
+        if (keys[i] != key) {
+            keys[i] = key;
+            values[i] = delta;
+            if (++size > resizeAt) {
+                rehash();
+            }
+            return delta;
+        }
+        return values[i] = Math.addExact(values[i], delta);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        java.util.Arrays.fill(keys, 0L);
+        size = 0;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0L) {
+                visitor.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        int i = mix(key) & mask;
+        while (keys[i] != 0L && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void checkKey(long key) {
+        if (key == 0L) {
+            throw new IllegalArgumentException("key 0 is reserved");
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0L) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.wallet.service.engine;
+
+import com.wallet.code.dto.TxnCompletedPayload;
+import com.wallet.code.dto.WalletUpdatedPayload;
+
+/**
+ * Result of a transfer applied by the {@link BalanceEngine}. The wallet-updated payloads are
+ * null when the transfer failed, or when it is a redelivery whose balances already moved.
+ */
+public record TransferOutcome(TxnCompletedPayload completed,
+                              WalletUpdatedPayload fromWallet,
+                              WalletUpdatedPayload toWallet) {
+
+    /** Reason for a transfer refused because its TXN-INIT arrived after {@code expiresAt}. */
+    public static final String EXPIRED = "Transfer expired";
+
+    public static TransferOutcome failed(TxnCompletedPayload completed, String reason) {
+        completed.setSuccess(false);
+        completed.setReason(reason);
+        return new TransferOutcome(completed, null, null);
+    }
+
+    /**
+     * Outcome re-reported for a transfer whose ledger legs already exist: the original completion
+     * (a transfer is only refunded when the payee wallet was missing), without wallet updates.
+     */
+    public static TransferOutcome alreadyApplied(TxnCompletedPayload completed, boolean refunded) {
+        if (refunded) {
+            return failed(completed, "Wallet not found");
+        }
+        completed.setSuccess(true);
+        return new TransferOutcome(completed, null, null);
+    }
+}
@@ -0,0 +1,126 @@
+package com.wallet.service.engine;
+
+import com.wallet.service.Model.LedgerEntry;
+import com.wallet.service.Repository.LedgerBatchWriter;
+import com.wallet.service.Service.WalletBalanceCache;
+import com.wallet.service.dedupe.LedgerTxnIdFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persists the balance deltas accumulated by a {@link BalancePartition} in one JDBC batch.
+ * Deltas are paise and the column holds DECIMAL rupees, hence the {@code / 100} in SQL.
+ * Deltas (not absolute balances) are written so a row is never overwritten with a stale value,
+ * even if another node or code path touched the same wallet in the meantime. The ledger rows
+ * for the same mutations commit in the same transaction, so balance and ledger never diverge:
+ * a leg that is already in {@code wallet_ledger} (another node applied the same txnId around a
+ * rebalance) is dropped together with its share of the delta, and a leg inserted concurrently
+ * fails the plain INSERT on {@code uk_ledger_txn} and rolls the whole batch back.
+ */
+@Component
+public class WalletWriteBehind {
+
+    private static final String APPLY_DELTA =
+            "UPDATE wallet SET balance = balance + ? / 100, last_updated = CURRENT_TIMESTAMP(6) WHERE user_id = ?";
+
+    private static final int LOOKUP_CHUNK = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LedgerBatchWriter ledgerBatchWriter;
+
+    @Autowired
+    private LedgerTxnIdFilter ledgerTxnIdFilter;
+
+    @Autowired
+    private WalletBalanceCache walletBalanceCache;
+
+    /**
+     * Writes all deltas and ledger rows atomically; throws if the batch could not be committed.
+     * Returns the legs that were already recorded and so were not applied; their amounts are taken
+     * out of {@code deltas} (scratch space owned by the caller) before the update.
+     */
+    List<LedgerEntry> flush(long[] userIds, long[] deltas, int count, List<LedgerEntry> ledger) {
+        List<LedgerEntry> dropped = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            dropped.clear();
+            List<LedgerEntry> fresh = withoutRecorded(ledger, dropped);
+            for (LedgerEntry leg : dropped) {
+                for (int i = 0; i < count; i++) {
+                    if (userIds[i] == leg.getUserId()) {
+                        deltas[i] -= leg.signedAmount();
+                        break;
+                    }
+                }
+            }
+            if (count > 0) {
+                jdbcTemplate.batchUpdate(APPLY_DELTA, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, deltas[i]);
+                        ps.setLong(2, userIds[i]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return count;
+                    }
+                });
+            }
+            ledgerBatchWriter.append(fresh);
+        });
+        List<String> txnIds = new ArrayList<>(ledger.size());
+        for (LedgerEntry entry : ledger) {
+            txnIds.add(entry.getTxnId());
+        }
+        ledgerTxnIdFilter.record(txnIds);
+        List<Long> flushed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            flushed.add(userIds[i]);
+        }
+        walletBalanceCache.invalidate(flushed);
+        return dropped;
+    }
+
+    // legs are looked up by txnId (the leading column of uk_ledger_txn), a chunk at a time
+    private List<LedgerEntry> withoutRecorded(List<LedgerEntry> ledger, List<LedgerEntry> dropped) {
+        Set<String> recorded = new HashSet<>();
+        for (int from = 0; from < ledger.size(); from += LOOKUP_CHUNK) {
+            List<LedgerEntry> chunk = ledger.subList(from, Math.min(ledger.size(), from + LOOKUP_CHUNK));
+            String marks = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            Object[] txnIds = chunk.stream().map(LedgerEntry::getTxnId).toArray();
+            jdbcTemplate.query("SELECT txn_id, direction FROM wallet_ledger WHERE txn_id IN (" + marks + ")",
+                    rs -> {
+                        recorded.add(rs.getString(1) + ':' + rs.getString(2));
+                    }, txnIds);
+        }
+        if (recorded.isEmpty()) {
+            return ledger;
+        }
+        List<LedgerEntry> fresh = new ArrayList<>(ledger.size());
+        for (LedgerEntry leg : ledger) {
+            if (recorded.contains(leg.getTxnId() + ':' + leg.getDirection())) {
+                dropped.add(leg);
+            } else {
+                fresh.add(leg);
+            }
+        }
+        return fresh;
+    }
+}
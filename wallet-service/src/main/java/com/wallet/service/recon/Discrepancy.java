@@ -0,0 +1,5 @@
+package com.wallet.service.recon;
+
+/** A wallet whose balance disagrees with its ledger; {@code walletBalance} is null for orphan ledger rows. */
+record Discrepancy(long userId, Long walletBalance, long ledgerBalance) {
+}
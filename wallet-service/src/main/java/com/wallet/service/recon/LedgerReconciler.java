@@ -0,0 +1,356 @@
+package com.wallet.service.recon;
+
+import com.wallet.code.money.Money;
+import com.wallet.service.Model.ReconMismatch;
+import com.wallet.service.Model.ReconRun;
+import com.wallet.service.Repository.ReconMismatchRepo;
+import com.wallet.service.Repository.ReconRunRepo;
+import com.wallet.service.archive.LedgerArchive;
+import com.wallet.service.dto.ReconMismatchDto;
+import com.wallet.service.dto.ReconRunDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Verifies that every wallet's stored balance (row + hot slots) equals the net of its ledger rows,
+ * hot and archived. The run walks the {@code wallet} table in userId order, {@code chunk-size}
+ * wallets at a time; each chunk reads its wallets, slots and ledger rows in one read-only
+ * REPEATABLE READ transaction, so they come from the same InnoDB snapshot and concurrent transfers
+ * cannot show up as false mismatches. The comparison runs on a fork/join pool while the next chunk
+ * is read, and reads are paced to {@code max-rows-per-second} so the job can share the database
+ * with live traffic.
+ * <p>
+ * Archived rows of a chunk's userId range are read in one pass over the segment blocks that cover
+ * it and count against the same budget. The archive bound is taken after the chunk's snapshot was
+ * opened: a row purged later is still in the snapshot, one purged earlier is already in a segment.
+ * <p>
+ * With the balance engine's write-behind the wallet row can briefly trail the ledger, so each
+ * mismatch is re-checked after {@code recheck-delay-ms} before it is recorded.
+ * <p>
+ * A run belongs to the node that started it and heartbeats on every chunk. At startup a node only
+ * aborts its own leftover runs, and runs of any node whose heartbeat is older than
+ * {@code stale-after-ms}; a live run on another node is left alone.
+ */
+@Service
+public class LedgerReconciler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerReconciler.class);
+
+    private static final String WALLET_CHUNK =
+            "SELECT user_id, balance, hot_slots FROM wallet WHERE user_id > ? ORDER BY user_id LIMIT ?";
+
+    private static final String SLOT_SUMS =
+            "SELECT user_id, SUM(balance) FROM wallet_balance_slot WHERE user_id > ? AND user_id <= ? GROUP BY user_id";
+
+    // served by idx_ledger_user_id (user_id, id): an index range scan in user order, no sort;
+    // ids up to the archive's archivedThroughId are read from the segments instead
+    private static final String LEDGER_RANGE = "SELECT user_id, amount, direction FROM wallet_ledger "
+            + "WHERE user_id > ? AND user_id <= ? AND id > ? ORDER BY user_id";
+
+    private static final String WALLET_BALANCE =
+            "SELECT w.balance + COALESCE((SELECT SUM(s.balance) FROM wallet_balance_slot s WHERE s.user_id = w.user_id), 0)"
+                    + " FROM wallet w WHERE w.user_id = ?";
+
+    private static final String LEDGER_NET =
+            "SELECT COALESCE(SUM(CASE WHEN direction = 'DEBIT' THEN -amount ELSE amount END), 0)"
+                    + " FROM wallet_ledger WHERE user_id = ? AND id > ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LedgerArchive ledgerArchive;
+
+    @Autowired
+    private ReconRunRepo reconRunRepo;
+
+    @Autowired
+    private ReconMismatchRepo reconMismatchRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${wallet.recon.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${wallet.recon.max-rows-per-second:20000}")
+    private long maxRowsPerSecond;
+
+    @Value("${wallet.recon.parallelism:0}")
+    private int parallelism;
+
+    @Value("${wallet.recon.recheck-delay-ms:2000}")
+    private long recheckDelayMs;
+
+    @Value("${wallet.recon.max-recorded-mismatches:10000}")
+    private int maxRecordedMismatches;
+
+    @Value("${wallet.recon.stale-after-ms:600000}")
+    private long staleAfterMs;
+
+    private final String node = hostName();
+
+    private ForkJoinPool pool;
+    private TransactionTemplate snapshotRead;
+
+    private final AtomicReference<ReconRun> current = new AtomicReference<>();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private volatile double lastRowsPerSecond;
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        snapshotRead = new TransactionTemplate(transactionManager);
+        snapshotRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotRead.setReadOnly(true);
+        Instant now = Instant.now();
+        int aborted = reconRunRepo.abortRunning(node, now.minusMillis(staleAfterMs), now);
+        if (aborted > 0) {
+            LOGGER.warn("Marked {} interrupted reconciliation run(s) of {} or stale nodes as ABORTED", aborted, node);
+        }
+        FunctionCounter.builder("wallet.recon.rows", rowsRead, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("wallet.recon.rows.per.second", this, r -> r.lastRowsPerSecond).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // disabled unless wallet.recon.cron is set, e.g. "0 0 3 * * *"
+    @Scheduled(cron = "${wallet.recon.cron:-}")
+    public void scheduledRun() {
+        try {
+            start();
+        } catch (ResponseStatusException e) {
+            LOGGER.info("Skipping scheduled reconciliation: a run is already in progress");
+        }
+    }
+
+    /** Starts a run on a background thread; 409 if one is already in progress on this node. */
+    public ReconRunDto start() {
+        Instant now = Instant.now();
+        ReconRun run = ReconRun.builder().status(ReconRun.RUNNING).node(node).startedAt(now).heartbeatAt(now).build();
+        if (!current.compareAndSet(null, run)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A reconciliation run is already in progress");
+        }
+        try {
+            reconRunRepo.save(run);
+        } catch (RuntimeException e) {
+            current.set(null);
+            throw e;
+        }
+        Thread worker = new Thread(() -> execute(run), "ledger-recon-" + run.getId());
+        worker.setDaemon(true);
+        worker.start();
+        return toDto(run, List.of());
+    }
+
+    public ReconRunDto latest(int limit) {
+        ReconRun run = current.get();
+        if (run == null) {
+            run = reconRunRepo.findFirstByOrderByIdDesc();
+        }
+        if (run == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No reconciliation run yet");
+        }
+        return report(run, limit);
+    }
+
+    public ReconRunDto run(Long runId, int limit) {
+        ReconRun live = current.get();
+        ReconRun run = live != null && runId.equals(live.getId())
+                ? live
+                : reconRunRepo.findById(runId).orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Reconciliation run not found: " + runId));
+        return report(run, limit);
+    }
+
+    private ReconRunDto report(ReconRun run, int limit) {
+        List<ReconMismatchDto> details = new ArrayList<>();
+        if (!ReconRun.RUNNING.equals(run.getStatus()) && limit > 0) {
+            for (ReconMismatch m : reconMismatchRepo.findByRunIdOrderByUserId(run.getId(), PageRequest.of(0, Math.min(limit, 1000)))) {
+                details.add(toDto(m.getUserId(), m.getWalletBalance(), m.getLedgerBalance()));
+            }
+        }
+        return toDto(run, details);
+    }
+
+    private void execute(ReconRun run) {
+        ReadRateBudget budget = new ReadRateBudget(maxRowsPerSecond);
+        List<Discrepancy> suspects = new ArrayList<>();
+        try {
+            long after = 0L;
+            ForkJoinTask<List<Discrepancy>> inFlight = null;
+            while (true) {
+                ReconChunk chunk = readChunk(after);
+                long read = chunk.wallets() + chunk.ledgerRows() + chunk.archivedRows;
+                budget.consume(read);
+                rowsRead.addAndGet(read);
+                // the previous chunk was compared while this one was being read
+                if (inFlight != null) {
+                    suspects.addAll(inFlight.join());
+                }
+                inFlight = pool.submit(chunk.compare());
+                suspects.addAll(chunk.archivedOnlyOrphans());
+                run.setWalletsScanned(run.getWalletsScanned() + chunk.wallets());
+                run.setLedgerRows(run.getLedgerRows() + chunk.ledgerRows() + chunk.archivedRows);
+                run.setRowsPerSecond(budget.rowsPerSecond());
+                lastRowsPerSecond = run.getRowsPerSecond();
+                run.setHeartbeatAt(Instant.now());
+                reconRunRepo.heartbeat(run.getId(), run.getHeartbeatAt());
+                if (chunk.upperInclusive == Long.MAX_VALUE) {
+                    break;
+                }
+                after = chunk.upperInclusive;
+            }
+            suspects.addAll(inFlight.join());
+
+            List<ReconMismatch> confirmed = recheck(run, suspects, budget);
+            run.setMismatches(confirmed.size());
+            reconMismatchRepo.saveAll(confirmed.subList(0, Math.min(confirmed.size(), maxRecordedMismatches)));
+            run.setStatus(ReconRun.COMPLETED);
+            LOGGER.info("Reconciliation run {} checked {} wallets / {} ledger rows at {} rows/s: {} mismatch(es)",
+                    run.getId(), run.getWalletsScanned(), run.getLedgerRows(),
+                    Math.round(run.getRowsPerSecond()), run.getMismatches());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.setStatus(ReconRun.ABORTED);
+        } catch (RuntimeException e) {
+            LOGGER.error("Reconciliation run {} failed after {} wallets", run.getId(), run.getWalletsScanned(), e);
+            run.setStatus(ReconRun.FAILED);
+        } finally {
+            run.setFinishedAt(Instant.now());
+            try {
+                reconRunRepo.save(run);
+            } finally {
+                current.set(null);
+            }
+        }
+    }
+
+    /**
+     * Reads the next {@code chunk-size} wallets after {@code after} and every ledger row in the same
+     * userId range, from one snapshot, then the range's archived rows. The last chunk extends to
+     * Long.MAX_VALUE so ledger rows of users past the last wallet are still seen (and reported as
+     * orphans).
+     */
+    private ReconChunk readChunk(long after) {
+        return snapshotRead.execute(status -> {
+            List<long[]> wallets = new ArrayList<>(chunkSize);
+            boolean[] anyHot = {false};
+            jdbcTemplate.query(WALLET_CHUNK, rs -> {
+                wallets.add(new long[]{rs.getLong(1), Money.ofDecimal(rs.getBigDecimal(2))});
+                anyHot[0] |= rs.getInt(3) > 0;
+            }, after, chunkSize);
+
+            long upper = wallets.size() < chunkSize ? Long.MAX_VALUE : wallets.get(wallets.size() - 1)[0];
+            ReconChunk chunk = new ReconChunk(after, upper);
+            for (long[] wallet : wallets) {
+                chunk.addWallet(wallet[0], wallet[1]);
+            }
+            if (anyHot[0]) {
+                jdbcTemplate.query(SLOT_SUMS, rs -> {
+                    chunk.addSlotBalance(rs.getLong(1), Money.ofDecimal(rs.getBigDecimal(2)));
+                }, after, upper);
+            }
+            // the snapshot is open (the wallet read started it), so rows archived from here on are still visible
+            long archivedThrough = ledgerArchive.archivedThroughId();
+            jdbcTemplate.query(LEDGER_RANGE, rs -> {
+                long amount = Money.ofDecimal(rs.getBigDecimal(2));
+                chunk.addLedgerRow(rs.getLong(1), "DEBIT".equals(rs.getString(3)) ? -amount : amount);
+            }, after, upper, archivedThrough);
+            if (archivedThrough > 0) {
+                chunk.archivedRows = ledgerArchive.forEachInUserRange(after, upper, archivedThrough,
+                        row -> chunk.addArchivedRow(row.userId(), row.signedAmount()));
+            }
+            return chunk;
+        });
+    }
+
+    /** Drops suspects that agree once in-flight write-behind and hot-slot sweeps have settled. */
+    private List<ReconMismatch> recheck(ReconRun run, List<Discrepancy> suspects, ReadRateBudget budget) throws InterruptedException {
+        List<ReconMismatch> confirmed = new ArrayList<>();
+        if (suspects.isEmpty()) {
+            return confirmed;
+        }
+        Thread.sleep(recheckDelayMs);
+        Instant now = Instant.now();
+        for (Discrepancy suspect : suspects) {
+            budget.consume(2);
+            Discrepancy again = snapshotRead.execute(status -> {
+                List<BigDecimal> wallet =
+                        jdbcTemplate.queryForList(WALLET_BALANCE, BigDecimal.class, suspect.userId());
+                Long walletBalance = wallet.isEmpty() ? null : Money.ofDecimal(wallet.get(0));
+                long archivedThrough = ledgerArchive.archivedThroughId();
+                long ledger = Money.ofDecimal(jdbcTemplate.queryForObject(
+                        LEDGER_NET, BigDecimal.class, suspect.userId(), archivedThrough));
+                if (archivedThrough > 0) {
+                    ledger = Money.add(ledger, ledgerArchive.sumForUser(suspect.userId(), 0L, archivedThrough, Long.MAX_VALUE));
+                }
+                return walletBalance != null && walletBalance == ledger ? null
+                        : new Discrepancy(suspect.userId(), walletBalance, ledger);
+            });
+            if (again != null) {
+                confirmed.add(ReconMismatch.builder()
+                        .runId(run.getId())
+                        .userId(again.userId())
+                        .walletBalance(again.walletBalance())
+                        .ledgerBalance(again.ledgerBalance())
+                        .detectedAt(now)
+                        .build());
+            }
+        }
+        return confirmed;
+    }
+
+    private static String hostName() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > 64 ? host.substring(0, 64) : host;
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+
+    private static ReconRunDto toDto(ReconRun run, List<ReconMismatchDto> details) {
+        return new ReconRunDto(run.getId(), run.getStatus(), run.getStartedAt(), run.getFinishedAt(),
+                run.getWalletsScanned(), run.getLedgerRows(), run.getRowsPerSecond(), run.getMismatches(), details);
+    }
+
+    private static ReconMismatchDto toDto(Long userId, Long walletBalance, long ledgerBalance) {
+        return new ReconMismatchDto(userId,
+                walletBalance != null ? Money.toRupees(walletBalance) : null,
+                Money.toRupees(ledgerBalance),
+                walletBalance != null ? Money.toRupees(Money.subtract(walletBalance, ledgerBalance)) : null);
+    }
+}
@@ -0,0 +1,39 @@
+package com.wallet.service.recon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces a reader to an average of {@code rowsPerSecond}: after each read the caller reports how many
+ * rows it got and sleeps until the run is back on budget. Bursts are bounded by one chunk.
+ */
+final class ReadRateBudget {
+
+    private final long rowsPerSecond;
+    private final long startNanos = System.nanoTime();
+    private long consumed;
+
+    ReadRateBudget(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    void consume(long rows) throws InterruptedException {
+        consumed += rows;
+        if (rowsPerSecond <= 0) {
+            return;     // unlimited
+        }
+        long dueNanos = startNanos + (long) (consumed * (1_000_000_000d / rowsPerSecond));
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    long consumed() {
+        return consumed;
+    }
+
+    double rowsPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? consumed * 1_000_000_000d / elapsed : 0d;
+    }
+}
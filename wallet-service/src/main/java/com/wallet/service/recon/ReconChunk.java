@@ -0,0 +1,187 @@
+package com.wallet.service.recon;
+
+import com.wallet.code.money.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * One userId range read from a single consistent snapshot: the wallets in it (sorted by userId,
+ * balances including hot slots) and every hot ledger row in it (sorted by userId), as parallel
+ * primitive arrays so a million-row chunk stays a few flat allocations. Archived rows of the range
+ * are folded in as they are read, into one net per wallet.
+ */
+final class ReconChunk {
+
+    // leaves small enough to balance well, large enough that task overhead stays noise
+    private static final int LEAF_WALLETS = 512;
+
+    final long lowerExclusive;
+    final long upperInclusive;
+
+    long archivedRows;      // archived ledger rows folded in, for the read budget
+
+    private long[] walletUserIds = new long[64];
+    private long[] walletBalances = new long[64];
+    private long[] walletArchivedNets = new long[64];
+    private int wallets;
+
+    // archived nets of users in the range that have no wallet
+    private final TreeMap<Long, Long> archivedOrphans = new TreeMap<>();
+
+    private long[] ledgerUserIds = new long[256];
+    private long[] ledgerAmounts = new long[256];   // signed paise
+    private int ledgerRows;
+
+    ReconChunk(long lowerExclusive, long upperInclusive) {
+        this.lowerExclusive = lowerExclusive;
+        this.upperInclusive = upperInclusive;
+    }
+
+    void addWallet(long userId, long balance) {
+        if (wallets == walletUserIds.length) {
+            walletUserIds = Arrays.copyOf(walletUserIds, wallets * 2);
+            walletBalances = Arrays.copyOf(walletBalances, wallets * 2);
+            walletArchivedNets = Arrays.copyOf(walletArchivedNets, wallets * 2);
+        }
+        walletUserIds[wallets] = userId;
+        walletBalances[wallets++] = balance;
+    }
+
+    /** Adds a hot wallet's slot total to the balance read from its row. */
+    void addSlotBalance(long userId, long balance) {
+        int i = Arrays.binarySearch(walletUserIds, 0, wallets, userId);
+        if (i >= 0) {
+            walletBalances[i] = Money.add(walletBalances[i], balance);
+        }
+    }
+
+    void addLedgerRow(long userId, long signedAmount) {
+        if (ledgerRows == ledgerUserIds.length) {
+            ledgerUserIds = Arrays.copyOf(ledgerUserIds, ledgerRows * 2);
+            ledgerAmounts = Arrays.copyOf(ledgerAmounts, ledgerRows * 2);
+        }
+        ledgerUserIds[ledgerRows] = userId;
+        ledgerAmounts[ledgerRows++] = signedAmount;
+    }
+
+    /** Adds an archived ledger row; call after every wallet of the chunk was added. */
+    void addArchivedRow(long userId, long signedAmount) {
+        int i = Arrays.binarySearch(walletUserIds, 0, wallets, userId);
+        if (i >= 0) {
+            walletArchivedNets[i] = Money.add(walletArchivedNets[i], signedAmount);
+        } else {
+            archivedOrphans.merge(userId, signedAmount, Money::add);
+        }
+    }
+
+    int wallets() {
+        return wallets;
+    }
+
+    int ledgerRows() {
+        return ledgerRows;
+    }
+
+    /** Fork/join task comparing every wallet in the chunk with its ledger net. */
+    Compare compare() {
+        return new Compare(0, wallets, 0, ledgerRows);
+    }
+
+    /** Users with archived rows but neither a wallet nor hot rows; the ones with hot rows are reported by {@link Compare}. */
+    List<Discrepancy> archivedOnlyOrphans() {
+        List<Discrepancy> found = new ArrayList<>();
+        for (Map.Entry<Long, Long> orphan : archivedOrphans.entrySet()) {
+            if (Arrays.binarySearch(ledgerUserIds, 0, ledgerRows, orphan.getKey()) < 0) {
+                found.add(new Discrepancy(orphan.getKey(), null, orphan.getValue()));
+            }
+        }
+        return found;
+    }
+
+    final class Compare extends RecursiveTask<List<Discrepancy>> {
+
+        private final int walletFrom;
+        private final int walletTo;
+        private final int ledgerFrom;
+        private final int ledgerTo;
+
+        Compare(int walletFrom, int walletTo, int ledgerFrom, int ledgerTo) {
+            this.walletFrom = walletFrom;
+            this.walletTo = walletTo;
+            this.ledgerFrom = ledgerFrom;
+            this.ledgerTo = ledgerTo;
+        }
+
+        @Override
+        protected List<Discrepancy> compute() {
+            if (walletTo - walletFrom <= LEAF_WALLETS) {
+                return compareRange();
+            }
+            // split on a wallet boundary; ledger rows below the pivot user go left
+            int mid = (walletFrom + walletTo) >>> 1;
+            int ledgerMid = lowerBound(walletUserIds[mid]);
+            Compare left = new Compare(walletFrom, mid, ledgerFrom, ledgerMid);
+            Compare right = new Compare(mid, walletTo, ledgerMid, ledgerTo);
+            left.fork();
+            List<Discrepancy> found = right.compute();
+            List<Discrepancy> leftFound = left.join();
+            if (leftFound.isEmpty()) {
+                return found;
+            }
+            if (!found.isEmpty()) {
+                leftFound.addAll(found);
+            }
+            return leftFound;
+        }
+
+        private List<Discrepancy> compareRange() {
+            List<Discrepancy> found = new ArrayList<>();
+            int l = ledgerFrom;
+            for (int w = walletFrom; w < walletTo; w++) {
+                long userId = walletUserIds[w];
+                l = orphans(l, userId, found);
+                long net = walletArchivedNets[w];
+                while (l < ledgerTo && ledgerUserIds[l] == userId) {
+                    net = Money.add(net, ledgerAmounts[l++]);
+                }
+                if (net != walletBalances[w]) {
+                    found.add(new Discrepancy(userId, walletBalances[w], net));
+                }
+            }
+            orphans(l, Long.MAX_VALUE, found);
+            return found;
+        }
+
+        /** Reports ledger rows of users below {@code before} that have no wallet; returns the next row. */
+        private int orphans(int l, long before, List<Discrepancy> found) {
+            while (l < ledgerTo && ledgerUserIds[l] < before) {
+                long userId = ledgerUserIds[l];
+                long net = archivedOrphans.getOrDefault(userId, 0L);
+                while (l < ledgerTo && ledgerUserIds[l] == userId) {
+                    net = Money.add(net, ledgerAmounts[l++]);
+                }
+                found.add(new Discrepancy(userId, null, net));
+            }
+            return l;
+        }
+
+        private int lowerBound(long userId) {
+            int lo = ledgerFrom;
+            int hi = ledgerTo;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ledgerUserIds[mid] < userId) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
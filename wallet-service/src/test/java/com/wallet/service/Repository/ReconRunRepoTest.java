@@ -0,0 +1,114 @@
+package com.wallet.service.Repository;
+
+import com.wallet.service.Model.ReconMismatch;
+import com.wallet.service.Model.ReconRun;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reconciliation run bookkeeping on H2 (MySQL mode). Loads every repository of the package, so
+ * a query that fails Hibernate's validation fails here rather than at service startup.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reconrepo;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReconRunRepoTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = ReconRun.class)
+    @EnableJpaRepositories(basePackageClasses = ReconRunRepo.class)
+    static class Jpa {
+    }
+
+    @Autowired
+    private ReconRunRepo reconRunRepo;
+
+    @Autowired
+    private ReconMismatchRepo reconMismatchRepo;
+
+    @BeforeEach
+    void clean() {
+        reconMismatchRepo.deleteAll();
+        reconRunRepo.deleteAll();
+    }
+
+    @Test
+    void abortRunningTouchesOwnAndStaleRunsOnly() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant staleBefore = now.minusSeconds(60);
+        long own = run(ReconRun.RUNNING, "node-a", now.minusSeconds(5)).getId();
+        long orphan = run(ReconRun.RUNNING, null, now.minusSeconds(5)).getId();
+        long stale = run(ReconRun.RUNNING, "node-b", now.minusSeconds(600)).getId();
+        long live = run(ReconRun.RUNNING, "node-b", now.minusSeconds(5)).getId();
+        long done = run(ReconRun.COMPLETED, "node-a", now.minusSeconds(600)).getId();
+
+        assertThat(reconRunRepo.abortRunning("node-a", staleBefore, now)).isEqualTo(3);
+
+        for (long id : List.of(own, orphan, stale)) {
+            ReconRun aborted = reconRunRepo.findById(id).orElseThrow();
+            assertThat(aborted.getStatus()).isEqualTo(ReconRun.ABORTED);
+            assertThat(aborted.getFinishedAt()).isEqualTo(now);
+        }
+        assertThat(reconRunRepo.findById(live).orElseThrow().getStatus()).isEqualTo(ReconRun.RUNNING);
+        assertThat(reconRunRepo.findById(done).orElseThrow().getStatus()).isEqualTo(ReconRun.COMPLETED);
+        assertThat(reconRunRepo.findFirstByOrderByIdDesc().getId()).isEqualTo(done);
+    }
+
+    @Test
+    void heartbeatKeepsAnotherNodesRunAlive() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        long run = run(ReconRun.RUNNING, "node-b", now.minusSeconds(600)).getId();
+
+        assertThat(reconRunRepo.heartbeat(run, now.minusSeconds(1))).isEqualTo(1);
+
+        assertThat(reconRunRepo.abortRunning("node-a", now.minusSeconds(60), now)).isZero();
+        assertThat(reconRunRepo.findById(run).orElseThrow().getStatus()).isEqualTo(ReconRun.RUNNING);
+    }
+
+    @Test
+    void mismatchesPageInUserOrder() {
+        long runId = run(ReconRun.COMPLETED, "node-a", Instant.now()).getId();
+        for (long userId : List.of(30L, 10L, 20L)) {
+            ReconMismatch mismatch = new ReconMismatch();
+            mismatch.setRunId(runId);
+            mismatch.setUserId(userId);
+            mismatch.setWalletBalance(100L * userId);
+            mismatch.setLedgerBalance(100L * userId + 1);
+            mismatch.setDetectedAt(Instant.now());
+            reconMismatchRepo.save(mismatch);
+        }
+
+        List<ReconMismatch> firstPage = reconMismatchRepo.findByRunIdOrderByUserId(runId, PageRequest.of(0, 2));
+
+        assertThat(firstPage).extracting(ReconMismatch::getUserId).containsExactly(10L, 20L);
+        assertThat(firstPage.get(0).getLedgerBalance()).isEqualTo(1_001L);
+    }
+
+    private ReconRun run(String status, String node, Instant startedAt) {
+        ReconRun run = new ReconRun();
+        run.setStatus(status);
+        run.setNode(node);
+        run.setStartedAt(startedAt);
+        return reconRunRepo.save(run);
+    }
+}
@@ -0,0 +1,135 @@
+package com.wallet.service.Repository;
+
+import com.wallet.service.Model.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lost-update checks for the in-place balance UPDATEs, with many threads hitting one wallet row.
+ * Runs on H2 in MySQL mode; amounts are whole rupees because H2 divides the BIGINT
+ * {@code :amount / 100} as an integer where MySQL yields a decimal.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:walletrepo;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletRepoConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final long RUPEE = 100L;
+
+    @Configuration
+    @EntityScan(basePackageClasses = Wallet.class)
+    @EnableJpaRepositories(basePackageClasses = WalletRepo.class)
+    static class Jpa {
+    }
+
+    @Autowired
+    private WalletRepo walletRepo;
+
+    @BeforeEach
+    void clean() {
+        walletRepo.deleteAll();
+    }
+
+    @Test
+    void concurrentDebitsNeitherLoseUpdatesNorOverdraw() throws Exception {
+        long userId = 1L;
+        save(userId, 1_000 * RUPEE);
+        AtomicBoolean negativeSeen = new AtomicBoolean();
+
+        List<Integer> applied = runConcurrently(200, i -> {
+            int rows = walletRepo.debitIfSufficient(userId, RUPEE);
+            if (walletRepo.findByUserId(userId).getBalance() < 0) {
+                negativeSeen.set(true);
+            }
+            return rows;
+        });
+
+        // 3200 attempts against 1000 rupees: exactly 1000 succeed and the wallet ends at zero
+        assertThat(applied.stream().mapToInt(Integer::intValue).sum()).isEqualTo(1_000);
+        assertThat(walletRepo.findByUserId(userId).getBalance()).isZero();
+        assertThat(negativeSeen).isFalse();
+    }
+
+    @Test
+    void interleavedCreditsAndDebitsAllLand() throws Exception {
+        long userId = 2L;
+        long initial = 10_000 * RUPEE;
+        save(userId, initial);
+
+        // even operations credit 3 rupees, odd ones debit 2; the balance never gets near zero
+        List<Integer> applied = runConcurrently(250, i -> i % 2 == 0
+                ? walletRepo.credit(userId, 3 * RUPEE)
+                : walletRepo.debitIfSufficient(userId, 2 * RUPEE));
+
+        int operations = THREADS * 250;
+        assertThat(applied).hasSize(operations).containsOnly(1);
+        long expected = initial + (operations / 2) * 3 * RUPEE - (operations / 2) * 2 * RUPEE;
+        assertThat(walletRepo.findByUserId(userId).getBalance()).isEqualTo(expected);
+    }
+
+    private void save(long userId, long balance) {
+        Wallet wallet = new Wallet();
+        wallet.setUserId(userId);
+        wallet.setUserEmail(userId + "@example.com");
+        wallet.setBalance(balance);
+        walletRepo.save(wallet);
+    }
+
+    private interface Op {
+        int apply(int i);
+    }
+
+    /** Runs {@code perThread} operations on each of {@link #THREADS} threads released together; returns every result. */
+    private static List<Integer> runConcurrently(int perThread, Op op) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                Callable<List<Integer>> worker = () -> {
+                    start.await();
+                    List<Integer> results = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        results.add(op.apply(thread * perThread + i));
+                    }
+                    return results;
+                };
+                futures.add(pool.submit(worker));
+            }
+            start.countDown();
+            List<Integer> all = new ArrayList<>();
+            for (Future<List<Integer>> future : futures) {
+                all.addAll(future.get());
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.wallet.service.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.wallet.service.dto.AddMoneyStatusDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AddMoneyStatusServiceTest {
+
+    private static final String CREDITED = "user updated successfully";
+
+    @Mock
+    private WalletService walletService;
+
+    @InjectMocks
+    private AddMoneyStatusService addMoneyStatusService;
+
+    private HttpServer gateway;
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    // PENDING answers the stub gateway gives per pgTxnId before it reports the terminal status
+    private final ConcurrentHashMap<String, AtomicInteger> pendingPolls = new ConcurrentHashMap<>();
+    private volatile String terminalStatus = "SUCCESS";
+
+    @BeforeEach
+    void init() throws IOException {
+        gateway = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        gateway.createContext("/pg-service/payment-status/", exchange -> {
+            upstreamRequests.incrementAndGet();
+            String pgTxnId = exchange.getRequestURI().getPath().substring("/pg-service/payment-status/".length());
+            AtomicInteger pending = pendingPolls.computeIfAbsent(pgTxnId, k -> new AtomicInteger());
+            String status = pending.getAndDecrement() > 0 ? "PENDING" : terminalStatus;
+            byte[] body = ("{\"status\":\"" + status + "\",\"userId\":42,\"amount\":250.0}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        gateway.start();
+
+        ReflectionTestUtils.setField(addMoneyStatusService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(addMoneyStatusService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(addMoneyStatusService, "httpClient", HttpClient.newHttpClient());
+        ReflectionTestUtils.setField(addMoneyStatusService, "pgBaseUrl", "http://127.0.0.1:" + gateway.getAddress().getPort());
+        ReflectionTestUtils.setField(addMoneyStatusService, "pollIntervalMs", 20L);
+        ReflectionTestUtils.setField(addMoneyStatusService, "maxWaitMs", 5_000L);
+        ReflectionTestUtils.setField(addMoneyStatusService, "creditThreads", 2);
+        ReflectionTestUtils.invokeMethod(addMoneyStatusService, "init");
+    }
+
+    @AfterEach
+    void stop() {
+        ReflectionTestUtils.invokeMethod(addMoneyStatusService, "shutdown");
+        gateway.stop(0);
+    }
+
+    @Test
+    void pollingStormSharesOneUpstreamWatchAndCreditsOnce() throws Exception {
+        when(walletService.applyPgPaymentStatus(eq("pg-1"), any())).thenReturn(CREDITED);
+        pendingPolls.put("pg-1", new AtomicInteger(3));
+
+        List<CompletableFuture<AddMoneyStatusDto>> waiters = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            waiters.add(addMoneyStatusService.awaitTerminal("pg-1"));
+        }
+        CompletableFuture.allOf(waiters.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertThat(waiters).allSatisfy(waiter -> {
+            assertThat(waiter.join().getStatus()).isEqualTo("SUCCESS");
+            assertThat(waiter.join().isCredited()).isTrue();
+        });
+        // three PENDING answers and the SUCCESS one, for a thousand waiting clients
+        assertThat(upstreamRequests).hasValue(4);
+        verify(walletService, times(1)).applyPgPaymentStatus(eq("pg-1"), any());
+
+        // polls after completion are answered from the settled cache
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(addMoneyStatusService.awaitTerminal("pg-1").get(1, TimeUnit.SECONDS).isCredited()).isTrue();
+        }
+        assertThat(upstreamRequests).hasValue(4);
+        verify(walletService, times(1)).applyPgPaymentStatus(eq("pg-1"), any());
+    }
+
+    @Test
+    void failedPaymentIsNotCredited() throws Exception {
+        terminalStatus = "FAILED";
+
+        AddMoneyStatusDto status = addMoneyStatusService.awaitTerminal("pg-2").get(5, TimeUnit.SECONDS);
+
+        assertThat(status.getStatus()).isEqualTo("FAILED");
+        assertThat(status.isCredited()).isFalse();
+        verify(walletService, never()).applyPgPaymentStatus(any(), any());
+    }
+
+    @Test
+    void failedCreditIsRetriedByTheNextWaiter() throws Exception {
+        when(walletService.applyPgPaymentStatus(eq("pg-3"), any()))
+                .thenThrow(new IllegalStateException("DB down"))
+                .thenReturn(CREDITED);
+
+        AddMoneyStatusDto first = addMoneyStatusService.awaitTerminal("pg-3").get(5, TimeUnit.SECONDS);
+        AddMoneyStatusDto second = addMoneyStatusService.awaitTerminal("pg-3").get(5, TimeUnit.SECONDS);
+
+        assertThat(first.getStatus()).isEqualTo("PENDING");
+        assertThat(second.isCredited()).isTrue();
+        assertThat(upstreamRequests).hasValue(2);
+    }
+
+    @Test
+    void watchStopsPollingOnceEveryWaiterHasGivenUp() throws Exception {
+        ReflectionTestUtils.setField(addMoneyStatusService, "maxWaitMs", 100L);
+        pendingPolls.put("pg-4", new AtomicInteger(Integer.MAX_VALUE));
+
+        AddMoneyStatusDto status = addMoneyStatusService.awaitTerminal("pg-4").get(5, TimeUnit.SECONDS);
+        int polled = upstreamRequests.get();
+        Thread.sleep(200);
+
+        assertThat(status.getStatus()).isEqualTo("PENDING");
+        assertThat(upstreamRequests).hasValue(polled);
+    }
+}
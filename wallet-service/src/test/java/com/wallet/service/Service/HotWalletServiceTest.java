@@ -0,0 +1,105 @@
+package com.wallet.service.Service;
+
+import com.wallet.service.Model.Wallet;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Repository.WalletSlotRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HotWalletServiceTest {
+
+    @Mock
+    private WalletRepo walletRepo;
+
+    @Mock
+    private WalletSlotRepo walletSlotRepo;
+
+    @Mock
+    private WalletBalanceCache walletBalanceCache;
+
+    @InjectMocks
+    private HotWalletService hotWalletService;
+
+    @BeforeEach
+    void markHot() {
+        ReflectionTestUtils.setField(hotWalletService, "hotSlots", Map.of(3L, 4));
+    }
+
+    @Test
+    void lockAndSweepTakesHotSlotsBeforeAnyHigherRow() {
+        Wallet hot = wallet(3L, 500);
+        when(walletRepo.lockByUserIdIn(List.of(1L, 2L))).thenReturn(List.of(wallet(1L, 100), wallet(2L, 200)));
+        when(walletRepo.lockByUserId(3L)).thenReturn(hot);
+        when(walletSlotRepo.lockBalances(3L)).thenReturn(List.of(new BigDecimal("1.50"), new BigDecimal("2.00")));
+        when(walletRepo.lockByUserIdIn(List.of(5L))).thenReturn(List.of(wallet(5L, 50)));
+
+        HotWalletService.Locked locked = hotWalletService.lockAndSweep(new TreeSet<>(List.of(5L, 3L, 1L, 2L)));
+
+        InOrder order = inOrder(walletRepo, walletSlotRepo);
+        order.verify(walletRepo).lockByUserIdIn(List.of(1L, 2L));
+        order.verify(walletRepo).lockByUserId(3L);
+        order.verify(walletSlotRepo).lockBalances(3L);
+        order.verify(walletRepo).addRupees(eq(3L), any(BigDecimal.class));
+        order.verify(walletRepo).lockByUserIdIn(List.of(5L));
+        assertThat(locked.wallets()).extracting(Wallet::getUserId).containsExactly(1L, 2L, 3L, 5L);
+        assertThat(locked.swept()).containsExactly(Map.entry(3L, 350L));
+    }
+
+    @Test
+    void lockAndSweepLocksColdWalletsInOneStatement() {
+        when(walletRepo.lockByUserIdIn(List.of(1L, 2L))).thenReturn(List.of(wallet(1L, 100), wallet(2L, 200)));
+
+        HotWalletService.Locked locked = hotWalletService.lockAndSweep(new TreeSet<>(List.of(2L, 1L)));
+
+        assertThat(locked.wallets()).hasSize(2);
+        assertThat(locked.swept()).isEmpty();
+    }
+
+    @Test
+    void debitSweepsSlotsOnlyWhenTheRowIsShort() {
+        when(walletRepo.debitIfSufficient(3L, 400L)).thenReturn(0, 1);
+        when(walletSlotRepo.lockBalances(3L)).thenReturn(List.of(new BigDecimal("4.00")));
+
+        assertThat(hotWalletService.debitIfSufficient(3L, 400L)).isEqualTo(1);
+
+        InOrder order = inOrder(walletRepo, walletSlotRepo);
+        order.verify(walletRepo).debitIfSufficient(3L, 400L);
+        order.verify(walletSlotRepo).lockBalances(3L);
+        order.verify(walletRepo).addRupees(eq(3L), any(BigDecimal.class));
+        order.verify(walletRepo).debitIfSufficient(3L, 400L);
+    }
+
+    @Test
+    void creditFallsBackToTheRowWhenTheSlotIsGone() {
+        when(walletSlotRepo.credit(eq(3L), anyInt(), eq(100L))).thenReturn(0);
+        when(walletRepo.credit(3L, 100L)).thenReturn(1);
+
+        assertThat(hotWalletService.credit(3L, 100L)).isEqualTo(1);
+    }
+
+    private static Wallet wallet(long userId, long balance) {
+        Wallet wallet = new Wallet();
+        wallet.setUserId(userId);
+        wallet.setBalance(balance);
+        return wallet;
+    }
+}
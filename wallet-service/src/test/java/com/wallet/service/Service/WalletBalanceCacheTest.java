@@ -0,0 +1,127 @@
+package com.wallet.service.Service;
+
+import com.wallet.service.Model.Wallet;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Repository.WalletSlotRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletBalanceCacheTest {
+
+    private static final long USER_ID = 7L;
+
+    @Mock
+    private WalletRepo walletRepo;
+
+    @Mock
+    private WalletSlotRepo walletSlotRepo;
+
+    @InjectMocks
+    private WalletBalanceCache walletBalanceCache;
+
+    // stands in for the committed wallet row
+    private final AtomicLong stored = new AtomicLong(100L);
+
+    @BeforeEach
+    void init() {
+        ReflectionTestUtils.setField(walletBalanceCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(walletBalanceCache, "maxSize", 1_000L);
+        ReflectionTestUtils.setField(walletBalanceCache, "ttlMs", 60_000L);
+        ReflectionTestUtils.invokeMethod(walletBalanceCache, "init");
+    }
+
+    @Test
+    void slowLoadOvertakenByAnUpdateIsNotCached() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(walletRepo.findByUserId(USER_ID)).thenAnswer(inv -> {
+            Wallet wallet = wallet(stored.get());
+            if (reading.getCount() > 0) {
+                reading.countDown();
+                release.await();
+            }
+            return wallet;
+        });
+
+        CompletableFuture<Long> slow = CompletableFuture.supplyAsync(() -> walletBalanceCache.balance(USER_ID));
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        stored.set(250L);
+        walletBalanceCache.invalidate(List.of(USER_ID));
+        release.countDown();
+
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(100L);
+        assertThat(walletBalanceCache.balance(USER_ID)).isEqualTo(250L);
+    }
+
+    @Test
+    void readsNeverGoBehindACommittedUpdate() throws Exception {
+        when(walletRepo.findByUserId(USER_ID)).thenAnswer(inv -> {
+            long balance = stored.get();
+            Thread.yield();
+            return wallet(balance);
+        });
+        // highest balance whose invalidation has completed; no read that starts later may return less
+        AtomicLong committed = new AtomicLong(stored.get());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong staleReads = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(9);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 8; r++) {
+                readers.add(pool.submit(() -> {
+                    while (writing.get()) {
+                        long floor = committed.get();
+                        if (walletBalanceCache.balance(USER_ID) < floor) {
+                            staleReads.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            pool.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    long next = stored.incrementAndGet();
+                    walletBalanceCache.invalidate(List.of(USER_ID));
+                    committed.set(next);
+                }
+                writing.set(false);
+            }).get(30, TimeUnit.SECONDS);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(staleReads).hasValue(0);
+        assertThat(walletBalanceCache.balance(USER_ID)).isEqualTo(stored.get());
+    }
+
+    private static Wallet wallet(long balance) {
+        Wallet wallet = new Wallet();
+        wallet.setUserId(USER_ID);
+        wallet.setBalance(balance);
+        return wallet;
+    }
+}
@@ -0,0 +1,149 @@
+package com.wallet.service.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.wallet.service.Service.AddMoneyStatusService;
+import com.wallet.service.Service.WalletService;
+import com.wallet.service.dto.AddMoneyStatusDto;
+import com.wallet.service.dto.PGPaymentStatusDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * Add-money status polling storm against a stub gateway that answers after {@value #GATEWAY_LATENCY_MS}
+ * ms. Client polls are spread over pgTxnIds, {@value #POLLS_PER_PAYMENT} polls per payment.
+ * <ul>
+ *   <li>{@code perPollFetch}: one blocking gateway request per client poll, as the synchronous
+ *       endpoint does.</li>
+ *   <li>{@code sharedWatch}: {@link AddMoneyStatusService#awaitTerminal}; concurrent polls share
+ *       one upstream fetch and later ones are answered from the settled cache.</li>
+ * </ul>
+ * Each iteration prints the gateway requests made per client poll.
+ * Run from the test classpath: {@code java -cp <test classpath> org.openjdk.jmh.Main AddMoneyStatusStormBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(32)
+public class AddMoneyStatusStormBenchmark {
+
+    static final long GATEWAY_LATENCY_MS = 5;
+    static final int POLLS_PER_PAYMENT = 256;
+
+    @State(Scope.Benchmark)
+    public static class Gateway {
+
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong polls = new AtomicLong();
+        final ObjectMapper objectMapper = new ObjectMapper();
+        HttpServer server;
+        HttpClient httpClient;
+        String baseUrl;
+        AddMoneyStatusService service;
+        long iterationStartPoll;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+            server.setExecutor(Executors.newFixedThreadPool(64));
+            server.createContext("/pg-service/payment-status/", exchange -> {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(GATEWAY_LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = "{\"status\":\"SUCCESS\",\"userId\":42,\"amount\":250.0}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+            httpClient = HttpClient.newHttpClient();
+
+            WalletService walletService = Mockito.mock(WalletService.class);
+            Mockito.when(walletService.applyPgPaymentStatus(anyString(), any())).thenReturn("user updated successfully");
+            service = new AddMoneyStatusService();
+            ReflectionTestUtils.setField(service, "walletService", walletService);
+            ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+            ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(service, "httpClient", httpClient);
+            ReflectionTestUtils.setField(service, "pgBaseUrl", baseUrl);
+            ReflectionTestUtils.setField(service, "pollIntervalMs", 100L);
+            ReflectionTestUtils.setField(service, "maxWaitMs", 30_000L);
+            ReflectionTestUtils.setField(service, "creditThreads", 4);
+            ReflectionTestUtils.invokeMethod(service, "init");
+        }
+
+        @Setup(Level.Iteration)
+        public void resetCounts() {
+            requests.set(0);
+            // fresh pgTxnIds, so every iteration starts with nothing settled
+            polls.set(polls.get() / POLLS_PER_PAYMENT * POLLS_PER_PAYMENT + POLLS_PER_PAYMENT);
+            iterationStartPoll = polls.get();
+        }
+
+        @TearDown(Level.Iteration)
+        public void reportFanIn() {
+            long clientPolls = polls.get() - iterationStartPoll;
+            System.out.printf("%n%d gateway requests for %d client polls (%.4f per poll)%n",
+                    requests.get(), clientPolls, clientPolls == 0 ? 0.0 : (double) requests.get() / clientPolls);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            ReflectionTestUtils.invokeMethod(service, "shutdown");
+            server.stop(0);
+        }
+
+        String nextPgTxnId() {
+            return "pg-" + polls.getAndIncrement() / POLLS_PER_PAYMENT;
+        }
+    }
+
+    @Benchmark
+    public PGPaymentStatusDTO perPollFetch(Gateway gateway) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(gateway.baseUrl + "/pg-service/payment-status/"
+                + gateway.nextPgTxnId())).GET().build();
+        HttpResponse<String> response = gateway.httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        return gateway.objectMapper.readValue(response.body(), PGPaymentStatusDTO.class);
+    }
+
+    @Benchmark
+    public AddMoneyStatusDto sharedWatch(Gateway gateway) {
+        return gateway.service.awaitTerminal(gateway.nextPgTxnId()).join();
+    }
+}
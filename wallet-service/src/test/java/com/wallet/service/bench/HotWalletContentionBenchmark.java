@@ -0,0 +1,259 @@
+package com.wallet.service.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Row-lock contention on a hot payee, against a real MySQL with the wallet-service schema (as
+ * created by the app's ddl-auto). The SQL is the one {@code WalletRepo}, {@code WalletSlotRepo}
+ * and {@code HotWalletService} issue.
+ * <ul>
+ *   <li>{@code creditRow} / {@code creditSlot}: credits queuing on the single wallet row versus
+ *       spread over {@code wallet_balance_slot} rows.</li>
+ *   <li>{@code sortedSweep} / {@code lockAllThenSweep}: P2P credits into the hot wallet (slot
+ *       first, then the higher payer row, as walletTxn orders them) racing a batch that holds the
+ *       same payer rows. Locking every row before sweeping deadlocks; sweeping each hot wallet
+ *       right after its own row ({@code HotWalletService#lockAndSweep}) does not. See the
+ *       {@code deadlocks} counter.</li>
+ * </ul>
+ * Run from the test classpath:
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main HotWalletContentionBenchmark
+ * -jvmArgs -Dbench.jdbc.url=jdbc:mysql://localhost:3306/walletdb}. Wallets are written with
+ * userIds from {@value #BASE_USER_ID} upwards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class HotWalletContentionBenchmark {
+
+    static final long BASE_USER_ID = 9_000_000_000L;
+    static final long HOT = BASE_USER_ID;
+    static final int SLOTS = 16;
+    static final int PAYERS = 64;
+
+    private static final String URL = System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/walletdb");
+    private static final String USER = System.getProperty("bench.jdbc.user", "root");
+    private static final String PASSWORD = System.getProperty("bench.jdbc.password", "8870");
+
+    private static final String CREDIT_ROW =
+            "UPDATE wallet SET balance = balance + ? / 100, last_updated = CURRENT_TIMESTAMP(6) WHERE user_id = ?";
+    private static final String DEBIT_ROW = "UPDATE wallet SET balance = balance - ? / 100, "
+            + "last_updated = CURRENT_TIMESTAMP(6) WHERE user_id = ? AND balance >= ? / 100";
+    private static final String CREDIT_SLOT =
+            "UPDATE wallet_balance_slot SET balance = balance + ? / 100 WHERE user_id = ? AND slot = ?";
+    private static final String LOCK_ROW = "SELECT balance FROM wallet WHERE user_id = ? FOR UPDATE";
+    private static final String LOCK_ROWS = "SELECT balance FROM wallet WHERE user_id BETWEEN ? AND ? ORDER BY user_id FOR UPDATE";
+    private static final String LOCK_SLOTS = "SELECT balance FROM wallet_balance_slot WHERE user_id = ? ORDER BY slot FOR UPDATE";
+    private static final String CLEAR_SLOTS = "UPDATE wallet_balance_slot SET balance = 0 WHERE user_id = ?";
+    private static final String ADD_RUPEES = "UPDATE wallet SET balance = balance + "
+            + "(SELECT COALESCE(SUM(balance), 0) FROM wallet_balance_slot WHERE user_id = ?), "
+            + "last_updated = CURRENT_TIMESTAMP(6) WHERE user_id = ?";
+
+    @State(Scope.Benchmark)
+    public static class Wallets {
+
+        @Setup(Level.Trial)
+        public void create() throws SQLException {
+            try (Connection con = connect()) {
+                upsertWallet(con, HOT, SLOTS);
+                for (int i = 1; i <= PAYERS; i++) {
+                    upsertWallet(con, HOT + i, null);
+                }
+                try (PreparedStatement ps = con.prepareStatement("DELETE FROM wallet_balance_slot WHERE user_id = ?")) {
+                    ps.setLong(1, HOT);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = con.prepareStatement(
+                        "INSERT INTO wallet_balance_slot (user_id, slot, balance) VALUES (?, ?, 0)")) {
+                    for (int slot = 0; slot < SLOTS; slot++) {
+                        ps.setLong(1, HOT);
+                        ps.setInt(2, slot);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                con.commit();
+            }
+        }
+
+        private static void upsertWallet(Connection con, long userId, Integer hotSlots) throws SQLException {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO wallet (user_id, user_email, balance, hot_slots, date_created, last_updated) "
+                            + "VALUES (?, ?, 1000000000, ?, CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6)) "
+                            + "ON DUPLICATE KEY UPDATE balance = 1000000000, hot_slots = VALUES(hot_slots)")) {
+                ps.setLong(1, userId);
+                ps.setString(2, "bench-" + userId + "@example.com");
+                if (hotSlots == null) {
+                    ps.setNull(3, java.sql.Types.INTEGER);
+                } else {
+                    ps.setInt(3, hotSlots);
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+
+        private static final AtomicInteger NEXT_PAYER = new AtomicInteger();
+
+        Connection con;
+        long payer;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            con = connect();
+            payer = HOT + 1 + NEXT_PAYER.getAndIncrement() % PAYERS;
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            con.close();
+        }
+    }
+
+    /** Failed transactions by cause, reported next to the throughput of each benchmark. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long deadlocks;
+        public long lockWaitTimeouts;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void creditRow(Wallets wallets, Session session, Outcomes outcomes) throws SQLException {
+        run(session, outcomes, con -> update(con, CREDIT_ROW, 100, HOT));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void creditSlot(Wallets wallets, Session session, Outcomes outcomes) throws SQLException {
+        run(session, outcomes, con -> update(con, CREDIT_SLOT, 100, HOT, ThreadLocalRandom.current().nextInt(SLOTS)));
+    }
+
+    // payer -> hot wallet; the payee has the lower userId, so walletTxn credits first, then debits the payer row
+    @Benchmark
+    @Group("sortedSweep")
+    @GroupThreads(7)
+    public void transferToHotSorted(Wallets wallets, Session session, Outcomes outcomes) throws SQLException {
+        transferToHot(session, outcomes);
+    }
+
+    @Benchmark
+    @Group("sortedSweep")
+    @GroupThreads(1)
+    public void batchSweepsEachHotWalletAfterItsRow(Wallets wallets, Session session, Outcomes outcomes) throws SQLException {
+        run(session, outcomes, con -> {
+            lock(con, LOCK_ROW, HOT);
+            sweep(con);
+            lock(con, LOCK_ROWS, HOT + 1, HOT + PAYERS);
+        });
+    }
+
+    @Benchmark
+    @Group("lockAllThenSweep")
+    @GroupThreads(7)
+    public void transferToHotUnsorted(Wallets wallets, Session session, Outcomes outcomes) throws SQLException {
+        transferToHot(session, outcomes);
+    }
+
+    @Benchmark
+    @Group("lockAllThenSweep")
+    @GroupThreads(1)
+    public void batchLocksAllRowsThenSweeps(Wallets wallets, Session session, Outcomes outcomes) throws SQLException {
+        run(session, outcomes, con -> {
+            lock(con, LOCK_ROWS, HOT, HOT + PAYERS);
+            sweep(con);
+        });
+    }
+
+    private static void transferToHot(Session session, Outcomes outcomes) throws SQLException {
+        run(session, outcomes, con -> {
+            update(con, CREDIT_SLOT, 100, HOT, ThreadLocalRandom.current().nextInt(SLOTS));
+            update(con, DEBIT_ROW, 100, session.payer, 100);
+        });
+    }
+
+    private static void sweep(Connection con) throws SQLException {
+        lock(con, LOCK_SLOTS, HOT);
+        update(con, ADD_RUPEES, HOT, HOT);
+        update(con, CLEAR_SLOTS, HOT);
+    }
+
+    private interface Work {
+        void apply(Connection con) throws SQLException;
+    }
+
+    private static void run(Session session, Outcomes outcomes, Work work) throws SQLException {
+        try {
+            work.apply(session.con);
+            session.con.commit();
+        } catch (SQLException e) {
+            session.con.rollback();
+            if (e.getErrorCode() == 1213) {
+                outcomes.deadlocks++;
+            } else if (e.getErrorCode() == 1205) {
+                outcomes.lockWaitTimeouts++;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    private static void update(Connection con, String sql, Object... args) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, args);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void lock(Connection con, String sql, Object... args) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, args);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // rows are locked as they are read
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object... args) throws SQLException {
+        for (int i = 0; i < args.length; i++) {
+            ps.setObject(i + 1, args[i]);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection con = DriverManager.getConnection(URL, USER, PASSWORD);
+        con.setAutoCommit(false);
+        return con;
+    }
+}
@@ -0,0 +1,162 @@
+package com.wallet.service.config;
+
+import com.wallet.code.config.KafkaProducerConfig;
+import com.wallet.code.dto.TxnCompletedPayload;
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.dto.WalletUpdatedPayload;
+import com.wallet.service.Repository.LedgerRepo;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Service.WalletEventPublisher;
+import com.wallet.service.Service.WalletService;
+import com.wallet.service.engine.TransferOutcome;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Batch-mode TXN-INIT in transactional producer mode: a record that still fails in the per-record
+ * fallback aborts the Kafka transaction of the whole poll, so none of its events become visible.
+ */
+@SpringBootTest(classes = WalletKafkaBatchTransactionTest.Kafka.class, properties = {
+        "kafka.bootstrap-server=${spring.kafka.bootstrap-servers}",
+        "kafka.producer.transaction-id-prefix=wallet-batch-test-tx-",
+        "wallet.txninit.batch.enabled=true",
+        "wallet.txninit.batch.min-fetch-bytes=1",
+        "spring.kafka.consumer.auto-offset-reset=earliest"})
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers",
+        topics = {"TXN-INIT", "TXN-COMPLETED", "WALLET-UPDATED", "USER-CREATED"})
+class WalletKafkaBatchTransactionTest {
+
+    @Configuration
+    @ImportAutoConfiguration({KafkaAutoConfiguration.class, JacksonAutoConfiguration.class})
+    @Import({KafkaProducerConfig.class, WalletKafkaContainerConfig.class, WalletKafkaConsumerConfig.class,
+            WalletEventPublisher.class})
+    static class Kafka {
+    }
+
+    @MockitoBean
+    private WalletService walletService;
+
+    @MockitoBean
+    private WalletRepo walletRepo;
+
+    @MockitoBean
+    private LedgerRepo ledgerRepo;
+
+    @MockitoBean
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WalletEventPublisher walletEventPublisher;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Value("${wallet.init.topic}")
+    private String txnInitTopic;
+
+    @Value("${wallet.completed.topic}")
+    private String completedTopic;
+
+    @Value("${wallet.updated.topic}")
+    private String updatedTopic;
+
+    @Test
+    void recordFailingInTheFallbackAbortsTheBatchsEvents() throws Exception {
+        AtomicInteger okAttempts = new AtomicInteger();
+        when(walletService.walletTxnBatch(anyList())).thenThrow(new IllegalStateException("batch rolled back"));
+        doAnswer(inv -> {
+            TxnInitPayload txn = inv.getArgument(0);
+            walletEventPublisher.publish(outcome(txn.getRequestId()));
+            if (txn.getRequestId().startsWith("fail")) {
+                throw new IllegalStateException("DB transaction rolled back");
+            }
+            okAttempts.incrementAndGet();
+            return null;
+        }).when(walletService).walletTxn(any());
+
+        kafkaTemplate.executeInTransaction(ops -> {
+            ops.send(txnInitTopic, "ok-1", txnInit("ok-1"));
+            ops.send(txnInitTopic, "fail-1", txnInit("fail-1"));
+            return null;
+        });
+
+        List<ConsumerRecord<String, String>> visible = new ArrayList<>();
+        try (Consumer<String, String> consumer = readCommittedConsumer()) {
+            consumer.subscribe(List.of(completedTopic, updatedTopic));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            // ok-1 is applied before fail-1 on every delivery; a second attempt means the batch was redelivered
+            while (okAttempts.get() < 2 && System.nanoTime() < deadline) {
+                consumer.poll(Duration.ofMillis(200)).forEach(visible::add);
+            }
+            for (int i = 0; i < 5; i++) {
+                consumer.poll(Duration.ofMillis(200)).forEach(visible::add);
+            }
+        }
+
+        assertThat(okAttempts.get()).isGreaterThanOrEqualTo(2);
+        // ok-1's events were sent in the same aborted transactions as fail-1's
+        assertThat(visible).noneMatch(r -> r.value().contains("ok-1") || r.value().contains("fail-1"));
+    }
+
+    private Consumer<String, String> readCommittedConsumer() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("verify-batch", "false", broker);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        return new KafkaConsumer<>(props);
+    }
+
+    private static TxnInitPayload txnInit(String requestId) {
+        TxnInitPayload txn = new TxnInitPayload();
+        txn.setId(1L);
+        txn.setFromUserId(10L);
+        txn.setToUserId(20L);
+        txn.setAmount(10_000L);
+        txn.setRequestId(requestId);
+        return txn;
+    }
+
+    private static TransferOutcome outcome(String requestId) {
+        TxnCompletedPayload completed = new TxnCompletedPayload();
+        completed.setRequestId(requestId);
+        completed.setSuccess(true);
+        completed.setAmount(10_000L);
+        return new TransferOutcome(completed,
+                new WalletUpdatedPayload("from-" + requestId + "@example.com", 90_000L, requestId),
+                new WalletUpdatedPayload("to-" + requestId + "@example.com", 110_000L, requestId));
+    }
+}
@@ -0,0 +1,200 @@
+package com.wallet.service.config;
+
+import com.wallet.code.config.KafkaProducerConfig;
+import com.wallet.code.dto.TxnCompletedPayload;
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.code.dto.WalletUpdatedPayload;
+import com.wallet.service.Repository.LedgerRepo;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Service.WalletEventPublisher;
+import com.wallet.service.Service.WalletService;
+import com.wallet.service.engine.TransferOutcome;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * TXN-INIT processing in transactional producer mode against an embedded broker: the listener
+ * runs on {@code walletTxnContainerFactory} and {@link WalletService#walletTxn} is stubbed to
+ * publish through {@link WalletEventPublisher} the way the real one does, without a database.
+ */
+@SpringBootTest(classes = WalletKafkaTransactionTest.Kafka.class, properties = {
+        "kafka.bootstrap-server=${spring.kafka.bootstrap-servers}",
+        "kafka.producer.transaction-id-prefix=wallet-test-tx-",
+        "spring.kafka.consumer.auto-offset-reset=earliest"})
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers",
+        topics = {"TXN-INIT", "TXN-COMPLETED", "WALLET-UPDATED", "USER-CREATED"})
+class WalletKafkaTransactionTest {
+
+    private static final int WARMUP = 50;
+    private static final int TRANSFERS = 300;
+
+    @Configuration
+    @ImportAutoConfiguration({KafkaAutoConfiguration.class, JacksonAutoConfiguration.class})
+    @Import({KafkaProducerConfig.class, WalletKafkaContainerConfig.class, WalletKafkaConsumerConfig.class,
+            WalletEventPublisher.class})
+    static class Kafka {
+    }
+
+    @MockitoBean
+    private WalletService walletService;
+
+    @MockitoBean
+    private WalletRepo walletRepo;
+
+    @MockitoBean
+    private LedgerRepo ledgerRepo;
+
+    @MockitoBean
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WalletEventPublisher walletEventPublisher;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Value("${wallet.init.topic}")
+    private String txnInitTopic;
+
+    @Value("${wallet.completed.topic}")
+    private String completedTopic;
+
+    @Value("${wallet.updated.topic}")
+    private String updatedTopic;
+
+    @Test
+    void failedTransferPublishesNothingAndOffsetsCommitWithTheEvents() throws Exception {
+        doAnswer(inv -> {
+            TxnInitPayload txn = inv.getArgument(0);
+            // like walletTxn: events are sent inside the listener's Kafka transaction, not awaited
+            walletEventPublisher.publish(outcome(txn.getRequestId()));
+            if (txn.getRequestId().startsWith("fail")) {
+                throw new IllegalStateException("DB transaction rolled back");
+            }
+            return null;
+        }).when(walletService).walletTxn(any());
+
+        kafkaTemplate.send(txnInitTopic, "fail-1", txnInit("fail-1")).get();
+        kafkaTemplate.send(txnInitTopic, "ok-1", txnInit("ok-1")).get();
+
+        List<ConsumerRecord<String, String>> visible = new ArrayList<>();
+        try (Consumer<String, String> consumer = readCommittedConsumer()) {
+            consumer.subscribe(List.of(completedTopic, updatedTopic));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            // records of one partition are handled in order, so once ok-1 is visible fail-1 has been given up on
+            while (visible.stream().noneMatch(r -> "ok-1".equals(r.key())) && System.nanoTime() < deadline) {
+                consumer.poll(Duration.ofMillis(200)).forEach(visible::add);
+            }
+        }
+
+        assertThat(visible).filteredOn(r -> r.value().contains("ok-1")).extracting(ConsumerRecord::key)
+                .containsExactlyInAnyOrder("ok-1", "from-ok-1@example.com", "to-ok-1@example.com");
+        assertThat(visible).noneMatch(r -> r.value().contains("fail-1"));
+
+        // both TXN-INIT offsets were committed through the producer's transactions
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        OffsetAndMetadata committed = null;
+        while (System.nanoTime() < deadline && (committed == null || committed.offset() < 2)) {
+            committed = KafkaTestUtils.getCurrentOffset(broker.getBrokersAsString(), "wallet", txnInitTopic, 0);
+            Thread.sleep(100);
+        }
+        assertThat(committed).isNotNull();
+        assertThat(committed.offset()).isEqualTo(2L);
+    }
+
+    @Test
+    void pipelinedSendsCutPerTransferLatency() throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            sequential(outcome("warm-seq-" + i));
+            walletEventPublisher.publish(outcome("warm-pipe-" + i)).get();
+        }
+
+        long sequentialNanos = 0;
+        long pipelinedNanos = 0;
+        // interleaved so both variants see the same broker load
+        for (int i = 0; i < TRANSFERS; i++) {
+            TransferOutcome seq = outcome("seq-" + i);
+            long started = System.nanoTime();
+            sequential(seq);
+            sequentialNanos += System.nanoTime() - started;
+
+            TransferOutcome pipe = outcome("pipe-" + i);
+            started = System.nanoTime();
+            walletEventPublisher.publish(pipe).get();
+            pipelinedNanos += System.nanoTime() - started;
+        }
+
+        long sequentialMicros = sequentialNanos / TRANSFERS / 1_000;
+        long pipelinedMicros = pipelinedNanos / TRANSFERS / 1_000;
+        assertThat(pipelinedMicros)
+                .as("per-transfer latency: pipelined %dus vs sequential %dus", pipelinedMicros, sequentialMicros)
+                .isLessThan(sequentialMicros);
+    }
+
+    // what walletTxn did before: three sends, each awaited before the next
+    private void sequential(TransferOutcome outcome) throws Exception {
+        kafkaTemplate.send(updatedTopic, outcome.fromWallet().getUserEmail(), outcome.fromWallet()).get();
+        kafkaTemplate.send(updatedTopic, outcome.toWallet().getUserEmail(), outcome.toWallet()).get();
+        kafkaTemplate.send(completedTopic, outcome.completed().getRequestId(), outcome.completed()).get();
+    }
+
+    private Consumer<String, String> readCommittedConsumer() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("verify", "false", broker);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        return new KafkaConsumer<>(props);
+    }
+
+    private static TxnInitPayload txnInit(String requestId) {
+        TxnInitPayload txn = new TxnInitPayload();
+        txn.setId(1L);
+        txn.setFromUserId(10L);
+        txn.setToUserId(20L);
+        txn.setAmount(10_000L);
+        txn.setRequestId(requestId);
+        return txn;
+    }
+
+    private static TransferOutcome outcome(String requestId) {
+        TxnCompletedPayload completed = new TxnCompletedPayload();
+        completed.setRequestId(requestId);
+        completed.setSuccess(true);
+        completed.setAmount(10_000L);
+        return new TransferOutcome(completed,
+                new WalletUpdatedPayload("from-" + requestId + "@example.com", 90_000L, requestId),
+                new WalletUpdatedPayload("to-" + requestId + "@example.com", 110_000L, requestId));
+    }
+}
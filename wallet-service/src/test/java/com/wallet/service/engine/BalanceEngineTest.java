@@ -0,0 +1,215 @@
+package com.wallet.service.engine;
+
+import com.wallet.code.dto.TxnInitPayload;
+import com.wallet.service.Model.LedgerEntry;
+import com.wallet.service.Model.Wallet;
+import com.wallet.service.Repository.LedgerRepo;
+import com.wallet.service.Repository.WalletRepo;
+import com.wallet.service.Service.HotWalletService;
+import com.wallet.service.dedupe.LedgerTxnIdFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+/**
+ * Engine transfers against an in-memory stand-in for the wallet and ledger tables, so flushes can
+ * be failed and the engine restarted in between the two legs of a transfer.
+ */
+@ExtendWith(MockitoExtension.class)
+class BalanceEngineTest {
+
+    private static final long PAYER = 1L;
+    private static final long PAYEE = 2L;
+
+    @Mock
+    private WalletRepo walletRepo;
+
+    @Mock
+    private LedgerRepo ledgerRepo;
+
+    @Mock
+    private HotWalletService hotWalletService;
+
+    @Mock
+    private WalletWriteBehind writeBehind;
+
+    @Mock
+    private LedgerTxnIdFilter ledgerTxnIdFilter;
+
+    // the committed database
+    private final Map<Long, Long> walletBalances = new ConcurrentHashMap<>();
+    private final List<LedgerEntry> ledger = new CopyOnWriteArrayList<>();
+    private volatile boolean failCredits;
+
+    private BalanceEngine engine;
+
+    @BeforeEach
+    void init() {
+        walletBalances.put(PAYER, 1_000L);
+        walletBalances.put(PAYEE, 0L);
+        lenient().when(walletRepo.findByUserId(anyLong())).thenAnswer(inv -> {
+            Long userId = inv.getArgument(0);
+            Long balance = walletBalances.get(userId);
+            if (balance == null) {
+                return null;
+            }
+            Wallet wallet = new Wallet();
+            wallet.setUserId(userId);
+            wallet.setUserEmail("user" + userId + "@wallet.test");
+            wallet.setBalance(balance);
+            return wallet;
+        });
+        lenient().when(hotWalletService.totalBalance(any())).thenAnswer(inv -> inv.<Wallet>getArgument(0).getBalance());
+        lenient().when(ledgerTxnIdFilter.alreadyApplied(anyString())).thenAnswer(inv ->
+                ledger.stream().anyMatch(leg -> leg.getTxnId().equals(inv.getArgument(0))));
+        lenient().when(ledgerRepo.findDirectionsByTxnId(anyString())).thenAnswer(inv -> ledger.stream()
+                .filter(leg -> leg.getTxnId().equals(inv.getArgument(0))).map(LedgerEntry::getDirection).toList());
+        lenient().when(writeBehind.flush(any(), any(), anyInt(), anyList())).thenAnswer(inv -> {
+            List<LedgerEntry> legs = inv.getArgument(3);
+            if (failCredits && legs.stream().anyMatch(leg -> LedgerEntry.CREDIT.equals(leg.getDirection()))) {
+                throw new IllegalStateException("flush failed");
+            }
+            List<LedgerEntry> dropped = new ArrayList<>();
+            for (LedgerEntry leg : legs) {
+                boolean recorded = ledger.stream().anyMatch(row -> row.getTxnId().equals(leg.getTxnId())
+                        && row.getDirection().equals(leg.getDirection()));
+                if (recorded) {
+                    dropped.add(leg);
+                } else {
+                    ledger.add(leg);
+                    walletBalances.merge(leg.getUserId(), leg.signedAmount(), Long::sum);
+                }
+            }
+            return dropped;
+        });
+        engine = startEngine();
+    }
+
+    @AfterEach
+    void stop() {
+        ReflectionTestUtils.invokeMethod(engine, "stop");
+    }
+
+    @Test
+    void creditIsNeverDurableBeforeItsDebit() throws Exception {
+        failCredits = true;
+
+        CompletableFuture<TransferOutcome> first = engine.transfer(txn("T-1", 250L));
+        Thread.sleep(200);
+
+        // the payee's flush keeps failing: the debit is durable, no credit, and nothing is reported
+        assertThat(first).isNotDone();
+        assertThat(ledger).extracting(LedgerEntry::getDirection).containsExactly(LedgerEntry.DEBIT);
+        assertThat(walletBalances).containsEntry(PAYER, 750L).containsEntry(PAYEE, 0L);
+    }
+
+    @Test
+    void redeliveryAfterACrashBetweenTheLegsAppliesOnlyTheCredit() throws Exception {
+        failCredits = true;
+        engine.transfer(txn("T-2", 250L));
+        Thread.sleep(200);
+        // crash: the staged credit is lost with the engine
+        ReflectionTestUtils.invokeMethod(engine, "stop");
+        failCredits = false;
+        engine = startEngine();
+
+        TransferOutcome outcome = engine.transfer(txn("T-2", 250L)).get(5, TimeUnit.SECONDS);
+
+        assertThat(outcome.completed().getSuccess()).isTrue();
+        assertThat(outcome.fromWallet()).isNull();
+        assertThat(outcome.toWallet().getBalance()).isEqualTo(250L);
+        assertThat(ledger).extracting(LedgerEntry::getDirection)
+                .containsExactly(LedgerEntry.DEBIT, LedgerEntry.CREDIT);
+        assertThat(walletBalances).containsEntry(PAYER, 750L).containsEntry(PAYEE, 250L);
+    }
+
+    @Test
+    void redeliveryOfACompleteTransferMovesNothing() throws Exception {
+        TransferOutcome first = engine.transfer(txn("T-3", 250L)).get(5, TimeUnit.SECONDS);
+        TransferOutcome again = engine.transfer(txn("T-3", 250L)).get(5, TimeUnit.SECONDS);
+
+        assertThat(first.completed().getSuccess()).isTrue();
+        assertThat(first.fromWallet().getBalance()).isEqualTo(750L);
+        assertThat(first.toWallet().getBalance()).isEqualTo(250L);
+        assertThat(again.completed().getSuccess()).isTrue();
+        assertThat(again.toWallet()).isNull();
+        assertThat(ledger).hasSize(2);
+        assertThat(walletBalances).containsEntry(PAYER, 750L).containsEntry(PAYEE, 250L);
+    }
+
+    @Test
+    void creditsMadeOutsideTheEngineAreSeenBeforeADebitIsRefused() throws Exception {
+        engine.transfer(txn("T-5", 1_000L)).get(5, TimeUnit.SECONDS);
+        // add-money on another path, after the engine cached the payer at zero
+        walletBalances.merge(PAYER, 500L, Long::sum);
+
+        TransferOutcome outcome = engine.transfer(txn("T-6", 400L)).get(5, TimeUnit.SECONDS);
+        TransferOutcome refused = engine.transfer(txn("T-7", 400L)).get(5, TimeUnit.SECONDS);
+
+        assertThat(outcome.completed().getSuccess()).isTrue();
+        assertThat(outcome.fromWallet().getBalance()).isEqualTo(100L);
+        assertThat(refused.completed().getReason()).isEqualTo("Insufficient balance");
+        assertThat(walletBalances).containsEntry(PAYER, 100L).containsEntry(PAYEE, 1_400L);
+    }
+
+    @Test
+    void missingPayeeIsRefundedOnce() throws Exception {
+        TxnInitPayload txn = txn("T-4", 250L);
+        txn.setToUserId(99L);
+
+        TransferOutcome outcome = engine.transfer(txn).get(5, TimeUnit.SECONDS);
+        TransferOutcome again = engine.transfer(txn).get(5, TimeUnit.SECONDS);
+
+        assertThat(outcome.completed().getSuccess()).isFalse();
+        assertThat(outcome.completed().getReason()).isEqualTo("Wallet not found");
+        assertThat(again.completed().getSuccess()).isFalse();
+        assertThat(ledger).extracting(LedgerEntry::getTxnId).containsExactly("T-4", LedgerEntry.refundTxnIdOf("T-4"));
+        assertThat(walletBalances).containsEntry(PAYER, 1_000L);
+    }
+
+    private BalanceEngine startEngine() {
+        BalanceEngine started = new BalanceEngine();
+        ReflectionTestUtils.setField(started, "walletRepo", walletRepo);
+        ReflectionTestUtils.setField(started, "ledgerRepo", ledgerRepo);
+        ReflectionTestUtils.setField(started, "hotWalletService", hotWalletService);
+        ReflectionTestUtils.setField(started, "writeBehind", writeBehind);
+        ReflectionTestUtils.setField(started, "ledgerTxnIdFilter", ledgerTxnIdFilter);
+        ReflectionTestUtils.setField(started, "partitionCount", 4);
+        ReflectionTestUtils.setField(started, "queueCapacity", 1_024);
+        ReflectionTestUtils.setField(started, "maxCachedWallets", 1_000);
+        ReflectionTestUtils.setField(started, "flushBatchSize", 16);
+        ReflectionTestUtils.setField(started, "flushIntervalMs", 1L);
+        ReflectionTestUtils.invokeMethod(started, "start");
+        return started;
+    }
+
+    private static TxnInitPayload txn(String requestId, long amount) {
+        TxnInitPayload txn = new TxnInitPayload();
+        txn.setId((long) requestId.hashCode());
+        txn.setRequestId(requestId);
+        txn.setFromUserId(PAYER);
+        txn.setToUserId(PAYEE);
+        txn.setAmount(amount);
+        return txn;
+    }
+}
@@ -0,0 +1,65 @@
+package com.wallet.service.recon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconChunkTest {
+
+    @Test
+    void archivedRowsCountTowardsTheirWallet() {
+        ReconChunk chunk = new ReconChunk(0L, 100L);
+        chunk.addWallet(10L, 500L);
+        chunk.addWallet(20L, 300L);
+        chunk.addLedgerRow(10L, 200L);
+        chunk.addLedgerRow(20L, 300L);
+        chunk.addArchivedRow(10L, 400L);
+        chunk.addArchivedRow(10L, -100L);
+
+        assertThat(compare(chunk)).isEmpty();
+    }
+
+    @Test
+    void walletMissingItsArchivedRowsIsReported() {
+        ReconChunk chunk = new ReconChunk(0L, 100L);
+        chunk.addWallet(10L, 200L);
+        chunk.addLedgerRow(10L, 200L);
+        chunk.addArchivedRow(10L, 50L);
+
+        assertThat(compare(chunk)).containsExactly(new Discrepancy(10L, 200L, 250L));
+    }
+
+    @Test
+    void archivedRowsWithoutWalletAreOrphans() {
+        ReconChunk chunk = new ReconChunk(0L, 100L);
+        chunk.addWallet(10L, 0L);
+        chunk.addLedgerRow(30L, 70L);
+        chunk.addArchivedRow(30L, 30L);
+        chunk.addArchivedRow(40L, 5L);
+
+        assertThat(compare(chunk)).containsExactly(new Discrepancy(30L, null, 100L));
+        assertThat(chunk.archivedOnlyOrphans()).containsExactly(new Discrepancy(40L, null, 5L));
+    }
+
+    @Test
+    void splitChunkMatchesAcrossLeaves() {
+        ReconChunk chunk = new ReconChunk(0L, Long.MAX_VALUE);
+        for (long userId = 1; userId <= 5_000; userId++) {
+            chunk.addWallet(userId, 3L);
+            chunk.addLedgerRow(userId, 1L);
+        }
+        for (long userId = 1; userId <= 5_000; userId++) {
+            chunk.addArchivedRow(userId, userId == 4_321 ? 1L : 2L);
+        }
+
+        assertThat(compare(chunk)).containsExactly(new Discrepancy(4_321L, 3L, 2L));
+    }
+
+    private static List<Discrepancy> compare(ReconChunk chunk) {
+        return new ArrayList<>(ForkJoinPool.commonPool().invoke(chunk.compare()));
+    }
+}